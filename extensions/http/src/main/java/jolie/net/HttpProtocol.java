@@ -66,12 +66,14 @@ import jolie.js.JsUtils;
 import jolie.lang.Constants;
 import jolie.lang.NativeType;
 import jolie.net.http.HttpMessage;
+import jolie.net.http.HttpMessageFramer;
 import jolie.net.http.HttpParser;
 import jolie.net.http.HttpUtils;
 import jolie.net.http.Method;
 import jolie.net.http.MultiPartFormDataParser;
 import jolie.net.ports.Interface;
 import jolie.net.protocols.CommProtocol;
+import jolie.net.protocols.MessageFramer;
 import jolie.runtime.ByteArray;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
@@ -239,6 +241,11 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		return checkBooleanParameter( Parameters.CONCURRENT );
 	}
 
+	@Override
+	public MessageFramer createMessageFramer() {
+		return new HttpMessageFramer();
+	}
+
 	public HttpProtocol(
 		VariablePath configurationPath,
 		URI uri,
@@ -525,7 +532,7 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 					builder.append( HttpUtils.CRLF ).append( HttpUtils.CRLF );
 					if( isBinary ) {
 						bStream.write( builder.toString().getBytes( charset ) );
-						bStream.write( entry.getValue().first().byteArrayValue().getBytes() );
+						entry.getValue().first().byteArrayValue().writeTo( bStream );
 						builder.delete( 0, builder.length() - 1 );
 						builder.append( HttpUtils.CRLF );
 					} else {
@@ -662,7 +669,8 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		} else if( hasParameter( Parameters.REDIRECT ) ) {
 			statusCode = DEFAULT_REDIRECTION_STATUS_CODE;
 		} else if( message.isFault() ) {
-			statusCode = 500;
+			statusCode =
+				Constants.SERVICE_UNAVAILABLE_FAULT_NAME.equals( message.fault().faultName() ) ? 503 : 500;
 		}
 
 		if( statusDescription == null ) {
@@ -986,7 +994,12 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 
 		ostream.write( headerBuilder.toString().getBytes( HttpUtils.URL_DECODER_ENC ) );
 		if( encodedContent.content != null && !headRequest ) {
-			ostream.write( encodedContent.content.getBytes() );
+			if( ostream instanceof SocketChannelOutputStream ) {
+				// A body held outside of the heap is sent with the headers in one write, without being copied
+				((SocketChannelOutputStream) ostream).write( encodedContent.content.asByteBuffer() );
+			} else {
+				encodedContent.content.writeTo( ostream );
+			}
 		}
 		headRequest = false;
 	}
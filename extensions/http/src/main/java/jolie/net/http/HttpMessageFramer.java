@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2021 The Jolie Developers
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import jolie.net.protocols.MessageFramer;
+
+/**
+ * A {@link MessageFramer} for HTTP/1.x messages. The framer collects the header of a message and
+ * uses it to compute the length of the body, following the same rules as {@link HttpParser}. Bodies
+ * delimited by the closing of the connection have no known boundary.
+ */
+public class HttpMessageFramer implements MessageFramer {
+	private enum State {
+		START, HEADER, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILER, UNKNOWN
+	}
+
+	private static final int MAX_HEADER_SIZE = 1 << 20; // 1 MB
+	private static final int MAX_CHUNK_LINE_SIZE = 1024;
+
+	private State state = State.START;
+	private byte[] line = new byte[ 256 ];
+	private int lineLength = 0;
+	private int headerSize = 0;
+	private long bodyRemaining = 0L;
+
+	// Information collected from the header
+	private boolean startLine = true;
+	private boolean response = false;
+	private boolean http10 = false;
+	private boolean chunked = false;
+	private long contentLength = -1L;
+	private String connection = "";
+
+	@Override
+	public int feed( ByteBuffer buffer ) {
+		int messages = 0;
+		while( buffer.hasRemaining() ) {
+			final boolean complete;
+			switch( state ) {
+			case START:
+				complete = start( buffer );
+				break;
+			case HEADER:
+				complete = header( buffer );
+				break;
+			case BODY:
+				complete = body( buffer );
+				break;
+			case CHUNK_SIZE:
+				complete = chunkSize( buffer );
+				break;
+			case CHUNK_DATA:
+				complete = chunkData( buffer );
+				break;
+			case CHUNK_END:
+				complete = chunkEnd( buffer );
+				break;
+			case TRAILER:
+				complete = trailer( buffer );
+				break;
+			default:
+				complete = false;
+				break;
+			}
+			if( state == State.UNKNOWN ) {
+				reset();
+				return UNKNOWN_BOUNDARY;
+			}
+			if( complete ) {
+				messages++;
+				reset();
+			}
+		}
+		return messages;
+	}
+
+	@Override
+	public void reset() {
+		state = State.START;
+		lineLength = 0;
+		headerSize = 0;
+		bodyRemaining = 0L;
+		startLine = true;
+		response = false;
+		http10 = false;
+		chunked = false;
+		contentLength = -1L;
+		connection = "";
+	}
+
+	private boolean start( ByteBuffer buffer ) {
+		// Separators left over by the previous message are ignored, as HttpParser does
+		while( buffer.hasRemaining() ) {
+			final byte b = buffer.get( buffer.position() );
+			if( b == '\r' || b == '\n' ) {
+				buffer.get();
+			} else {
+				state = State.HEADER;
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private boolean header( ByteBuffer buffer ) {
+		while( buffer.hasRemaining() ) {
+			final byte b = buffer.get();
+			if( ++headerSize > MAX_HEADER_SIZE ) {
+				state = State.UNKNOWN;
+				return false;
+			}
+			if( b == '\n' ) {
+				if( lineLength == 0 ) {
+					return endOfHeader();
+				}
+				headerLine( new String( line, 0, lineLength, StandardCharsets.ISO_8859_1 ) );
+				lineLength = 0;
+				if( state == State.UNKNOWN ) {
+					return false;
+				}
+			} else if( b != '\r' ) {
+				appendToLine( b );
+			}
+		}
+		return false;
+	}
+
+	private void headerLine( String s ) {
+		if( startLine ) {
+			startLine = false;
+			if( s.regionMatches( true, 0, "HTTP/", 0, 5 ) ) {
+				// Status line of a response
+				response = true;
+				http10 = s.startsWith( "1.0", 5 );
+			} else {
+				// Request line
+				http10 = s.endsWith( "HTTP/1.0" );
+			}
+			return;
+		}
+
+		final int colon = s.indexOf( ':' );
+		if( colon < 0 ) {
+			state = State.UNKNOWN;
+			return;
+		}
+
+		final String name = s.substring( 0, colon ).trim().toLowerCase( Locale.ROOT );
+		final String value = s.substring( colon + 1 ).trim();
+		switch( name ) {
+		case "transfer-encoding":
+			chunked = value.startsWith( "chunked" );
+			break;
+		case "content-length":
+			if( !value.isEmpty() ) {
+				try {
+					contentLength = Long.parseLong( value );
+				} catch( NumberFormatException e ) {
+					state = State.UNKNOWN;
+				}
+			}
+			break;
+		case "connection":
+			connection = value;
+			break;
+		default:
+			break;
+		}
+	}
+
+	private boolean endOfHeader() {
+		if( chunked ) {
+			state = State.CHUNK_SIZE;
+			return false;
+		} else if( contentLength > 0 ) {
+			bodyRemaining = contentLength;
+			state = State.BODY;
+			return false;
+		} else if( contentLength < 0 && response && closesConnection() ) {
+			// The body ends when the connection is closed
+			state = State.UNKNOWN;
+			return false;
+		}
+		return true;
+	}
+
+	private boolean closesConnection() {
+		if( http10 ) {
+			return !"keep-alive".equalsIgnoreCase( connection );
+		}
+		return "close".equalsIgnoreCase( connection );
+	}
+
+	private boolean body( ByteBuffer buffer ) {
+		final int skipped = (int) Math.min( bodyRemaining, buffer.remaining() );
+		buffer.position( buffer.position() + skipped );
+		bodyRemaining -= skipped;
+		return bodyRemaining == 0;
+	}
+
+	private boolean chunkSize( ByteBuffer buffer ) {
+		while( buffer.hasRemaining() ) {
+			final byte b = buffer.get();
+			if( b == '\n' ) {
+				final String s = new String( line, 0, lineLength, StandardCharsets.ISO_8859_1 );
+				lineLength = 0;
+				if( s.trim().isEmpty() ) {
+					// Separator after the previous chunk
+					continue;
+				}
+				final long size;
+				try {
+					size = Long.parseLong( s.split( ";", 2 )[ 0 ].trim(), 16 );
+				} catch( NumberFormatException e ) {
+					state = State.UNKNOWN;
+					return false;
+				}
+				if( size > 0 ) {
+					bodyRemaining = size;
+					state = State.CHUNK_DATA;
+				} else {
+					state = State.TRAILER;
+				}
+				return false;
+			} else if( b != '\r' ) {
+				if( lineLength >= MAX_CHUNK_LINE_SIZE ) {
+					state = State.UNKNOWN;
+					return false;
+				}
+				appendToLine( b );
+			}
+		}
+		return false;
+	}
+
+	private boolean chunkData( ByteBuffer buffer ) {
+		if( body( buffer ) ) {
+			state = State.CHUNK_END;
+		}
+		return false;
+	}
+
+	private boolean chunkEnd( ByteBuffer buffer ) {
+		while( buffer.hasRemaining() ) {
+			if( buffer.get() == '\n' ) {
+				state = State.CHUNK_SIZE;
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private boolean trailer( ByteBuffer buffer ) {
+		while( buffer.hasRemaining() ) {
+			final byte b = buffer.get();
+			if( ++headerSize > MAX_HEADER_SIZE ) {
+				state = State.UNKNOWN;
+				return false;
+			}
+			if( b == '\n' ) {
+				if( lineLength == 0 ) {
+					return true;
+				}
+				lineLength = 0;
+			} else if( b != '\r' ) {
+				lineLength++;
+			}
+		}
+		return false;
+	}
+
+	private void appendToLine( byte b ) {
+		if( lineLength == line.length ) {
+			final byte[] newLine = new byte[ line.length * 2 ];
+			System.arraycopy( line, 0, newLine, 0, lineLength );
+			line = newLine;
+		}
+		line[ lineLength++ ] = b;
+	}
+}
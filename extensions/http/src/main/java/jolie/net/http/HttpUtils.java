@@ -115,7 +115,7 @@ public class HttpUtils {
 			.append( "Content-Type: text/plain; charset=utf-8" ).append( CRLF )
 			.append( "Content-Length: " ).append( content.size() ).append( CRLF ).append( CRLF );
 		ostream.write( httpMessage.toString().getBytes( StandardCharsets.UTF_8 ) );
-		ostream.write( content.getBytes() );
+		content.writeTo( ostream );
 		ostream.flush();
 	}
 
@@ -175,14 +175,14 @@ public class HttpUtils {
 		if( encoding.contains( "gzip" ) || encoding.contains( "*" ) ) {
 			ByteArrayOutputStream baOutStream = new ByteArrayOutputStream();
 			GZIPOutputStream outStream = new GZIPOutputStream( baOutStream );
-			outStream.write( content.getBytes() );
+			content.writeTo( outStream );
 			outStream.close();
 			content = new ByteArray( baOutStream.toByteArray() );
 			headerBuilder.append( "Content-Encoding: gzip" ).append( HttpUtils.CRLF );
 		} else if( encoding.contains( "deflate" ) ) {
 			ByteArrayOutputStream baOutStream = new ByteArrayOutputStream();
 			DeflaterOutputStream outStream = new DeflaterOutputStream( baOutStream );
-			outStream.write( content.getBytes() );
+			content.writeTo( outStream );
 			outStream.close();
 			content = new ByteArray( baOutStream.toByteArray() );
 			headerBuilder.append( "Content-Encoding: deflate" ).append( HttpUtils.CRLF );
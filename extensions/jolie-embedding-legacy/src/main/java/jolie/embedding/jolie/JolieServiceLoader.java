@@ -70,7 +70,11 @@ public class JolieServiceLoader extends EmbeddedServiceLoader {
 			config.programDirectory(), config.packagePaths(),
 			// difference:
 			serviceName.orElse( config.executionTarget() ),
-			Optional.empty() );
+			Optional.empty(),
+			config.virtualThreads(), config.connectionsQueueSize(), config.sessionMemoryLimit(),
+			config.spawnParallelism(), config.lockTimeout(), config.connectionsCacheSize(),
+			config.connectionsCacheSizePerLocation(), config.connectionsPerLocationLimit(),
+			config.internedKeysCapacity() );
 
 		interpreter = new Interpreter(
 			commandLineParser.getInterpreterConfiguration(),
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2021 The Jolie Developers
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+
+import jolie.runtime.ByteArray;
+import jolie.runtime.EncodedChildren;
+import jolie.runtime.KeyInterner;
+import jolie.runtime.Value;
+import jolie.runtime.ValueVector;
+
+/**
+ * The children of a value received with the sodep protocol, kept as they were encoded in the
+ * message. Decoding them creates their values, and the children of these are kept encoded in turn,
+ * so that a tree is decoded only as far as it is read. All the parts of a message share the same
+ * buffer, which is retained until they are all decoded or gone.
+ */
+final class SodepEncodedChildren implements EncodedChildren {
+	private static class DataTypeHeaderId {
+		private static final int STRING = 1;
+		private static final int INT = 2;
+		private static final int DOUBLE = 3;
+		private static final int BYTE_ARRAY = 4;
+		private static final int BOOL = 5;
+		private static final int LONG = 6;
+	}
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private final byte[] bytes;
+	private final int offset;
+	private final int length;
+	private final Charset charset;
+
+	private SodepEncodedChildren( byte[] bytes, int offset, int length, Charset charset ) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+		this.charset = charset;
+	}
+
+	/**
+	 * Reads the children of a value from the given input, checking their structure but without decoding
+	 * them.
+	 *
+	 * @return the encoded children, or <code>null</code> if the value has no children
+	 */
+	static SodepEncodedChildren read( DataInput in, Charset charset )
+		throws IOException {
+		final Copier copier = new Copier( in );
+		if( copier.copyChildren() == 0 ) {
+			return null;
+		}
+		return new SodepEncodedChildren( copier.out.buffer(), 0, copier.out.size(), charset );
+	}
+
+	/**
+	 * Writes the children as they were received, if they were encoded with the given charset.
+	 *
+	 * @return <code>true</code> if the children have been written
+	 */
+	boolean writeTo( DataOutputStream out, Charset charset )
+		throws IOException {
+		if( !this.charset.equals( charset ) ) {
+			return false;
+		}
+		out.write( bytes, offset, length );
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return length;
+	}
+
+	@Override
+	public void decodeInto( Map< String, ValueVector > children ) {
+		new Decoder( offset ).decodeChildren( children );
+	}
+
+	private class Decoder {
+		private int pos;
+
+		private Decoder( int pos ) {
+			this.pos = pos;
+		}
+
+		private int readInt() {
+			final int ret = ((bytes[ pos ] & 0xFF) << 24) | ((bytes[ pos + 1 ] & 0xFF) << 16)
+				| ((bytes[ pos + 2 ] & 0xFF) << 8) | (bytes[ pos + 3 ] & 0xFF);
+			pos += 4;
+			return ret;
+		}
+
+		private long readLong() {
+			final long high = readInt();
+			return (high << 32) | (readInt() & 0xFFFFFFFFL);
+		}
+
+		// Skips an int length and as many bytes
+		private void skipBytes() {
+			final int len = Math.max( readInt(), 0 );
+			pos += len;
+		}
+
+		private String readKey() {
+			final int len = Math.max( readInt(), 0 );
+			final String ret = len > 0 ? KeyInterner.getInstance().intern( bytes, pos, len, charset ) : "";
+			pos += len;
+			return ret;
+		}
+
+		private void decodeChildren( Map< String, ValueVector > children ) {
+			final int n = readInt();
+			for( int i = 0; i < n; i++ ) {
+				final String key = readKey();
+				final ValueVector vec = ValueVector.create();
+				final int size = readInt();
+				for( int k = 0; k < size; k++ ) {
+					vec.add( decodeValue() );
+				}
+				children.put( key, vec );
+			}
+		}
+
+		private Value decodeValue() {
+			final Object valueObject = readValueObject();
+			final int start = pos;
+			skipChildren();
+			if( pos - start == 4 ) {
+				final Value ret = Value.create();
+				ret.setValue( valueObject );
+				return ret;
+			}
+			return Value.createLazy( valueObject,
+				new SodepEncodedChildren( bytes, start, pos - start, charset ) );
+		}
+
+		private Object readValueObject() {
+			final byte b = bytes[ pos++ ];
+			final int len;
+			switch( b ) {
+			case DataTypeHeaderId.STRING:
+				len = Math.max( readInt(), 0 );
+				pos += len;
+				return new String( bytes, pos - len, len, charset );
+			case DataTypeHeaderId.INT:
+				return readInt();
+			case DataTypeHeaderId.LONG:
+				return readLong();
+			case DataTypeHeaderId.DOUBLE:
+				return Double.longBitsToDouble( readLong() );
+			case DataTypeHeaderId.BYTE_ARRAY:
+				len = Math.max( readInt(), 0 );
+				pos += len;
+				return new ByteArray( Arrays.copyOfRange( bytes, pos - len, pos ) );
+			case DataTypeHeaderId.BOOL:
+				return bytes[ pos++ ] != 0;
+			default:
+				return null;
+			}
+		}
+
+		private void skipChildren() {
+			final int n = readInt();
+			for( int i = 0; i < n; i++ ) {
+				skipBytes();
+				final int size = readInt();
+				for( int k = 0; k < size; k++ ) {
+					skipValue();
+				}
+			}
+		}
+
+		private void skipValue() {
+			switch( bytes[ pos++ ] ) {
+			case DataTypeHeaderId.STRING:
+			case DataTypeHeaderId.BYTE_ARRAY:
+				skipBytes();
+				break;
+			case DataTypeHeaderId.INT:
+				pos += 4;
+				break;
+			case DataTypeHeaderId.LONG:
+			case DataTypeHeaderId.DOUBLE:
+				pos += 8;
+				break;
+			case DataTypeHeaderId.BOOL:
+				pos += 1;
+				break;
+			default:
+				break;
+			}
+			skipChildren();
+		}
+	}
+
+	private static class Buffer extends ByteArrayOutputStream {
+		private byte[] buffer() {
+			return buf;
+		}
+	}
+
+	// Copies encoded children from an input to a buffer, walking their structure to find their end
+	private static class Copier {
+		private final DataInput in;
+		private final Buffer out = new Buffer();
+		private final DataOutputStream dout = new DataOutputStream( out );
+		private final byte[] chunk = new byte[ CHUNK_SIZE ];
+
+		private Copier( DataInput in ) {
+			this.in = in;
+		}
+
+		private int copyInt()
+			throws IOException {
+			final int ret = in.readInt();
+			dout.writeInt( ret );
+			return ret;
+		}
+
+		private void copy( int len )
+			throws IOException {
+			while( len > 0 ) {
+				final int n = Math.min( len, CHUNK_SIZE );
+				in.readFully( chunk, 0, n );
+				out.write( chunk, 0, n );
+				len -= n;
+			}
+		}
+
+		private int copyChildren()
+			throws IOException {
+			final int n = copyInt();
+			for( int i = 0; i < n; i++ ) {
+				copy( copyInt() );
+				final int size = copyInt();
+				for( int k = 0; k < size; k++ ) {
+					copyValue();
+				}
+			}
+			return n;
+		}
+
+		private void copyValue()
+			throws IOException {
+			final byte b = in.readByte();
+			out.write( b );
+			switch( b ) {
+			case DataTypeHeaderId.STRING:
+			case DataTypeHeaderId.BYTE_ARRAY:
+				copy( copyInt() );
+				break;
+			case DataTypeHeaderId.INT:
+				copy( 4 );
+				break;
+			case DataTypeHeaderId.LONG:
+			case DataTypeHeaderId.DOUBLE:
+				copy( 8 );
+				break;
+			case DataTypeHeaderId.BOOL:
+				copy( 1 );
+				break;
+			default:
+				break;
+			}
+			copyChildren();
+		}
+	}
+}
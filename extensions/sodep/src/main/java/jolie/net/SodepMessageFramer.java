@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2021 The Jolie Developers
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import jolie.net.protocols.MessageFramer;
+
+/**
+ * A {@link MessageFramer} for the sodep protocol. Sodep messages carry no length, so the framer
+ * walks the structure of the message tree, reading only the type tags, lengths and sizes that
+ * determine how many bytes follow.
+ */
+final class SodepMessageFramer implements MessageFramer {
+	private static class Step {
+		private static final int SKIP = 0; // Skip as many bytes as the argument
+		private static final int STRING = 1; // An int length, followed by as many bytes
+		private static final int FAULT = 2; // A boolean, followed by a fault if true
+		private static final int VALUE = 3; // A type tag, the value content and the children
+		private static final int CHILDREN = 4; // An int number of children
+		private static final int CHILD = 5; // As many children as the argument
+		private static final int VECTOR = 6; // An int size of a vector
+		private static final int VALUES = 7; // As many values as the argument
+	}
+
+	private static class DataTypeHeaderId {
+		private static final int STRING = 1;
+		private static final int INT = 2;
+		private static final int DOUBLE = 3;
+		private static final int BYTE_ARRAY = 4;
+		private static final int BOOL = 5;
+		private static final int LONG = 6;
+	}
+
+	private static final int LONG_SIZE = 8;
+	private static final int INT_SIZE = 4;
+	private static final int BYTE_SIZE = 1;
+	private static final int INITIAL_DEPTH = 32;
+
+	private int[] steps = new int[ INITIAL_DEPTH ];
+	private long[] arguments = new long[ INITIAL_DEPTH ];
+	private int top = -1;
+
+	private boolean readingField = false;
+	private int fieldRemaining;
+	private long field;
+
+	@Override
+	public int feed( ByteBuffer buffer ) {
+		int messages = 0;
+		while( true ) {
+			if( top < 0 ) {
+				if( !buffer.hasRemaining() ) {
+					break;
+				}
+				startMessage();
+			}
+			if( !step( buffer ) ) {
+				break;
+			}
+			if( top < 0 ) {
+				messages++;
+			}
+		}
+		return messages;
+	}
+
+	@Override
+	public void reset() {
+		top = -1;
+		readingField = false;
+	}
+
+	private void startMessage() {
+		push( Step.VALUE, 0 );
+		push( Step.FAULT, 0 );
+		push( Step.STRING, 0 ); // Operation name
+		push( Step.STRING, 0 ); // Resource path
+		push( Step.SKIP, LONG_SIZE ); // Message id
+	}
+
+	/**
+	 * Runs the step on top of the stack.
+	 *
+	 * @return <code>false</code> if the step needs more bytes than those in <code>buffer</code>
+	 */
+	private boolean step( ByteBuffer buffer ) {
+		switch( steps[ top ] ) {
+		case Step.SKIP:
+			final int skipped = (int) Math.min( arguments[ top ], buffer.remaining() );
+			buffer.position( buffer.position() + skipped );
+			arguments[ top ] -= skipped;
+			if( arguments[ top ] > 0 ) {
+				return false;
+			}
+			top--;
+			return true;
+		case Step.STRING:
+			if( !readField( buffer, INT_SIZE ) ) {
+				return false;
+			}
+			replace( Step.SKIP, Math.max( 0, (int) field ) );
+			return true;
+		case Step.FAULT:
+			if( !readField( buffer, BYTE_SIZE ) ) {
+				return false;
+			}
+			top--;
+			if( field != 0 ) {
+				push( Step.VALUE, 0 );
+				push( Step.STRING, 0 ); // Fault name
+			}
+			return true;
+		case Step.VALUE:
+			if( !readField( buffer, BYTE_SIZE ) ) {
+				return false;
+			}
+			replace( Step.CHILDREN, 0 );
+			switch( (int) field ) {
+			case DataTypeHeaderId.STRING:
+			case DataTypeHeaderId.BYTE_ARRAY:
+				push( Step.STRING, 0 );
+				break;
+			case DataTypeHeaderId.INT:
+				push( Step.SKIP, INT_SIZE );
+				break;
+			case DataTypeHeaderId.LONG:
+			case DataTypeHeaderId.DOUBLE:
+				push( Step.SKIP, LONG_SIZE );
+				break;
+			case DataTypeHeaderId.BOOL:
+				push( Step.SKIP, BYTE_SIZE );
+				break;
+			default:
+				break;
+			}
+			return true;
+		case Step.CHILDREN:
+			if( !readField( buffer, INT_SIZE ) ) {
+				return false;
+			}
+			replace( Step.CHILD, Math.max( 0, (int) field ) );
+			return true;
+		case Step.CHILD:
+			if( arguments[ top ] == 0 ) {
+				top--;
+			} else {
+				arguments[ top ]--;
+				push( Step.VECTOR, 0 );
+				push( Step.STRING, 0 ); // Child name
+			}
+			return true;
+		case Step.VECTOR:
+			if( !readField( buffer, INT_SIZE ) ) {
+				return false;
+			}
+			replace( Step.VALUES, Math.max( 0, (int) field ) );
+			return true;
+		case Step.VALUES:
+			if( arguments[ top ] == 0 ) {
+				top--;
+			} else {
+				arguments[ top ]--;
+				push( Step.VALUE, 0 );
+			}
+			return true;
+		default:
+			throw new IllegalStateException( "Unknown sodep framing step: " + steps[ top ] );
+		}
+	}
+
+	/**
+	 * Reads a big-endian field of <code>size</code> bytes into {@link #field}, possibly across multiple
+	 * buffers.
+	 *
+	 * @return <code>true</code> if the field has been read completely
+	 */
+	private boolean readField( ByteBuffer buffer, int size ) {
+		if( !readingField ) {
+			readingField = true;
+			fieldRemaining = size;
+			field = 0L;
+		}
+		while( fieldRemaining > 0 && buffer.hasRemaining() ) {
+			field = (field << 8) | (buffer.get() & 0xff);
+			fieldRemaining--;
+		}
+		if( fieldRemaining > 0 ) {
+			return false;
+		}
+		readingField = false;
+		if( size == INT_SIZE ) {
+			field = (int) field;
+		}
+		return true;
+	}
+
+	private void push( int step, long argument ) {
+		top++;
+		if( top == steps.length ) {
+			steps = Arrays.copyOf( steps, steps.length * 2 );
+			arguments = Arrays.copyOf( arguments, arguments.length * 2 );
+		}
+		steps[ top ] = step;
+		arguments[ top ] = argument;
+	}
+
+	private void replace( int step, long argument ) {
+		steps[ top ] = step;
+		arguments[ top ] = argument;
+	}
+}
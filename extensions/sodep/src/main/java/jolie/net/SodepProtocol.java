@@ -24,7 +24,6 @@ package jolie.net;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
-import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,8 +37,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import jolie.net.protocols.ConcurrentCommProtocol;
+import jolie.net.protocols.MessageFramer;
 import jolie.runtime.ByteArray;
+import jolie.runtime.EncodedChildren;
 import jolie.runtime.FaultException;
+import jolie.runtime.KeyInterner;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
 import jolie.runtime.VariablePath;
@@ -60,6 +62,7 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 	}
 
 	private Charset stringCharset = StandardCharsets.UTF_8;
+	private boolean lazy = false;
 
 	private String readString( DataInput in )
 		throws IOException {
@@ -72,7 +75,19 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		return "";
 	}
 
-	private void writeString( DataOutput out, String str )
+	// Reads a name that is likely to be repeated, like the name of a child or of an operation
+	private String readKey( DataInput in )
+		throws IOException {
+		int len = in.readInt();
+		if( len > 0 ) {
+			byte[] bb = new byte[ len ];
+			in.readFully( bb );
+			return KeyInterner.getInstance().intern( bb, 0, len, stringCharset );
+		}
+		return "";
+	}
+
+	private void writeString( DataOutputStream out, String str )
 		throws IOException {
 		if( str.isEmpty() ) {
 			out.writeInt( 0 );
@@ -90,33 +105,44 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 	private ByteArray readByteArray( DataInput in )
 		throws IOException {
 		int size = in.readInt();
-		ByteArray ret;
-		if( size > 0 ) {
-			byte[] bytes = new byte[ size ];
-			in.readFully( bytes, 0, size );
-			ret = new ByteArray( bytes );
-		} else {
-			ret = new ByteArray( new byte[ 0 ] );
-		}
-		return ret;
+		// Large payloads are read outside of the heap
+		return ByteArray.read( in, Math.max( size, 0 ) );
 	}
 
-	private void writeByteArray( DataOutput out, ByteArray byteArray )
+	private void writeByteArray( DataOutputStream out, ByteArray byteArray )
 		throws IOException {
 		int size = byteArray.size();
 		out.writeInt( size );
 		if( size > 0 ) {
-			out.write( byteArray.getBytes() );
+			final OutputStream channelStream =
+				out instanceof ChannelDataOutputStream ? ((ChannelDataOutputStream) out).channelStream() : null;
+			if( channelStream instanceof SocketChannelOutputStream ) {
+				// Byte arrays held outside of the heap are handed to the socket without being copied
+				((SocketChannelOutputStream) channelStream).write( byteArray.asByteBuffer() );
+			} else {
+				byteArray.writeTo( out );
+			}
 		}
 	}
 
-	private void writeFault( DataOutput out, FaultException fault )
+	// Gives access to the stream of the channel, which DataOutputStream writes to without buffering
+	private static class ChannelDataOutputStream extends DataOutputStream {
+		private ChannelDataOutputStream( OutputStream out ) {
+			super( out );
+		}
+
+		private OutputStream channelStream() {
+			return out;
+		}
+	}
+
+	private void writeFault( DataOutputStream out, FaultException fault )
 		throws IOException {
 		writeString( out, fault.faultName() );
 		writeValue( out, fault.value() );
 	}
 
-	private void writeValue( DataOutput out, Value value )
+	private void writeValue( DataOutputStream out, Value value )
 		throws IOException {
 		Object valueObject = value.valueObject();
 		if( valueObject == null ) {
@@ -143,6 +169,13 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 			out.writeByte( DataTypeHeaderId.NULL );
 		}
 
+		// Children received with sodep and never read are written as they came
+		final EncodedChildren encoded = value.encodedChildren();
+		if( encoded instanceof SodepEncodedChildren
+			&& ((SodepEncodedChildren) encoded).writeTo( out, stringCharset ) ) {
+			return;
+		}
+
 		Map< String, ValueVector > children = value.children();
 		List< Entry< String, ValueVector > > entries =
 			new LinkedList<>();
@@ -160,7 +193,7 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		}
 	}
 
-	private void writeMessage( DataOutput out, CommMessage message )
+	private void writeMessage( DataOutputStream out, CommMessage message )
 		throws IOException {
 		out.writeLong( message.id() );
 		writeString( out, message.resourcePath() );
@@ -175,9 +208,8 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		writeValue( out, message.value() );
 	}
 
-	private Value readValue( DataInput in )
+	private Object readValueObject( DataInput in )
 		throws IOException {
-		Value value = Value.create();
 		Object valueObject = null;
 		byte b = in.readByte();
 		switch( b ) {
@@ -203,8 +235,13 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		default:
 			break;
 		}
+		return valueObject;
+	}
 
-		value.setValue( valueObject );
+	private Value readValue( DataInput in )
+		throws IOException {
+		Value value = Value.create();
+		value.setValue( readValueObject( in ) );
 
 		Map< String, ValueVector > children = value.children();
 		String s;
@@ -213,7 +250,7 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		ValueVector vec;
 
 		for( i = 0; i < n; i++ ) {
-			s = readString( in );
+			s = readKey( in );
 			vec = ValueVector.create();
 			size = in.readInt();
 			for( k = 0; k < size; k++ ) {
@@ -231,16 +268,29 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		return new FaultException( faultName, value );
 	}
 
+	// Reads a value leaving its children encoded, to be decoded only if they are accessed
+	private Value readLazyValue( DataInput in )
+		throws IOException {
+		final Object valueObject = readValueObject( in );
+		final SodepEncodedChildren children = SodepEncodedChildren.read( in, stringCharset );
+		if( children == null ) {
+			final Value value = Value.create();
+			value.setValue( valueObject );
+			return value;
+		}
+		return Value.createLazy( valueObject, children );
+	}
+
 	private CommMessage readMessage( DataInput in )
 		throws IOException {
 		long id = in.readLong();
 		String resourcePath = readString( in );
-		String operationName = readString( in );
+		String operationName = readKey( in );
 		FaultException fault = null;
 		if( in.readBoolean() == true ) {
 			fault = readFault( in );
 		}
-		Value value = readValue( in );
+		Value value = lazy ? readLazyValue( in ) : readValue( in );
 		return new CommMessage( id, operationName, resourcePath, value, fault );
 	}
 
@@ -248,6 +298,11 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		super( configurationPath );
 	}
 
+	@Override
+	public MessageFramer createMessageFramer() {
+		return new SodepMessageFramer();
+	}
+
 	public void send( OutputStream ostream, CommMessage message, InputStream istream )
 		throws IOException {
 		channel().setToBeClosed( !checkBooleanParameter( "keepAlive", true ) );
@@ -257,7 +312,7 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 			stringCharset = Charset.forName( charset );
 		}
 
-		final DataOutputStream oos = new DataOutputStream( ostream );
+		final DataOutputStream oos = new ChannelDataOutputStream( ostream );
 		writeMessage( oos, message );
 	}
 
@@ -269,6 +324,7 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		if( !charset.isEmpty() ) {
 			stringCharset = Charset.forName( charset );
 		}
+		lazy = checkBooleanParameter( "lazy", false );
 
 		final DataInputStream ios = new DataInputStream( istream );
 		return readMessage( ios );
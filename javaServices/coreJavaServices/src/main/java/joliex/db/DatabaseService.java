@@ -40,6 +40,7 @@ import jolie.runtime.ByteArray;
 import jolie.runtime.CanUseJars;
 import jolie.runtime.FaultException;
 import jolie.runtime.JavaService;
+import jolie.runtime.KeyInterner;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
 import jolie.runtime.embedding.RequestResponse;
@@ -390,33 +391,24 @@ public class DatabaseService extends JavaService {
 		int cols = metadata.getColumnCount();
 		int i;
 		int rowIndex = 0;
-		if( toLowerCase ) {
-			while( result.next() ) {
-				rowValue = vector.get( rowIndex );
-				for( i = 1; i <= cols; i++ ) {
-					fieldValue = rowValue.getFirstChild( metadata.getColumnLabel( i ).toLowerCase() );
-					setValue( fieldValue, result, metadata.getColumnType( i ), i );
-				}
-				rowIndex++;
-			}
-		} else if( toUpperCase ) {
-			while( result.next() ) {
-				rowValue = vector.get( rowIndex );
-				for( i = 1; i <= cols; i++ ) {
-					fieldValue = rowValue.getFirstChild( metadata.getColumnLabel( i ).toUpperCase() );
-					setValue( fieldValue, result, metadata.getColumnType( i ), i );
-				}
-				rowIndex++;
+		// Column names are the same for every row, so they are computed and interned once
+		String[] names = new String[ cols + 1 ];
+		for( i = 1; i <= cols; i++ ) {
+			String name = metadata.getColumnLabel( i );
+			if( toLowerCase ) {
+				name = name.toLowerCase();
+			} else if( toUpperCase ) {
+				name = name.toUpperCase();
 			}
-		} else {
-			while( result.next() ) {
-				rowValue = vector.get( rowIndex );
-				for( i = 1; i <= cols; i++ ) {
-					fieldValue = rowValue.getFirstChild( metadata.getColumnLabel( i ) );
-					setValue( fieldValue, result, metadata.getColumnType( i ), i );
-				}
-				rowIndex++;
+			names[ i ] = KeyInterner.getInstance().intern( name );
+		}
+		while( result.next() ) {
+			rowValue = vector.get( rowIndex );
+			for( i = 1; i <= cols; i++ ) {
+				fieldValue = rowValue.getFirstChild( names[ i ] );
+				setValue( fieldValue, result, metadata.getColumnType( i ), i );
 			}
+			rowIndex++;
 		}
 	}
 
@@ -22,6 +22,7 @@
 package joliex.io;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -39,6 +40,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -158,11 +160,18 @@ public class FileService extends JavaService {
 		value.setValue( encoder.encodeToString( buffer ) );
 	}
 
-	private static void readBinaryIntoValue( InputStream istream, long size, Value value )
+	private static void readBinaryIntoValue( InputStream istream, long size, Value value, boolean mapped )
 		throws IOException {
-		byte[] buffer = new byte[ (int) size ];
-		istream.read( buffer );
-		value.setValue( new ByteArray( buffer ) );
+		if( istream instanceof FileInputStream ) {
+			FileChannel channel = ((FileInputStream) istream).getChannel();
+			if( mapped ) {
+				value.setValue( ByteArray.map( channel, 0, (int) size ) );
+			} else {
+				value.setValue( ByteArray.read( channel, (int) size ) );
+			}
+		} else {
+			value.setValue( ByteArray.read( new DataInputStream( istream ), (int) size ) );
+		}
 	}
 
 	private static void readJsonIntoValue( InputStream istream, Value value, Charset charset, boolean strictEncoding )
@@ -346,6 +355,10 @@ public class FileService extends JavaService {
 		if( formatValue.hasChildren( "skipMixedText" ) ) {
 			skipMixedText = formatValue.getFirstChild( "skipMixedText" ).boolValue();
 		}
+		boolean mapped = false;
+		if( formatValue.hasChildren( "mapped" ) ) {
+			mapped = formatValue.getFirstChild( "mapped" ).boolValue();
+		}
 		final File file = new File( filenameValue.strValue() );
 		InputStream istream = null;
 		long size;
@@ -380,7 +393,7 @@ public class FileService extends JavaService {
 					readBase64IntoValue( istream, size, retValue );
 					break;
 				case "binary":
-					readBinaryIntoValue( istream, size, retValue );
+					readBinaryIntoValue( istream, size, retValue, mapped );
 					break;
 				case "xml":
 					istream = new BufferedInputStream( istream );
@@ -568,8 +581,7 @@ public class FileService extends JavaService {
 	private static void writeBinary( File file, Value value, boolean append )
 		throws IOException {
 		try( FileOutputStream os = new FileOutputStream( file, append ) ) {
-			os.write( value.byteArrayValue().getBytes() );
-			os.flush();
+			value.byteArrayValue().writeTo( os.getChannel() );
 		}
 	}
 
@@ -30,20 +30,20 @@ public class Concurrent {
 	@RequestResponse
 	public void notify( String lockName )
 		throws FaultException {
-		Interpreter.getInstance().getLock( lockName ).notify();
+		Interpreter.getInstance().getLock( lockName ).condition().signal();
 	}
 
 	@RequestResponse
 	public void notifyAll( String lockName )
 		throws FaultException {
-		Interpreter.getInstance().getLock( lockName ).notifyAll();
+		Interpreter.getInstance().getLock( lockName ).condition().signalAll();
 	}
 
 	@RequestResponse
 	public void wait( String lockName )
 		throws FaultException {
 		try {
-			Interpreter.getInstance().getLock( lockName ).wait();
+			Interpreter.getInstance().getLock( lockName ).condition().await();
 		} catch( InterruptedException ie ) {
 		}
 	}
@@ -32,13 +32,19 @@ import java.util.function.Function;
 import com.sun.management.UnixOperatingSystemMXBean;
 
 import jolie.ExecutionThread;
+import jolie.Interpreter;
 import jolie.lang.Constants;
+import jolie.net.ChannelCache;
+import jolie.net.CommCore;
 import jolie.net.CommListener;
 import jolie.net.LocalCommChannel;
 import jolie.net.ports.OutputPort;
 import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
+import jolie.runtime.InstrumentedLock;
 import jolie.runtime.InvalidIdException;
 import jolie.runtime.JavaService;
+import jolie.runtime.KeyInterner;
 import jolie.runtime.Value;
 import jolie.runtime.ValuePrettyPrinter;
 import jolie.runtime.VariablePath;
@@ -306,9 +312,110 @@ public class RuntimeService extends JavaService {
 		stats_files( stats.getFirstChild( "files" ) );
 		stats_os( stats.getFirstChild( "os" ) );
 		stats_memory( stats.getFirstChild( "memory" ) );
+		stats_connections( stats.getFirstChild( "connections" ) );
+		stats_outputConnections( stats.getFirstChild( "outputConnections" ) );
+		stats_internedKeys( stats.getFirstChild( "internedKeys" ) );
+		stats_sessions( stats.getFirstChild( "sessions" ) );
 		return stats;
 	}
 
+	private void stats_sessions( Value stats ) {
+		int active = 0;
+		long retained = HeapSize.of( interpreter().globalValue() );
+		for( ExecutionThread session : interpreter().runningSessions() ) {
+			active++;
+			retained += session.state().measureRetainedBytes();
+		}
+		stats.setFirstChild( "active", active );
+		stats.setFirstChild( "memoryLimit", interpreter().sessionMemoryLimit() );
+		stats.setFirstChild( "retained", retained );
+	}
+
+	public Value getSessionsMemory() {
+		final Value ret = Value.create();
+		ret.setFirstChild( "global", HeapSize.of( interpreter().globalValue() ) );
+		for( ExecutionThread session : interpreter().runningSessions() ) {
+			final Value s = ret.getNewChild( "session" );
+			s.setFirstChild( "id", session.getSessionId() );
+			s.setFirstChild( "retained", session.state().measureRetainedBytes() );
+		}
+		return ret;
+	}
+
+	@RequestResponse
+	public void setSessionMemoryLimit( Long limit ) {
+		interpreter().setSessionMemoryLimit( limit );
+	}
+
+	public Value getLocksStats() {
+		final Value ret = Value.create();
+		ret.setFirstChild( "timeout", interpreter().lockTimeout() );
+		for( InstrumentedLock lock : interpreter().locks() ) {
+			final Value l = ret.getNewChild( "lock" );
+			l.setFirstChild( "id", lock.id() );
+			l.setFirstChild( "acquisitions", lock.acquisitions() );
+			l.setFirstChild( "contended", lock.contentions() );
+			l.setFirstChild( "timeouts", lock.timeouts() );
+			l.setFirstChild( "waitTime", lock.waitNanos() / 1000L );
+			l.setFirstChild( "maxWaitTime", lock.maxWaitNanos() / 1000L );
+			l.setFirstChild( "queueLength", lock.getQueueLength() );
+			final String holder = lock.holderName();
+			if( holder != null ) {
+				l.setFirstChild( "holder", holder );
+			}
+		}
+		return ret;
+	}
+
+	@RequestResponse
+	public void setLockTimeout( Long timeout ) {
+		interpreter().setLockTimeout( timeout );
+	}
+
+	private void stats_connections( Value stats ) {
+		CommCore commCore = interpreter().commCore();
+		stats.setFirstChild( "limit", commCore.connectionsLimit() );
+		stats.setFirstChild( "queueSize", commCore.connectionsQueueSize() );
+		stats.setFirstChild( "active", commCore.activeConnections() );
+		stats.setFirstChild( "queued", commCore.queuedConnections() );
+		stats.setFirstChild( "rejected", commCore.rejectedConnections() );
+	}
+
+	private void stats_outputConnections( Value stats ) {
+		final Interpreter.Configuration configuration = interpreter().configuration();
+		long hits = 0, misses = 0, created = 0, evicted = 0, waited = 0;
+		int open = 0, idle = 0;
+		for( OutputPort port : interpreter().outputPorts() ) {
+			final ChannelCache cache = port.channelCache();
+			hits += cache.hits();
+			misses += cache.misses();
+			created += cache.creations();
+			evicted += cache.evictions();
+			waited += cache.waits();
+			open += cache.openChannels();
+			idle += cache.idleChannels();
+		}
+		stats.setFirstChild( "cacheSize", configuration.connectionsCacheSize() );
+		stats.setFirstChild( "cacheSizePerLocation", configuration.connectionsCacheSizePerLocation() );
+		stats.setFirstChild( "limitPerLocation", configuration.connectionsPerLocationLimit() );
+		stats.setFirstChild( "open", open );
+		stats.setFirstChild( "idle", idle );
+		stats.setFirstChild( "hits", hits );
+		stats.setFirstChild( "misses", misses );
+		stats.setFirstChild( "created", created );
+		stats.setFirstChild( "evicted", evicted );
+		stats.setFirstChild( "waited", waited );
+		stats.setFirstChild( "discarded", interpreter().commCore().discardedResponses() );
+	}
+
+	private void stats_internedKeys( Value stats ) {
+		final KeyInterner interner = KeyInterner.getInstance();
+		stats.setFirstChild( "capacity", interner.capacity() );
+		stats.setFirstChild( "size", interner.size() );
+		stats.setFirstChild( "hits", interner.hits() );
+		stats.setFirstChild( "misses", interner.misses() );
+	}
+
 	private void stats_os( Value stats ) {
 		OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
 		stats.setFirstChild( "arch", osBean.getArch() );
@@ -57,6 +57,8 @@ import jolie.JolieClassLoader;
 import jolie.jap.JapURLConnection;
 import jolie.lang.Constants;
 import jolie.lang.parse.Scanner;
+import jolie.net.ChannelCache;
+import jolie.runtime.KeyInterner;
 import jolie.runtime.correlation.CorrelationEngine;
 import jolie.util.UriUtils;
 
@@ -69,6 +71,14 @@ public class CommandLineParser implements Closeable {
 	private final static String OPTION_SEPARATOR = " ";
 
 	private final int connectionsLimit;
+	private final int connectionsQueueSize;
+	private final long sessionMemoryLimit;
+	private final int spawnParallelism;
+	private final long lockTimeout;
+	private final int connectionsCacheSize;
+	private final int connectionsCacheSizePerLocation;
+	private final int connectionsPerLocationLimit;
+	private final int internedKeysCapacity;
 	private final CorrelationEngine.Type correlationAlgorithmType;
 	private final String[] includePaths;
 	private final String[] packagePaths;
@@ -91,6 +101,7 @@ public class CommandLineParser implements Closeable {
 	private final Level logLevel;
 	private final String executionTarget;
 	private final Optional< Path > parametersFilepath;
+	private final boolean virtualThreads;
 	private File programDirectory = null;
 	private int cellId = 0;
 
@@ -134,9 +145,33 @@ public class CommandLineParser implements Closeable {
 					+ "(under Windows use quotes or double-quotes, e.g., -C \"ConstantIdentifier=ConstantValue\" )" ) )
 			.append(
 				getOptionString( "--connlimit [number]", "Set the maximum number of active connection threads" ) )
+			.append(
+				getOptionString( "--connqueue [number]",
+					"Set the maximum number of connections waiting for a connection thread when --connlimit is reached (default: unbounded)" ) )
+			.append(
+				getOptionString( "--sessionMemoryLimit [bytes]",
+					"Set the approximate maximum number of bytes retained by the variables of a session (default: unlimited)" ) )
+			.append(
+				getOptionString( "--spawnParallelism [number]",
+					"Set the maximum number of iterations of a spawn statement that run at the same time, 0 for no limit (default: 0)" ) )
+			.append(
+				getOptionString( "--lockTimeout [ms]",
+					"Set how long a synchronized block waits for its lock before throwing a LockTimeout fault (default: no timeout)" ) )
 			.append(
 				getOptionString( "--conncache [number]",
-					"Set the maximum number of cached persistent output connections" ) )
+					"Set the maximum number of cached persistent output connections (default: 64)" ) )
+			.append(
+				getOptionString( "--conncachePerLocation [number]",
+					"Set the maximum number of cached persistent output connections towards the same location (default: 8)" ) )
+			.append(
+				getOptionString( "--connPerLocation [number]",
+					"Set the maximum number of output connections open at the same time towards the same location, 0 for no limit (default: 0)" ) )
+			.append(
+				getOptionString( "--internedKeys [number]",
+					"Set the maximum number of message node names interned by the JVM, rounded up to a power of two (default: 8192)" ) )
+			.append(
+				getOptionString( "--virtualThreads",
+					"Run sessions and connection handlers on virtual threads (requires Java 21, default: false)" ) )
 			.append(
 				getOptionString( "--responseTimeout [number]",
 					"Set the timeout for request-response invocations (in milliseconds)" ) )
@@ -268,6 +303,7 @@ public class CommandLineParser implements Closeable {
 		Deque< String > optionsList = new LinkedList<>();
 		boolean bTracer = false;
 		boolean bStackTraces = false;
+		boolean bVirtualThreads = false;
 		boolean bCheck = false;
 		boolean bTypeCheck = false; // Default for typecheck
 		Level lLogLevel = Level.INFO;
@@ -278,6 +314,14 @@ public class CommandLineParser implements Closeable {
 		List< String > libList = new ArrayList<>();
 		List< String > packagesList = new ArrayList<>();
 		int cLimit = -1;
+		int cQueueSize = -1;
+		long sMemoryLimit = 0L;
+		int sParallelism = 0;
+		long lTimeout = 0L;
+		int cCacheSize = ChannelCache.DEFAULT_MAX_IDLE;
+		int cCacheSizePerLocation = ChannelCache.DEFAULT_MAX_IDLE_PER_LOCATION;
+		int cPerLocationLimit = 0;
+		int iKeysCapacity = KeyInterner.DEFAULT_CAPACITY;
 		long rTimeout = 36000 * 1000; // 10 minutes
 		String pwd = UriUtils.normalizeWindowsPath( new File( "" ).getCanonicalPath() );
 		String tService = null;
@@ -336,6 +380,49 @@ public class CommandLineParser implements Closeable {
 				i++;
 				cLimit = Integer.parseInt( argsList.get( i ) );
 				optionsList.add( argsList.get( i ) );
+			} else if( "--connqueue".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				cQueueSize = Integer.parseInt( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--sessionMemoryLimit".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				sMemoryLimit = Long.parseLong( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--spawnParallelism".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				sParallelism = Integer.parseInt( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--lockTimeout".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				lTimeout = Long.parseLong( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--conncache".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				cCacheSize = Integer.parseInt( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--conncachePerLocation".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				cCacheSizePerLocation = Integer.parseInt( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--connPerLocation".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				cPerLocationLimit = Integer.parseInt( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--internedKeys".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				iKeysCapacity = Integer.parseInt( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--virtualThreads".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				bVirtualThreads = true;
 			} else if( "--responseTimeout".equals( argsList.get( i ) ) ) {
 				optionsList.add( argsList.get( i ) );
 				i++;
@@ -502,6 +589,7 @@ public class CommandLineParser implements Closeable {
 		tracerMode = tMode;
 		tracerLevel = tLevel;
 		printStackTraces = bStackTraces;
+		virtualThreads = bVirtualThreads;
 		executionTarget = tService;
 		parametersFilepath = Optional.ofNullable( tParams );
 
@@ -517,6 +605,14 @@ public class CommandLineParser implements Closeable {
 		}
 
 		connectionsLimit = cLimit;
+		connectionsQueueSize = cQueueSize;
+		sessionMemoryLimit = sMemoryLimit;
+		spawnParallelism = sParallelism;
+		lockTimeout = lTimeout;
+		connectionsCacheSize = cCacheSize;
+		connectionsCacheSizePerLocation = cCacheSizePerLocation;
+		connectionsPerLocationLimit = cPerLocationLimit;
+		internedKeysCapacity = iKeysCapacity;
 		responseTimeout = rTimeout;
 
 		List< URL > urls = new ArrayList<>();
@@ -805,7 +901,16 @@ public class CommandLineParser implements Closeable {
 			programDirectory,
 			packagePaths,
 			executionTarget,
-			parametersFilepath );
+			parametersFilepath,
+			virtualThreads,
+			connectionsQueueSize,
+			sessionMemoryLimit,
+			spawnParallelism,
+			lockTimeout,
+			connectionsCacheSize,
+			connectionsCacheSizePerLocation,
+			connectionsPerLocationLimit,
+			internedKeysCapacity );
 
 	}
 
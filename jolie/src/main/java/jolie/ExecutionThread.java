@@ -25,11 +25,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import jolie.Interpreter.StarterThread;
 import jolie.lang.Constants;
@@ -161,17 +164,29 @@ public abstract class ExecutionThread extends JolieThread {
 	}
 
 	protected final Process process;
-	protected final Deque< Scope > scopeStack = new ArrayDeque<>();
+	// Scopes are seldom nested deeply, and the stack grows if needed
+	protected final Deque< Scope > scopeStack = new ArrayDeque<>( 4 );
 	protected final ExecutionThread parent;
-	private final Deque< WeakReference< Future< ? > > > futureToCancel = new ArrayDeque<>();
+	// Created at the first call of cancelIfKilled, guarded by this
+	private Deque< WeakReference< Future< ? > > > futureToCancel = null;
 	private boolean canBeInterrupted = false;
 	private FaultException killerFault = null;
 	private Future< ? > taskFuture;
 
-	private void setTaskFuture( Future< ? > taskFuture ) {
+	private synchronized void setTaskFuture( Future< ? > taskFuture ) {
 		this.taskFuture = taskFuture;
 	}
 
+	/**
+	 * Pushes copies of the scopes of the given thread, with their handlers, on the scope stack of this
+	 * thread.
+	 *
+	 * @param other the thread whose scopes are to be copied
+	 */
+	protected final void copyScopes( ExecutionThread other ) {
+		other.scopeStack.forEach( s -> scopeStack.push( s.clone() ) );
+	}
+
 	/**
 	 * Sets if this thread can be interrupted by a fault signal or not.
 	 */
@@ -208,18 +223,29 @@ public abstract class ExecutionThread extends JolieThread {
 	 * 
 	 * @param fault the fault causing the interruption.
 	 */
-	public synchronized void kill( FaultException fault ) {
-		killerFault = fault;
-
-		while( !futureToCancel.isEmpty() ) {
-			final WeakReference< Future< ? > > ref = futureToCancel.poll();
-			if( ref.get() != null ) {
-				ref.get().cancel( true );
+	public void kill( FaultException fault ) {
+		final List< Future< ? > > futures = new ArrayList<>();
+		synchronized( this ) {
+			killerFault = fault;
+
+			while( futureToCancel != null && !futureToCancel.isEmpty() ) {
+				final Future< ? > f = futureToCancel.poll().get();
+				if( f != null ) {
+					futures.add( f );
+				}
 			}
 		}
 
-		if( canBeInterrupted ) {
-			taskFuture.cancel( canBeInterrupted );
+		// Cancelling a future may kill other threads (see ParallelExecution), so it is done without
+		// holding the monitor of this thread
+		for( Future< ? > f : futures ) {
+			f.cancel( true );
+		}
+
+		synchronized( this ) {
+			if( canBeInterrupted ) {
+				taskFuture.cancel( canBeInterrupted );
+			}
 		}
 	}
 
@@ -306,7 +332,11 @@ public abstract class ExecutionThread extends JolieThread {
 	 * @param f the future to cancel
 	 */
 	public synchronized void cancelIfKilled( Future< ? > f ) {
-		cleanFuturesToKill();
+		if( futureToCancel == null ) {
+			futureToCancel = new ArrayDeque<>( 4 );
+		} else {
+			cleanFuturesToKill();
+		}
 		if( isKilled() ) {
 			f.cancel( true );
 		}
@@ -421,7 +451,24 @@ public abstract class ExecutionThread extends JolieThread {
 			return ((CommChannelHandler) currThread).executionThread();
 		}
 
-		return null;
+		return VirtualThreads.executionThread();
+	}
+
+	/**
+	 * Sets the ExecutionThread the current thread should refer to for variable state resolution. This
+	 * works for every kind of thread running Jolie code, including virtual threads.
+	 * 
+	 * @param ethread the ExecutionThread the current thread should refer to, or <code>null</code>
+	 */
+	public static void setCurrentThread( ExecutionThread ethread ) {
+		Thread currThread = Thread.currentThread();
+		if( currThread instanceof JolieExecutorThread ) {
+			((JolieExecutorThread) currThread).setExecutionThread( ethread );
+		} else if( currThread instanceof CommChannelHandler ) {
+			((CommChannelHandler) currThread).setExecutionThread( ethread );
+		} else {
+			VirtualThreads.setExecutionThread( ethread );
+		}
 	}
 
 	public static State getState() {
@@ -434,7 +481,8 @@ public abstract class ExecutionThread extends JolieThread {
 			return ((CommChannelHandler) t).executionThread().state();
 		}
 
-		return null;
+		ExecutionThread ethread = VirtualThreads.executionThread();
+		return ethread == null ? null : ethread.state();
 	}
 
 	/**
@@ -473,9 +521,8 @@ public abstract class ExecutionThread extends JolieThread {
 
 	@Override
 	public final void run() {
-		JolieExecutorThread t = JolieExecutorThread.currentThread();
-		t.setExecutionThread( this );
-		t.setContextClassLoader( interpreter().getClassLoader() );
+		setCurrentThread( this );
+		Thread.currentThread().setContextClassLoader( interpreter().getClassLoader() );
 		runProcess();
 	}
 
@@ -483,6 +530,28 @@ public abstract class ExecutionThread extends JolieThread {
 		setTaskFuture( interpreter().runJolieThread( this ) );
 	}
 
+	/**
+	 * Runs this thread in the calling thread rather than in the thread pool of the interpreter, sparing
+	 * a thread hand-off when the caller would otherwise wait for it. The calling thread refers to this
+	 * thread until it finishes, and is interrupted if this thread is killed while it can be.
+	 */
+	public void runInCurrentThread() {
+		final ExecutionThread caller = currentThread();
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		final FutureTask< ? > task = new FutureTask<>( this, null );
+		setTaskFuture( task );
+		try {
+			task.run();
+		} finally {
+			if( task.isCancelled() ) {
+				// Clears the interrupt sent by kill, which was meant for this thread only
+				Thread.interrupted();
+			}
+			setCurrentThread( caller );
+			Thread.currentThread().setContextClassLoader( classLoader );
+		}
+	}
+
 	public void join()
 		throws InterruptedException {
 		try {
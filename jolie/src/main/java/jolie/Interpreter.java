@@ -27,7 +27,6 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.io.StringWriter;
-import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -111,15 +110,16 @@ public class Interpreter {
 
 		private void onSuccessfulInitExecution() {
 			if( executionMode == Constants.ExecutionMode.SINGLE ) {
-				synchronized( correlationEngine ) {
-					try {
-						mainSession = new SessionThread( getDefinition( "main" ), initExecutionThread );
-						correlationEngine.onSingleExecutionSessionStart( mainSession );
-						mainSession.addSessionListener( correlationEngine );
-						correlationEngine.onSessionExecuted( this );
-					} catch( InvalidIdException e ) {
-						assert false;
-					}
+				correlationEngine.lock().lock();
+				try {
+					mainSession = new SessionThread( getDefinition( "main" ), initExecutionThread );
+					correlationEngine.onSingleExecutionSessionStart( mainSession );
+					mainSession.addSessionListener( correlationEngine );
+					correlationEngine.onSessionExecuted( this );
+				} catch( InvalidIdException e ) {
+					assert false;
+				} finally {
+					correlationEngine.lock().unlock();
 				}
 			} else {
 				correlationEngine.onSessionExecuted( this );
@@ -154,7 +154,9 @@ public class Interpreter {
 					for( Deque< SessionMessage > queue : messageQueues.values() ) {
 						pushMessages( queue );
 					}
-					pushMessages( uncorrelatedMessageQueue );
+					if( uncorrelatedMessageQueue != null ) {
+						pushMessages( uncorrelatedMessageQueue );
+					}
 				}
 			} );
 		}
@@ -238,14 +240,14 @@ public class Interpreter {
 	private final List< CorrelationSet > correlationSets = new ArrayList<>();
 	private final Map< String, CorrelationSet > operationCorrelationSetMap = new HashMap<>();
 	private Constants.ExecutionMode executionMode = Constants.ExecutionMode.SINGLE;
-	private final Value globalValue = Value.createRootValue();
+	private final Value globalValue = Value.createSharedRootValue();
 	private final Collection< EmbeddedServiceLoader > embeddedServiceLoaders = new ArrayList<>();
 
 	private final Map< String, DefinitionProcess > definitions = new HashMap<>();
 	private final Map< String, OutputPort > outputPorts = new HashMap<>();
 	private final Map< String, InputOperation > inputOperations = new HashMap<>();
 
-	private final HashMap< String, Object > locksMap = new HashMap<>();
+	private final Map< String, InstrumentedLock > locksMap = new ConcurrentHashMap<>();
 
 	private final String[] includePaths;
 
@@ -265,13 +267,11 @@ public class Interpreter {
 	// private long persistentConnectionTimeout = 2 * 60 * 1000; // 4 minutes
 	// private long persistentConnectionTimeout = 1;
 
-	// 11 is the default initial capacity for PriorityQueue
-	private final Queue< WeakReference< TimeoutHandler > > timeoutHandlerQueue =
-		new PriorityQueue<>( 11, new TimeoutHandler.Comparator() );
-
 	private final ExecutorService timeoutHandlerExecutor =
 		Executors.newSingleThreadExecutor( new NativeJolieThreadFactory( this ) );
 
+	private final TimingWheel timingWheel;
+
 
 	private final File programDirectory;
 	private OutputPort monitor = null;
@@ -330,6 +330,68 @@ public class Interpreter {
 		return configuration.responseTimeout();
 	}
 
+	private volatile long sessionMemoryLimit;
+	private volatile long lockTimeout;
+	private final Set< ExecutionThread > runningSessions = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Returns the maximum number of bytes that the variables of a session may retain before the session
+	 * gets a MemoryLimitExceeded fault. A value that is not positive means no limit.
+	 *
+	 * @return the memory limit of sessions, in bytes
+	 */
+	public long sessionMemoryLimit() {
+		return sessionMemoryLimit;
+	}
+
+	/**
+	 * Sets the maximum number of bytes that the variables of a session may retain, for all the sessions
+	 * of this Interpreter, including running ones.
+	 *
+	 * @param limit the memory limit of sessions, in bytes, or a value that is not positive for no limit
+	 */
+	public void setSessionMemoryLimit( long limit ) {
+		sessionMemoryLimit = limit;
+	}
+
+	/**
+	 * Returns the sessions that are currently running in this Interpreter.
+	 *
+	 * @return a view of the running sessions
+	 */
+	public Collection< ExecutionThread > runningSessions() {
+		return Collections.unmodifiableSet( runningSessions );
+	}
+
+	/**
+	 * Registers a session that has started running, e.g., a {@link SessionThread} or an iteration of a
+	 * spawn statement, so that it is listed by {@link #runningSessions()}.
+	 *
+	 * @param session the thread running the session
+	 */
+	public void sessionStarted( ExecutionThread session ) {
+		runningSessions.add( session );
+	}
+
+	/**
+	 * Unregisters a session registered with {@link #sessionStarted(ExecutionThread)}.
+	 *
+	 * @param session the thread that was running the session
+	 */
+	public void sessionEnded( ExecutionThread session ) {
+		runningSessions.remove( session );
+	}
+
+	/**
+	 * Returns how many iterations of a spawn statement may run at the same time. A value that is not
+	 * positive means no limit.
+	 *
+	 * @return the maximum number of concurrent iterations of a spawn statement
+	 */
+	public int spawnParallelism() {
+		return configuration.spawnParallelism();
+	}
+
 	public CorrelationEngine correlationEngine() {
 		return correlationEngine;
 	}
@@ -347,48 +409,15 @@ public class Interpreter {
 		}
 	}
 
-	public void addTimeoutHandler( TimeoutHandler handler ) {
-		synchronized( timeoutHandlerQueue ) {
-			timeoutHandlerQueue.add( new WeakReference<>( handler ) );
-			if( timeoutHandlerQueue.size() == 1 ) {
-				schedule( new TimerTask() {
-					@Override
-					public void run() {
-						synchronized( timeoutHandlerQueue ) {
-							checkForExpiredTimeoutHandlers();
-						}
-					}
-				}, handler.time() - System.currentTimeMillis() + 1 );
-			} else {
-				checkForExpiredTimeoutHandlers();
-			}
-		}
-	}
-
-	/*
-	 * public void removeTimeoutHandler( TimeoutHandler handler ) { synchronized( timeoutHandlerQueue )
-	 * { timeoutHandlerQueue.remove( handler ); checkForExpiredTimeoutHandlers(); } }
+	/**
+	 * Schedules a timeout handler, which is run by the timeout handler executor when its timeout
+	 * expires, unless it is cancelled before. When the interpreter exits, all scheduled handlers are
+	 * run.
+	 *
+	 * @param handler the timeout handler to schedule
 	 */
-
-	private void checkForExpiredTimeoutHandlers() {
-		long currentTime = System.currentTimeMillis();
-		WeakReference< TimeoutHandler > whandler = timeoutHandlerQueue.peek();
-		boolean keepRun = true;
-		TimeoutHandler handler;
-		while( whandler != null && keepRun ) {
-			handler = whandler.get();
-			if( handler == null ) {
-				timeoutHandlerQueue.remove();
-				whandler = timeoutHandlerQueue.peek();
-			} else if( handler.time() < currentTime || exiting ) {
-				// final TimeoutHandler h = handler;
-				timeoutHandlerExecutor.execute( handler );
-				timeoutHandlerQueue.poll();
-				whandler = timeoutHandlerQueue.peek();
-			} else {
-				keepRun = false;
-			}
-		}
+	public void addTimeoutHandler( TimeoutHandler handler ) {
+		timingWheel.add( handler );
 	}
 
 	/**
@@ -616,7 +645,7 @@ public class Interpreter {
 		if( timer != null ) {
 			timer.cancel();
 		}
-		checkForExpiredTimeoutHandlers();
+		timingWheel.stop();
 		processExecutorService.shutdown();
 		nativeExecutorService.shutdown();
 		timeoutHandlerExecutor.shutdown();
@@ -806,7 +835,7 @@ public class Interpreter {
 			return ((InterpreterThread) t).interpreter();
 		}
 
-		return null;
+		return VirtualThreads.interpreter();
 	}
 
 	/**
@@ -839,6 +868,11 @@ public class Interpreter {
 		throws IOException {
 		TracerUtils.TracerLevels tracerLevel = TracerUtils.TracerLevels.ALL;
 		this.configuration = configuration;
+		this.sessionMemoryLimit = configuration.sessionMemoryLimit();
+		this.lockTimeout = configuration.lockTimeout();
+		KeyInterner.setCapacity( configuration.internedKeysCapacity() );
+		this.timingWheel = new TimingWheel( configuration.programFilepath().getName() + "-TimingWheel",
+			timeoutHandlerExecutor );
 
 		this.symbolTables = new HashMap<>();
 
@@ -853,7 +887,20 @@ public class Interpreter {
 
 		this.correlationEngine = configuration.correlationAlgorithm().createInstance( this );
 
-		commCore = new CommCore( this, configuration.connectionsLimit() /* , cmdParser.connectionsCache() */ );
+		if( configuration.virtualThreads() && !VirtualThreads.isSupported() ) {
+			LOGGER.warning( "Virtual threads are not supported by this Java runtime, using platform threads" );
+		}
+		virtualThreads = configuration.virtualThreads() && VirtualThreads.isSupported();
+		if( virtualThreads ) {
+			nativeExecutorService = VirtualThreads.newThreadPerTaskExecutor( this, "Native" );
+			processExecutorService = VirtualThreads.newThreadPerTaskExecutor( this, "Process" );
+		} else {
+			nativeExecutorService = new JolieThreadPoolExecutor( new NativeJolieThreadFactory( this ) );
+			processExecutorService = new JolieThreadPoolExecutor( new JolieExecutionThreadFactory( this ) );
+		}
+
+		commCore = new CommCore( this, configuration.connectionsLimit(),
+			configuration.connectionsQueueSize() /* , cmdParser.connectionsCache() */ );
 		includePaths = configuration.includePaths();
 
 		logPrefix = '[' +
@@ -977,8 +1024,38 @@ public class Interpreter {
 	 * @param id the global lock identifier
 	 * @return the global lock registered on this interpreter with the specified identifier
 	 */
-	public synchronized Object getLock( String id ) {
-		return locksMap.computeIfAbsent( id, k -> new Object() );
+	public InstrumentedLock getLock( String id ) {
+		final InstrumentedLock lock = locksMap.get( id );
+		return lock != null ? lock : locksMap.computeIfAbsent( id, InstrumentedLock::new );
+	}
+
+	/**
+	 * Returns the global locks registered on this interpreter so far.
+	 *
+	 * @return a view of the global locks registered on this interpreter
+	 */
+	public Collection< InstrumentedLock > locks() {
+		return Collections.unmodifiableCollection( locksMap.values() );
+	}
+
+	/**
+	 * Returns how long a synchronized block waits for its lock before throwing a LockTimeout fault, in
+	 * milliseconds. A value that is not positive means that it waits as long as it takes.
+	 *
+	 * @return the lock timeout, in milliseconds
+	 */
+	public long lockTimeout() {
+		return lockTimeout;
+	}
+
+	/**
+	 * Sets how long a synchronized block waits for its lock before throwing a LockTimeout fault.
+	 *
+	 * @param timeout the lock timeout, in milliseconds, or a value that is not positive to wait as long
+	 *        as it takes
+	 */
+	public void setLockTimeout( long timeout ) {
+		lockTimeout = timeout;
 	}
 
 	public SessionStarter getSessionStarter( String operationName ) {
@@ -1114,10 +1191,19 @@ public class Interpreter {
 		runCode();
 	}
 
-	private final ExecutorService nativeExecutorService =
-		new JolieThreadPoolExecutor( new NativeJolieThreadFactory( this ) );
-	private final ExecutorService processExecutorService =
-		new JolieThreadPoolExecutor( new JolieExecutionThreadFactory( this ) );
+	private final boolean virtualThreads;
+	private final ExecutorService nativeExecutorService;
+	private final ExecutorService processExecutorService;
+
+	/**
+	 * Returns <code>true</code> if this Interpreter runs its sessions and communication handlers on
+	 * virtual threads.
+	 * 
+	 * @return <code>true</code> if this Interpreter uses virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
 
 	/**
 	 * Runs an asynchronous task in this Interpreter internal thread pool.
@@ -1427,6 +1513,15 @@ public class Interpreter {
 		private final String[] packagePaths;
 		private final String executionTarget;
 		private final Optional< Path > parametersFilePath;
+		private final boolean virtualThreads;
+		private final int connectionsQueueSize;
+		private final long sessionMemoryLimit;
+		private final int spawnParallelism;
+		private final long lockTimeout;
+		private final int connectionsCacheSize;
+		private final int connectionsCacheSizePerLocation;
+		private final int connectionsPerLocationLimit;
+		private final int internedKeysCapacity;
 
 		private Configuration( int connectionsLimit,
 			int cellId,
@@ -1452,7 +1547,16 @@ public class Interpreter {
 			File programDirectory,
 			String[] packagePaths,
 			String executionTarget,
-			Optional< Path > parametersFilePath ) {
+			Optional< Path > parametersFilePath,
+			boolean virtualThreads,
+			int connectionsQueueSize,
+			long sessionMemoryLimit,
+			int spawnParallelism,
+			long lockTimeout,
+			int connectionsCacheSize,
+			int connectionsCacheSizePerLocation,
+			int connectionsPerLocationLimit,
+			int internedKeysCapacity ) {
 			this.connectionsLimit = connectionsLimit;
 			this.cellId = cellId;
 			this.correlationAlgorithm = correlationAlgorithm;
@@ -1478,6 +1582,15 @@ public class Interpreter {
 			this.packagePaths = packagePaths;
 			this.executionTarget = executionTarget;
 			this.parametersFilePath = parametersFilePath;
+			this.virtualThreads = virtualThreads;
+			this.connectionsQueueSize = connectionsQueueSize;
+			this.sessionMemoryLimit = sessionMemoryLimit;
+			this.spawnParallelism = spawnParallelism;
+			this.lockTimeout = lockTimeout;
+			this.connectionsCacheSize = connectionsCacheSize;
+			this.connectionsCacheSizePerLocation = connectionsCacheSizePerLocation;
+			this.connectionsPerLocationLimit = connectionsPerLocationLimit;
+			this.internedKeysCapacity = internedKeysCapacity;
 		}
 
 		public static Configuration create( int connectionsLimit,
@@ -1504,11 +1617,22 @@ public class Interpreter {
 			File programDirectory,
 			String[] packagePaths,
 			String executionTarget,
-			Optional< Path > parametersFilePath ) {
+			Optional< Path > parametersFilePath,
+			boolean virtualThreads,
+			int connectionsQueueSize,
+			long sessionMemoryLimit,
+			int spawnParallelism,
+			long lockTimeout,
+			int connectionsCacheSize,
+			int connectionsCacheSizePerLocation,
+			int connectionsPerLocationLimit,
+			int internedKeysCapacity ) {
 			return new Configuration( connectionsLimit, cellId, correlationAlgorithm, includeList, optionArgs, libUrls,
 				inputStream, charset, programFilepath, arguments, constants, jolieClassLoader, programCompiled,
 				typeCheck, tracer, tracerLevel, tracerMode, check, printStackTraces, responseTimeout, logLevel,
-				programDirectory, packagePaths, executionTarget, parametersFilePath );
+				programDirectory, packagePaths, executionTarget, parametersFilePath, virtualThreads,
+				connectionsQueueSize, sessionMemoryLimit, spawnParallelism, lockTimeout, connectionsCacheSize,
+				connectionsCacheSizePerLocation, connectionsPerLocationLimit, internedKeysCapacity );
 		}
 
 		public static Configuration create( Configuration config,
@@ -1519,7 +1643,11 @@ public class Interpreter {
 				config.libURLs, inputStream, config.charset, programFilepath, config.arguments, config.constants,
 				config.jolieClassLoader, config.isProgramCompiled, config.typeCheck, config.tracer, config.tracerLevel,
 				config.tracerMode, config.check, config.printStackTraces, config.responseTimeout, config.logLevel,
-				config.programDirectory, config.packagePaths, config.executionTarget, config.parametersFilePath );
+				config.programDirectory, config.packagePaths, config.executionTarget, config.parametersFilePath,
+				config.virtualThreads, config.connectionsQueueSize, config.sessionMemoryLimit,
+				config.spawnParallelism, config.lockTimeout, config.connectionsCacheSize,
+				config.connectionsCacheSizePerLocation, config.connectionsPerLocationLimit,
+				config.internedKeysCapacity );
 		}
 
 		public static Configuration create( Configuration config,
@@ -1531,7 +1659,11 @@ public class Interpreter {
 				config.libURLs, inputStream, config.charset, programFilepath, config.arguments, config.constants,
 				config.jolieClassLoader, config.isProgramCompiled, config.typeCheck, config.tracer, config.tracerLevel,
 				config.tracerMode, config.check, config.printStackTraces, config.responseTimeout, config.logLevel,
-				config.programDirectory, config.packagePaths, executionTarget, config.parametersFilePath );
+				config.programDirectory, config.packagePaths, executionTarget, config.parametersFilePath,
+				config.virtualThreads, config.connectionsQueueSize, config.sessionMemoryLimit,
+				config.spawnParallelism, config.lockTimeout, config.connectionsCacheSize,
+				config.connectionsCacheSizePerLocation, config.connectionsPerLocationLimit,
+				config.internedKeysCapacity );
 		}
 
 		/**
@@ -1543,6 +1675,88 @@ public class Interpreter {
 			return this.connectionsLimit;
 		}
 
+		/**
+		 * Returns the maximum number of received connections that can wait for a free handler when the
+		 * connection limit is reached, passed by command line with the --connqueue option. A negative value
+		 * means that the queue is unbounded.
+		 *
+		 * @return the connections queue size parameter passed by command line
+		 */
+		public int connectionsQueueSize() {
+			return this.connectionsQueueSize;
+		}
+
+		/**
+		 * Returns the maximum number of bytes that the variables of a session may retain, passed by command
+		 * line with the --sessionMemoryLimit option. A value that is not positive means no limit.
+		 *
+		 * @return the session memory limit parameter passed by command line
+		 */
+		public long sessionMemoryLimit() {
+			return this.sessionMemoryLimit;
+		}
+
+		/**
+		 * Returns how many iterations of a spawn statement may run at the same time, passed by command line
+		 * with the --spawnParallelism option. A value that is not positive means no limit.
+		 *
+		 * @return the spawn parallelism parameter passed by command line
+		 */
+		public int spawnParallelism() {
+			return this.spawnParallelism;
+		}
+
+		/**
+		 * Returns how long a synchronized block waits for its lock, in milliseconds, passed by command line
+		 * with the --lockTimeout option. A value that is not positive means no timeout.
+		 *
+		 * @return the lock timeout parameter passed by command line
+		 */
+		public long lockTimeout() {
+			return this.lockTimeout;
+		}
+
+		/**
+		 * Returns the maximum number of idle persistent channels kept by an output port, passed by command
+		 * line with the --conncache option.
+		 *
+		 * @return the connection cache size parameter passed by command line
+		 */
+		public int connectionsCacheSize() {
+			return this.connectionsCacheSize;
+		}
+
+		/**
+		 * Returns the maximum number of idle persistent channels kept by an output port for the same
+		 * location, passed by command line with the --conncachePerLocation option.
+		 *
+		 * @return the per-location connection cache size parameter passed by command line
+		 */
+		public int connectionsCacheSizePerLocation() {
+			return this.connectionsCacheSizePerLocation;
+		}
+
+		/**
+		 * Returns the maximum number of channels that an output port keeps open at the same time towards
+		 * the same location, passed by command line with the --connPerLocation option. A value that is not
+		 * positive means no limit.
+		 *
+		 * @return the per-location connection limit parameter passed by command line
+		 */
+		public int connectionsPerLocationLimit() {
+			return this.connectionsPerLocationLimit;
+		}
+
+		/**
+		 * Returns the maximum number of message node names interned by the JVM, passed by command line with
+		 * the --internedKeys option.
+		 *
+		 * @return the interned keys capacity parameter passed by command line
+		 */
+		public int internedKeysCapacity() {
+			return this.internedKeysCapacity;
+		}
+
 		/**
 		 * Returns the cellId parameter passed by command line with the --cellId option.
 		 *
@@ -1754,5 +1968,14 @@ public class Interpreter {
 		public Optional< Path > parametersPath() {
 			return parametersFilePath;
 		}
+
+		/**
+		 * Returns <code>true</code> if the --virtualThreads option has been specified, false otherwise.
+		 *
+		 * @return <code>true</code> if sessions and communication handlers should run on virtual threads
+		 */
+		public boolean virtualThreads() {
+			return virtualThreads;
+		}
 	}
 }
@@ -33,15 +33,21 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public abstract class JolieThread implements Runnable {
 	private final Interpreter interpreter;
-	private final String name;
+	// The name is built only if asked for, since execution threads are created for every session
+	private final String suffix; // null if the thread is named after its number
+	private final int number;
 	private static final AtomicInteger COUNTER = new AtomicInteger( 0 );
 
 	protected static String createThreadName() {
-		return "JolieThread-" + COUNTER.getAndIncrement();
+		return threadName( COUNTER.getAndIncrement() );
+	}
+
+	private static String threadName( int number ) {
+		return "JolieThread-" + number;
 	}
 
 	public String name() {
-		return name;
+		return interpreter.programFilename() + "-" + (suffix == null ? threadName( number ) : suffix);
 	}
 
 	/**
@@ -53,7 +59,8 @@ public abstract class JolieThread implements Runnable {
 	 */
 	public JolieThread( Interpreter interpreter, String name ) {
 		this.interpreter = interpreter;
-		this.name = interpreter.programFilename() + "-" + name;
+		this.suffix = name;
+		this.number = -1;
 	}
 
 	/**
@@ -63,7 +70,9 @@ public abstract class JolieThread implements Runnable {
 	 * @see Interpreter
 	 */
 	public JolieThread( Interpreter interpreter ) {
-		this( interpreter, createThreadName() );
+		this.interpreter = interpreter;
+		this.suffix = null;
+		this.number = COUNTER.getAndIncrement();
 	}
 
 	/**
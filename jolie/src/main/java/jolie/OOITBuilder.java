@@ -572,7 +572,8 @@ public class OOITBuilder implements UnitOLVisitor {
 			Map< String, Type > subTypes = new HashMap<>();
 			if( n.subTypes() != null ) {
 				for( Entry< String, TypeDefinition > entry : n.subTypes() ) {
-					subTypes.put( entry.getKey(), buildType( entry.getValue() ) );
+					// Messages are likely to have children with these names, so decoders should reuse them
+					subTypes.put( KeyInterner.getInstance().seed( entry.getKey() ), buildType( entry.getValue() ) );
 				}
 			}
 			currType = Type.create(
@@ -1000,8 +1001,9 @@ public class OOITBuilder implements UnitOLVisitor {
 
 		currExpression = backupExpr;
 
-		return path.isGlobal() ? new GlobalVariablePath( internalPath )
-			: new VariablePath( internalPath );
+		// The constants of the path are values that only the path can reach
+		return path.isGlobal() ? new GlobalVariablePath( internalPath, true )
+			: new VariablePath( internalPath, true );
 	}
 
 	public void visit( PointerStatement n ) {
@@ -1309,7 +1311,8 @@ public class OOITBuilder implements UnitOLVisitor {
 			new ForEachArrayItemProcess(
 				buildVariablePath( n.keyPath() ),
 				buildVariablePath( n.targetPath() ),
-				currProcess );
+				currProcess,
+				n.parallel() );
 	}
 
 	public void visit( ForEachSubNodeStatement n ) {
@@ -1318,7 +1321,8 @@ public class OOITBuilder implements UnitOLVisitor {
 			new ForEachSubNodeProcess(
 				buildVariablePath( n.keyPath() ),
 				buildVariablePath( n.targetPath() ),
-				currProcess );
+				currProcess,
+				n.parallel() );
 	}
 
 	private Expression buildExpression( OLSyntaxNode n ) {
@@ -50,6 +50,11 @@ import jolie.util.Pair;
 /**
  * An ExecutionThread representing a session, equipped with a dedicated state and message queue.
  * 
+ * Sessions are never recycled, since the correlation engine, futures and messages being sent may
+ * still refer to a session, or to the values of its state, after it has ended. Its message queues
+ * and waiters are created only if it waits for a message, so a session that only receives the
+ * message that started it never allocates them.
+ * 
  * @author Fabrizio Montesi
  */
 public class SessionThread extends ExecutionThread {
@@ -148,7 +153,8 @@ public class SessionThread extends ExecutionThread {
 		protected void setResult( SessionMessage sessionMessage ) {
 			for( String operationName : operationNames ) {
 				if( operationName.equals( sessionMessage.message().operationName() ) == false ) {
-					Deque< SessionMessageFuture > waitersList = messageWaiters.get( operationName );
+					Deque< SessionMessageFuture > waitersList =
+						messageWaiters == null ? null : messageWaiters.get( operationName );
 					if( waitersList != null ) {
 						waitersList.remove( this );
 					}
@@ -160,12 +166,17 @@ public class SessionThread extends ExecutionThread {
 
 	private static final AtomicLong ID_COUNTER = new AtomicLong( 1L );
 
-	private final long id = ID_COUNTER.getAndIncrement();
+	private final long id = newSessionId();
 	private final jolie.State state;
 	private final List< SessionListener > listeners = new ArrayList<>();
+	/*
+	 * Most sessions receive only the message that starts them, so the queues and the waiters are
+	 * created when a message has to wait for the session, or the session for a message. They are all
+	 * guarded by the monitor of messageQueues.
+	 */
 	protected final Map< CorrelationSet, Deque< SessionMessage > > messageQueues = new HashMap<>();
-	protected final Deque< SessionMessage > uncorrelatedMessageQueue = new ArrayDeque<>();
-	private final Map< String, Deque< SessionMessageFuture > > messageWaiters = new HashMap<>();
+	protected Deque< SessionMessage > uncorrelatedMessageQueue = null;
+	private Map< String, Deque< SessionMessageFuture > > messageWaiters = null;
 
 	private final static VariablePath TYPE_MISMATCH_PATH;
 	private final static VariablePath IO_EXCEPTION_PATH;
@@ -184,6 +195,15 @@ public class SessionThread extends ExecutionThread {
 				.toVariablePath();
 	}
 
+	/**
+	 * Returns a new session identifier, different from those of all the other sessions in the JVM.
+	 *
+	 * @return a new session identifier
+	 */
+	public static long newSessionId() {
+		return ID_COUNTER.getAndIncrement();
+	}
+
 	/**
 	 * Creates and returns a default list of handlers, initialized with default fault handlers for
 	 * built-in faults like, e.g., TypeMismatch.
@@ -205,8 +225,7 @@ public class SessionThread extends ExecutionThread {
 	public SessionThread( Process process, jolie.State state, ExecutionThread parent ) {
 		super( parent.interpreter(), process );
 		this.state = state;
-		parent.scopeStack.forEach( s -> scopeStack.push( s.clone() ) );
-		initMessageQueues();
+		copyScopes( parent );
 	}
 
 	public boolean isInitialisingThread() {
@@ -231,13 +250,6 @@ public class SessionThread extends ExecutionThread {
 	public SessionThread( Interpreter interpreter, Process process ) {
 		super( interpreter, process );
 		state = new jolie.State();
-		initMessageQueues();
-	}
-
-	private void initMessageQueues() {
-		for( CorrelationSet cset : interpreter().correlationSets() ) {
-			messageQueues.put( cset, new ArrayDeque<>() );
-		}
 	}
 
 	/**
@@ -249,16 +261,14 @@ public class SessionThread extends ExecutionThread {
 	 */
 	public SessionThread( Process process, ExecutionThread parent ) {
 		super( process, parent );
-		initMessageQueues();
 		assert (parent != null);
 		state = parent.state().clone();
-		parent.scopeStack.forEach( s -> scopeStack.push( s.clone() ) );
+		copyScopes( parent );
 	}
 
 	public SessionThread( Interpreter interpreter, Process process, State state ) {
 		super( interpreter, process );
 		this.state = state;
-		initMessageQueues();
 	}
 
 	public SessionThread getNewSessionThread() {
@@ -295,7 +305,7 @@ public class SessionThread extends ExecutionThread {
 					operation = operations.get( message.message().operationName() );
 				}
 			}
-			if( message == null ) {
+			if( message == null && uncorrelatedMessageQueue != null ) {
 				queue = uncorrelatedMessageQueue;
 				message = queue.peekFirst();
 				if( message != null ) {
@@ -333,11 +343,11 @@ public class SessionThread extends ExecutionThread {
 		final SessionMessageFuture future = new SessionMessageFuture();
 		ethread.cancelIfKilled( future );
 		final CorrelationSet cset = interpreter().getCorrelationSetForOperation( operation.id() );
-		final Deque< SessionMessage > queue =
-			cset == null ? uncorrelatedMessageQueue
-				: messageQueues.get( cset );
 		synchronized( messageQueues ) {
-			final SessionMessage message = queue.peekFirst();
+			final Deque< SessionMessage > queue =
+				cset == null ? uncorrelatedMessageQueue
+					: messageQueues.get( cset );
+			final SessionMessage message = queue == null ? null : queue.peekFirst();
 			if( message == null
 				|| message.message().operationName().equals( operation.id() ) == false ) {
 				addMessageWaiter( operation, future );
@@ -363,6 +373,9 @@ public class SessionThread extends ExecutionThread {
 	}
 
 	private void addMessageWaiter( InputOperation operation, SessionMessageFuture future ) {
+		if( messageWaiters == null ) {
+			messageWaiters = new HashMap<>();
+		}
 		Deque< SessionMessageFuture > waitersList = messageWaiters.get( operation.id() );
 		if( waitersList == null ) {
 			waitersList = new ArrayDeque<>();
@@ -372,6 +385,9 @@ public class SessionThread extends ExecutionThread {
 	}
 
 	private SessionMessageFuture getMessageWaiter( String operationName ) {
+		if( messageWaiters == null ) {
+			return null;
+		}
 		Deque< SessionMessageFuture > waitersList = messageWaiters.get( operationName );
 		if( waitersList == null || waitersList.isEmpty() ) {
 			return null;
@@ -394,16 +410,36 @@ public class SessionThread extends ExecutionThread {
 				queue = uncorrelatedMessageQueue;
 			}
 			SessionMessageFuture future = getMessageWaiter( message.message().operationName() );
-			if( future != null && queue.isEmpty() ) {
+			if( future != null && (queue == null || queue.isEmpty()) ) {
 				future.setResult( message );
 			} else {
+				if( queue == null ) {
+					queue = new ArrayDeque<>();
+					if( cset != null ) {
+						messageQueues.put( cset, queue );
+					} else {
+						uncorrelatedMessageQueue = queue;
+					}
+				}
 				queue.addLast( message );
 			}
 		}
 	}
 
 	@Override
-	public void runProcess() {
+	public final void runProcess() {
+		interpreter().sessionStarted( this );
+		try {
+			runSession();
+		} finally {
+			interpreter().sessionEnded( this );
+		}
+	}
+
+	/**
+	 * Runs the process of this session, handling its faults.
+	 */
+	protected void runSession() {
 		try {
 			try {
 				try {
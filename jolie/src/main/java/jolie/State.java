@@ -19,11 +19,16 @@
 
 package jolie;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import jolie.lang.Constants;
+import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
 import jolie.runtime.InternalLink;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
@@ -39,12 +44,24 @@ import jolie.runtime.VariablePath;
  */
 public final class State implements Cloneable {
 	private final Value root;
-	private final ConcurrentHashMap< String, InternalLink > linksMap = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap< String, InternalLink > linksMap;
 	private final LoopDetectionMap< Value > valueLoopDetectionMap = new LoopDetectionMap<>();
 	private final LoopDetectionMap< ValueVector > valueVectorLoopDetectionMap = new LoopDetectionMap<>();
+	/*
+	 * Heap accounting: the processes that write to variables charge an estimate of the bytes they add,
+	 * and the tree is measured again only once the charges could have taken it over the limit. Writes
+	 * that are not charged (e.g., by Java services) are noticed at the next measure.
+	 */
+	private final AtomicLong unmeasuredBytes = new AtomicLong( 0L );
+	private volatile long retainedBytes = 0L;
 
 	private State( Value root ) {
+		this( root, new ConcurrentHashMap<>() );
+	}
+
+	private State( Value root, ConcurrentHashMap< String, InternalLink > linksMap ) {
 		this.root = root;
+		this.linksMap = linksMap;
 	}
 
 	/**
@@ -61,7 +78,19 @@ public final class State implements Cloneable {
 	 * Constructs a new State, using a fresh memory state.
 	 */
 	public State() {
-		this.root = Value.createRootValue();
+		this( Value.createRootValue() );
+	}
+
+	/**
+	 * Returns a State for a branch of this State. The branch shares the variables and the internal
+	 * links of this State, except for the variable at the given path, which is local to the branch and
+	 * starts undefined.
+	 *
+	 * @param localVariable the path of the variable that is local to the branch
+	 * @return the State of the branch
+	 */
+	public State branch( VariablePath localVariable ) {
+		return new State( localVariable.createBranchRoot( root ), linksMap );
 	}
 
 	@Override
@@ -79,6 +108,57 @@ public final class State implements Cloneable {
 		return root;
 	}
 
+	/**
+	 * Measures the heap retained by the variables of this State (see {@link HeapSize}).
+	 *
+	 * @return the estimated number of bytes retained by this State
+	 */
+	public long measureRetainedBytes() {
+		unmeasuredBytes.set( 0L );
+		final long ret = HeapSize.of( root );
+		retainedBytes = ret;
+		return ret;
+	}
+
+	/**
+	 * Returns the heap retained by the variables of this State when it was last measured.
+	 *
+	 * @return the estimated number of bytes retained by this State at its last measure
+	 */
+	public long retainedBytes() {
+		return retainedBytes;
+	}
+
+	/**
+	 * Records that about the given number of bytes has been added to this State, without checking any
+	 * limit.
+	 *
+	 * @param bytes the estimated number of bytes added
+	 */
+	public void charge( long bytes ) {
+		unmeasuredBytes.addAndGet( bytes );
+	}
+
+	/**
+	 * Records that about the given number of bytes has been added to this State, and checks that the
+	 * State does not retain more than limit bytes. The State is measured again only once the bytes
+	 * charged since its last measure could exceed the limit, or a sixteenth of it, whichever is larger.
+	 *
+	 * @param bytes the estimated number of bytes added
+	 * @param limit the maximum number of bytes this State may retain
+	 * @throws FaultException MemoryLimitExceeded if this State retains more than limit bytes
+	 */
+	public void charge( long bytes, long limit )
+		throws FaultException {
+		if( unmeasuredBytes.addAndGet( bytes ) >= Math.max( limit - retainedBytes, limit / 16 ) ) {
+			final long retained = measureRetainedBytes();
+			if( retained > limit ) {
+				throw new FaultException( Constants.MEMORY_LIMIT_EXCEEDED_FAULT_NAME,
+					"The session retains about " + retained + " bytes, more than its limit of " + limit + " bytes" );
+			}
+		}
+	}
+
 	public void putAlias( VariablePath p, Value l ) {
 		valueLoopDetectionMap.put( p, l );
 	}
@@ -104,9 +184,13 @@ public final class State implements Cloneable {
 	}
 
 	private static class LoopDetectionMap< V > {
-		private final Map< VariablePath, Set< V > > m = new ConcurrentHashMap<>();
+		// Created at the first alias, since most states never have one
+		private Map< VariablePath, Set< V > > m = null;
 
 		public synchronized void put( VariablePath p, V v ) {
+			if( m == null ) {
+				m = new HashMap<>();
+			}
 			m.compute( p, ( path, set ) -> {
 				if( set == null ) {
 					Set< V > s = new HashSet<>();
@@ -120,10 +204,13 @@ public final class State implements Cloneable {
 		}
 
 		public synchronized boolean contains( VariablePath p, V v ) {
-			return m.containsKey( p ) && m.get( p ).contains( v );
+			return m != null && m.containsKey( p ) && m.get( p ).contains( v );
 		}
 
 		public synchronized void remove( VariablePath p, V v ) {
+			if( m == null ) {
+				return;
+			}
 			m.computeIfPresent( p, ( path, set ) -> {
 				set.remove( v );
 				return set.isEmpty() ? null : set;
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2021 The Jolie Developers
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Support for running Jolie executions on virtual threads, when the Java runtime provides them.
+ *
+ * Virtual threads cannot be subclassed, so they cannot be {@link JolieExecutorThread}s or
+ * {@link jolie.net.CommChannelHandler}s. Threads created by this class carry their
+ * {@link Interpreter} and their current {@link ExecutionThread} in thread-local bindings instead,
+ * which {@link ExecutionThread#currentThread()} and {@link Interpreter#getInstance()} consult when
+ * the current thread is not one of the Jolie thread classes.
+ *
+ * The virtual thread API is accessed reflectively, since the interpreter is compiled for Java 8.
+ */
+public final class VirtualThreads {
+	private static final ThreadLocal< Interpreter > INTERPRETER = new ThreadLocal<>();
+	private static final ThreadLocal< ExecutionThread > EXECUTION_THREAD = new ThreadLocal<>();
+
+	private static final Method OF_VIRTUAL;
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_FACTORY;
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+	private static final boolean SUPPORTED;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method newThreadPerTaskExecutor = null;
+		boolean supported = false;
+		try {
+			ofVirtual = Thread.class.getMethod( "ofVirtual" );
+			final Class< ? > builderClass = Class.forName( "java.lang.Thread$Builder" );
+			builderName = builderClass.getMethod( "name", String.class, long.class );
+			builderFactory = builderClass.getMethod( "factory" );
+			newThreadPerTaskExecutor = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+			// Preview releases expose the methods but refuse to run them
+			builderFactory.invoke( ofVirtual.invoke( null ) );
+			supported = true;
+		} catch( ReflectiveOperationException | LinkageError | UnsupportedOperationException e ) {
+			supported = false;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+		SUPPORTED = supported;
+	}
+
+	private VirtualThreads() {}
+
+	/**
+	 * Returns <code>true</code> if the running Java runtime supports virtual threads.
+	 *
+	 * @return <code>true</code> if virtual threads are available
+	 */
+	public static boolean isSupported() {
+		return SUPPORTED;
+	}
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task. Tasks run by the returned
+	 * executor see <code>interpreter</code> as their {@link Interpreter#getInstance()}.
+	 *
+	 * @param interpreter the interpreter the created threads refer to
+	 * @param name the name prefix for the created threads
+	 * @return an executor backed by virtual threads
+	 * @throws UnsupportedOperationException if virtual threads are not supported
+	 */
+	public static ExecutorService newThreadPerTaskExecutor( Interpreter interpreter, String name ) {
+		try {
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke( null,
+				newThreadFactory( interpreter, name ) );
+		} catch( IllegalAccessException | InvocationTargetException e ) {
+			throw new UnsupportedOperationException( e );
+		}
+	}
+
+	/**
+	 * Creates a factory of virtual threads. Threads created by the returned factory see
+	 * <code>interpreter</code> as their {@link Interpreter#getInstance()}.
+	 *
+	 * @param interpreter the interpreter the created threads refer to
+	 * @param name the name prefix for the created threads
+	 * @return a factory of virtual threads
+	 * @throws UnsupportedOperationException if virtual threads are not supported
+	 */
+	public static ThreadFactory newThreadFactory( Interpreter interpreter, String name ) {
+		if( !SUPPORTED ) {
+			throw new UnsupportedOperationException( "Virtual threads are not supported by this Java runtime" );
+		}
+		try {
+			final Object builder =
+				BUILDER_NAME.invoke( OF_VIRTUAL.invoke( null ), interpreter.programFilename() + "-" + name + "-", 0L );
+			final ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke( builder );
+			return r -> factory.newThread( () -> {
+				INTERPRETER.set( interpreter );
+				try {
+					r.run();
+				} finally {
+					EXECUTION_THREAD.remove();
+					INTERPRETER.remove();
+				}
+			} );
+		} catch( IllegalAccessException | InvocationTargetException e ) {
+			throw new UnsupportedOperationException( e );
+		}
+	}
+
+	/**
+	 * Returns the {@link ExecutionThread} bound to the current thread by
+	 * {@link #setExecutionThread(ExecutionThread)}, or <code>null</code>.
+	 */
+	static ExecutionThread executionThread() {
+		return EXECUTION_THREAD.get();
+	}
+
+	/**
+	 * Binds an {@link ExecutionThread} to the current thread.
+	 *
+	 * @param ethread the execution thread to bind, or <code>null</code> to clear the binding
+	 */
+	static void setExecutionThread( ExecutionThread ethread ) {
+		if( ethread == null ) {
+			EXECUTION_THREAD.remove();
+		} else {
+			EXECUTION_THREAD.set( ethread );
+		}
+	}
+
+	/**
+	 * Returns the {@link Interpreter} the current thread refers to through its bindings, or
+	 * <code>null</code> if the current thread has none.
+	 */
+	static Interpreter interpreter() {
+		final ExecutionThread ethread = EXECUTION_THREAD.get();
+		return ethread == null ? INTERPRETER.get() : ethread.interpreter();
+	}
+}
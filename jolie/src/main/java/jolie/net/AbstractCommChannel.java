@@ -22,13 +22,18 @@
 package jolie.net;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import jolie.ExecutionThread;
 import jolie.Interpreter;
@@ -40,63 +45,111 @@ import jolie.runtime.Value;
 public abstract class AbstractCommChannel extends CommChannel {
 	private static final long RECEIVER_KEEP_ALIVE = 20000; // msecs
 
-	private final Map< Long, CommMessage > pendingResponses = new HashMap<>();
-	private final Map< Long, ResponseContainer > waiters = new HashMap<>();
+	private final Map< Long, CommMessage > pendingResponses = new ConcurrentHashMap<>();
+	private final Map< Long, CompletableFuture< CommMessage > > waiters = new ConcurrentHashMap<>();
 	private final List< CommMessage > pendingGenericResponses = new LinkedList<>();
+	/*
+	 * Ids of the requests that stopped waiting for their responses (e.g., because they timed out), so
+	 * that their responses are discarded instead of being kept in pendingResponses for good. Guarded by
+	 * responseRecvLock.
+	 */
+	private final Set< Long > abandonedRequests = new HashSet<>();
 	private ResponseReceiver responseReceiver = null;
-	private final Object responseRecvMutex = new Object();
+	/*
+	 * Guards the pairing of responses with waiters and the lifecycle of the response receiver. It is
+	 * never held while reading from the channel, so registering a waiter never blocks on I/O.
+	 */
+	private final ReentrantLock responseRecvLock = new ReentrantLock();
+	private final Condition responseRecvCondition = responseRecvLock.newCondition();
+	private volatile boolean multiplexed = false;
 
-	private static class ResponseContainer {
-		private ResponseContainer() {}
+	/**
+	 * Makes this channel shared by many sessions, so that requests can be sent through it while
+	 * responses for other requests are awaited. Releasing a multiplexed channel does nothing, and a
+	 * failure in receiving closes it.
+	 */
+	void setMultiplexed() {
+		multiplexed = true;
+	}
+
+	/**
+	 * Returns <code>true</code> if this channel is shared by many sessions.
+	 *
+	 * @return <code>true</code> if this channel is multiplexed
+	 * @see #setMultiplexed()
+	 */
+	boolean isMultiplexed() {
+		return multiplexed;
+	}
 
-		private CommMessage response = null;
+	/**
+	 * Returns <code>true</code> if some requests sent through this channel are still waiting for their
+	 * responses.
+	 *
+	 * @return <code>true</code> if there are pending requests
+	 */
+	boolean hasPendingRequests() {
+		return !waiters.isEmpty();
 	}
 
+	/**
+	 * Returns a future for the response to the specified request. The future is completed by the
+	 * response receiver of this channel when the response arrives, so no thread waits for it on behalf
+	 * of the caller. Cancelling the future, or completing it exceptionally, stops waiting for the
+	 * response: if it arrives later, it is discarded.
+	 *
+	 * @param request the request message for which we want to receive a response
+	 * @return a future for the response to the specified request
+	 * @throws IOException in case of some communication error
+	 */
 	@Override
 	public Future< CommMessage > recvResponseFor( CommMessage request )
 		throws IOException {
 		final ExecutionThread ethread = ExecutionThread.currentThread();
-		return CompletableFuture.supplyAsync( () -> {
-			CommMessage response;
-			ResponseContainer monitor = null;
-			synchronized( responseRecvMutex ) {
-				response = pendingResponses.remove( request.id() );
-				if( response == null ) {
-					if( pendingGenericResponses.isEmpty() ) {
-						assert (waiters.containsKey( request.id() ) == false);
-						monitor = new ResponseContainer();
-						waiters.put( request.id(), monitor );
-						// responseRecvMutex.notify();
-					} else {
-						response = pendingGenericResponses.remove( 0 );
-					}
-				}
-			}
+		final CompletableFuture< CommMessage > waiter = new CompletableFuture<>();
+		CommMessage response;
+		responseRecvLock.lock();
+		try {
+			response = pendingResponses.remove( request.id() );
 			if( response == null ) {
-				synchronized( responseRecvMutex ) {
+				if( pendingGenericResponses.isEmpty() ) {
+					assert (waiters.containsKey( request.id() ) == false);
+					waiters.put( request.id(), waiter );
 					if( responseReceiver == null ) {
 						responseReceiver = new ResponseReceiver( this, ethread );
 						ethread.interpreter().commCore().startCommChannelHandler( responseReceiver );
 					} else {
 						responseReceiver.wakeUp();
 					}
+				} else {
+					response = pendingGenericResponses.remove( 0 );
 				}
+			}
+		} finally {
+			responseRecvLock.unlock();
+		}
 
-				if( monitor != null ) {
-					synchronized( monitor ) {
-						if( monitor.response == null ) {
-							try {
-								monitor.wait();
-							} catch( InterruptedException e ) {
-								ethread.interpreter().logSevere( e );
-							}
-						}
-						response = monitor.response;
-					}
+		if( response != null ) {
+			waiter.complete( response );
+		} else {
+			waiter.whenComplete( ( r, t ) -> {
+				if( t != null ) {
+					abandon( request.id(), waiter );
 				}
+			} );
+		}
+		return waiter;
+	}
+
+	private void abandon( long id, CompletableFuture< CommMessage > waiter ) {
+		responseRecvLock.lock();
+		try {
+			if( waiters.remove( id, waiter ) ) {
+				abandonedRequests.add( id );
 			}
-			return response;
-		}, Interpreter.getInstance().commCore().executor() );
+		} finally {
+			responseRecvLock.unlock();
+		}
 	}
 
 	private static class ResponseReceiver implements Runnable {
@@ -106,7 +159,8 @@ public abstract class AbstractCommChannel extends CommChannel {
 		private TimeoutHandler timeoutHandler;
 
 		private void timeout() {
-			synchronized( parent.responseRecvMutex ) {
+			parent.responseRecvLock.lock();
+			try {
 				if( keepRun == false ) {
 					if( parent.waiters.isEmpty() ) {
 						timeoutHandler = null;
@@ -114,8 +168,10 @@ public abstract class AbstractCommChannel extends CommChannel {
 					} else {
 						keepRun = true;
 					}
-					parent.responseRecvMutex.notify();
+					parent.responseRecvCondition.signal();
 				}
+			} finally {
+				parent.responseRecvLock.unlock();
 			}
 		}
 
@@ -125,7 +181,7 @@ public abstract class AbstractCommChannel extends CommChannel {
 				timeoutHandler.cancel();
 			}
 			keepRun = true;
-			parent.responseRecvMutex.notify();
+			parent.responseRecvCondition.signal();
 		}
 
 		private void sleep() {
@@ -139,7 +195,16 @@ public abstract class AbstractCommChannel extends CommChannel {
 			ethread.interpreter().addTimeoutHandler( timeoutHandler );
 			try {
 				keepRun = false;
-				parent.responseRecvMutex.wait();
+				// The timeout handler may never fire if the interpreter is exiting, so do not wait longer
+				if( !parent.responseRecvCondition.await( RECEIVER_KEEP_ALIVE, TimeUnit.MILLISECONDS ) && !keepRun ) {
+					timeoutHandler.cancel();
+					if( parent.waiters.isEmpty() ) {
+						timeoutHandler = null;
+						parent.responseReceiver = null;
+					} else {
+						keepRun = true;
+					}
+				}
 			} catch( InterruptedException e ) {
 				Interpreter.getInstance().logSevere( e );
 			}
@@ -153,52 +218,41 @@ public abstract class AbstractCommChannel extends CommChannel {
 		}
 
 		private void handleGenericMessage( CommMessage response ) {
-			ResponseContainer monitor;
 			if( parent.waiters.isEmpty() ) {
 				parent.pendingGenericResponses.add( response );
 			} else {
-				Entry< Long, ResponseContainer > entry =
+				Entry< Long, CompletableFuture< CommMessage > > entry =
 					parent.waiters.entrySet().iterator().next();
-				monitor = entry.getValue();
 				parent.waiters.remove( entry.getKey() );
-				synchronized( monitor ) {
-					monitor.response = new CommMessage(
-						entry.getKey(),
-						response.operationName(),
-						response.resourcePath(),
-						response.value(),
-						response.fault() );
-					monitor.notify();
-				}
+				entry.getValue().complete( new CommMessage(
+					entry.getKey(),
+					response.operationName(),
+					response.resourcePath(),
+					response.value(),
+					response.fault() ) );
 			}
 		}
 
 		private void handleMessage( CommMessage response ) {
-			ResponseContainer monitor;
-			if( (monitor = parent.waiters.remove( response.id() )) == null ) {
-				parent.pendingResponses.put( response.id(), response );
+			CompletableFuture< CommMessage > waiter;
+			if( (waiter = parent.waiters.remove( response.id() )) != null ) {
+				waiter.complete( response );
+			} else if( parent.abandonedRequests.remove( response.id() ) ) {
+				ethread.interpreter().commCore().discardResponse( response );
 			} else {
-				synchronized( monitor ) {
-					monitor.response = response;
-					monitor.notify();
-				}
+				parent.pendingResponses.put( response.id(), response );
 			}
 		}
 
 		private void throwIOExceptionFault( IOException e ) {
 			if( parent.waiters.isEmpty() == false ) {
-				ResponseContainer monitor;
-				for( Entry< Long, ResponseContainer > entry : parent.waiters.entrySet() ) {
-					monitor = entry.getValue();
-					synchronized( monitor ) {
-						monitor.response = new CommMessage(
-							entry.getKey(),
-							"",
-							Constants.ROOT_RESOURCE_PATH,
-							Value.create(),
-							new FaultException( "IOException", e ) );
-						monitor.notify();
-					}
+				for( Entry< Long, CompletableFuture< CommMessage > > entry : parent.waiters.entrySet() ) {
+					entry.getValue().complete( new CommMessage(
+						entry.getKey(),
+						"",
+						Constants.ROOT_RESOURCE_PATH,
+						Value.create(),
+						new FaultException( "IOException", e ) ) );
 				}
 				parent.waiters.clear();
 			}
@@ -210,30 +264,54 @@ public abstract class AbstractCommChannel extends CommChannel {
 			 * Warning: the following line implies that this whole thing is safe iff the CommChannel is used
 			 * only for outputs, otherwise we are messing with correlation set checking.
 			 */
-			CommChannelHandler.currentThread().setExecutionThread( ethread ); // TODO: this is hacky..
+			ExecutionThread.setCurrentThread( ethread ); // TODO: this is hacky..
 
 			CommMessage response;
 			while( keepRun ) {
-				synchronized( parent.responseRecvMutex ) {
+				try {
+					/*
+					 * Shared channels are read without the channel lock, since other sessions keep sending requests
+					 * through them while we wait for responses.
+					 */
+					response = parent.multiplexed ? parent.recvImpl() : parent.recv();
+				} catch( IOException e ) {
+					parent.responseRecvLock.lock();
 					try {
-						response = parent.recv();
-						if( response != null ) {
-							if( response.hasGenericId() ) {
-								handleGenericMessage( response );
-							} else {
-								handleMessage( response );
-							}
-						}
-						if( parent.waiters.isEmpty() ) {
-							sleep();
-						}
-					} catch( IOException e ) {
 						throwIOExceptionFault( e );
 						keepRun = false;
 						parent.responseReceiver = null;
+					} finally {
+						parent.responseRecvLock.unlock();
+					}
+					if( parent.multiplexed ) {
+						try {
+							parent.close();
+						} catch( IOException ioe ) {
+							ethread.interpreter().logFine( ioe );
+						}
 					}
+					return;
+				}
+				parent.responseRecvLock.lock();
+				try {
+					handleResponse( response );
+				} finally {
+					parent.responseRecvLock.unlock();
+				}
+			}
+		}
+
+		private void handleResponse( CommMessage response ) {
+			if( response != null ) {
+				if( response.hasGenericId() ) {
+					handleGenericMessage( response );
+				} else {
+					handleMessage( response );
 				}
 			}
+			if( parent.waiters.isEmpty() ) {
+				sleep();
+			}
 		}
 	}
 }
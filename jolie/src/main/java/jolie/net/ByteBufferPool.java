@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct byte buffers of fixed size, shared by all the channels of the JVM.
+ *
+ * Direct buffers are expensive to allocate and are freed only by the garbage collector, so channels
+ * borrow them for the duration of an I/O operation and give them back right after. Reading or
+ * writing a heap buffer from a socket would make the JDK allocate a temporary direct buffer as
+ * large as the data, which is what this pool avoids for large payloads.
+ */
+public class ByteBufferPool {
+	public static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 256;
+
+	private static final ByteBufferPool INSTANCE = new ByteBufferPool();
+
+	private final Queue< ByteBuffer > buffers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooled = new AtomicInteger( 0 );
+
+	private ByteBufferPool() {}
+
+	public static ByteBufferPool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Takes a cleared buffer of {@link #BUFFER_SIZE} bytes from the pool, allocating it if the pool is
+	 * empty.
+	 *
+	 * @return a cleared direct buffer
+	 */
+	public ByteBuffer acquire() {
+		final ByteBuffer buffer = buffers.poll();
+		if( buffer == null ) {
+			return ByteBuffer.allocateDirect( BUFFER_SIZE );
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Gives a buffer taken with {@link #acquire()} back to the pool. The buffer must not be used after
+	 * calling this method.
+	 *
+	 * @param buffer the buffer to give back
+	 */
+	public void release( ByteBuffer buffer ) {
+		if( pooled.incrementAndGet() <= MAX_POOLED_BUFFERS ) {
+			buffers.add( buffer );
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+}
@@ -21,108 +21,288 @@ package jolie.net;
 
 import jolie.Interpreter;
 import jolie.runtime.TimeoutHandler;
+import jolie.util.ExceptionalCallable;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * A pool of persistent channels, indexed by location and protocol.
+ *
+ * A channel is in the pool only while it is idle: {@link #getPersistentChannel(URI, String)} takes
+ * it out of the pool and {@link #putPersistentChannel(URI, String, CommChannel, Interpreter)} puts
+ * it back when its user releases it. Channels are validated before being handed out, and idle
+ * channels are closed when they are not used for {@link Interpreter#persistentConnectionTimeout()}
+ * milliseconds. When the pool is full, the least recently used idle channel is closed to make room.
+ *
+ * New channels are opened through {@link #openChannel(URI, String, long, ExceptionalCallable)},
+ * which can cap the number of channels open at the same time towards a location and protocol, idle
+ * ones included: when the cap is reached, the caller waits for one of them to be closed or to
+ * become idle.
+ *
+ * The pool is guarded by a lock that is never held while doing I/O, e.g., validating or closing a
+ * channel, and callers waiting for a location wait on a condition of that location only.
+ */
 public class ChannelCache {
-	// Location URI -> Protocol name -> Persistent CommChannel object
-	private final Map< URI, Map< String, CommChannel > > persistentChannels = new HashMap<>();
+	public static final int DEFAULT_MAX_IDLE_PER_LOCATION = 8;
+	public static final int DEFAULT_MAX_IDLE = 64;
+	// How long to wait before retrying when the only idle channels are still being released
+	private static final long BUSY_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos( 5L );
+
+	static class Key {
+		private final URI location;
+		private final String protocol;
+
+		Key( URI location, String protocol ) {
+			this.location = location;
+			this.protocol = protocol;
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			if( this == obj ) {
+				return true;
+			}
+			if( !(obj instanceof Key) ) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return location.equals( other.location ) && protocol.equals( other.protocol );
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash( location, protocol );
+		}
+	}
+
+	// The channels of a location and protocol, guarded by the lock of the pool
+	private static class Location {
+		// Idle channels, most recently used first
+		private final Deque< CommChannel > idle = new ArrayDeque<>();
+		// Number of open channels, idle or not
+		private int open = 0;
+		private int waiting = 0;
+		// Signalled when a channel becomes idle or is closed
+		private final Condition changed;
+
+		private Location( Condition changed ) {
+			this.changed = changed;
+		}
 
-	private void removePersistentChannel( URI location, String protocol, Map< String, CommChannel > protocolChannels ) {
-		protocolChannels.remove( protocol );
-		if( protocolChannels.isEmpty() ) {
-			persistentChannels.remove( location );
+		private boolean isUnused() {
+			return idle.isEmpty() && open == 0 && waiting == 0;
 		}
 	}
 
-	private void removePersistentChannel( URI location, String protocol, CommChannel channel ) {
-		if( persistentChannels.containsKey( location ) ) {
-			if( persistentChannels.get( location ).get( protocol ) == channel ) {
-				removePersistentChannel( location, protocol, persistentChannels.get( location ) );
+	private final int maxIdlePerLocation;
+	private final int maxIdle;
+	private final int maxOpenPerLocation;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Map< Key, Location > locations = new HashMap<>();
+	// Idle channel -> its key, least recently used first
+	private final Map< CommChannel, Key > idleChannels = new LinkedHashMap<>();
+	private int openChannelsCount = 0;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder creations = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder waits = new LongAdder();
+
+	public ChannelCache() {
+		this( DEFAULT_MAX_IDLE_PER_LOCATION, DEFAULT_MAX_IDLE, 0 );
+	}
+
+	/**
+	 * @param maxIdlePerLocation the maximum number of idle channels kept for a location and protocol
+	 * @param maxIdle the maximum number of idle channels kept in total
+	 * @param maxOpenPerLocation the maximum number of channels open at the same time for a location and
+	 *        protocol, or a value that is not positive for no limit
+	 */
+	public ChannelCache( int maxIdlePerLocation, int maxIdle, int maxOpenPerLocation ) {
+		this.maxIdlePerLocation = maxIdlePerLocation;
+		this.maxIdle = maxIdle;
+		this.maxOpenPerLocation = maxOpenPerLocation;
+	}
+
+	// Must be called holding lock
+	private Location location( Key key ) {
+		return locations.computeIfAbsent( key, k -> new Location( lock.newCondition() ) );
+	}
+
+	// Must be called holding lock
+	private void forgetIfUnused( Key key, Location location ) {
+		if( location.isUnused() ) {
+			locations.remove( key );
+		}
+	}
+
+	// Must be called holding lock
+	private void removePersistentChannel( CommChannel channel, Key key ) {
+		idleChannels.remove( channel );
+		final Location location = locations.get( key );
+		if( location != null ) {
+			location.idle.remove( channel );
+			forgetIfUnused( key, location );
+		}
+		cancelTimeoutHandler( channel );
+	}
+
+	private static void cancelTimeoutHandler( CommChannel channel ) {
+		if( channel.timeoutHandler() != null ) {
+			channel.timeoutHandler().cancel();
+			channel.setTimeoutHandler( null );
+		}
+	}
+
+	private static void closeAll( List< CommChannel > channels, Interpreter interpreter ) {
+		for( CommChannel channel : channels ) {
+			try {
+				channel.close();
+			} catch( IOException e ) {
+				if( interpreter != null ) {
+					interpreter.logWarning( e );
+				}
 			}
 		}
 	}
 
+	/**
+	 * Takes an idle channel for the given location and protocol out of the pool.
+	 *
+	 * @param location the location of the channel
+	 * @param protocol the name of the protocol of the channel
+	 * @return an open idle channel, or <code>null</code> if there is none
+	 */
 	public CommChannel getPersistentChannel( URI location, String protocol ) {
-		CommChannel ret = null;
-		synchronized( persistentChannels ) {
-			Map< String, CommChannel > protocolChannels = persistentChannels.get( location );
-			if( protocolChannels != null ) {
-				ret = protocolChannels.get( protocol );
-				if( ret != null ) {
-					if( ret.lock.tryLock() ) {
-						if( ret.isOpen() ) {
-							/*
-							 * We are going to return this channel, but first check if it supports concurrent use. If
-							 * not, then others should not access this until the caller is finished using it.
-							 */
-							// if ( ret.isThreadSafe() == false ) {
-							removePersistentChannel( location, protocol, protocolChannels );
-							// } else {
-							// If we return a channel, make sure it will not timeout!
-							ret.setTimeoutHandler( null );
-							// if ( ret.timeoutHandler() != null ) {
-							// interpreter.removeTimeoutHandler( ret.timeoutHandler() );
-							// ret.setTimeoutHandler( null );
-							// }
-							// }
-							ret.lock.unlock();
-						} else { // Channel is closed
-							removePersistentChannel( location, protocol, protocolChannels );
-							ret.lock.unlock();
-							ret = null;
-						}
-					} else { // Channel is busy
-						removePersistentChannel( location, protocol, protocolChannels );
-						ret = null;
+		final CommChannel ret = takeIdleChannel( new Key( location, protocol ) );
+		if( ret == null ) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return ret;
+	}
+
+	/*
+	 * Takes idle channels out of the pool until one of them is open. Channels are validated, and closed
+	 * if they are not open, without holding the lock of the pool, since both may do I/O.
+	 */
+	private CommChannel takeIdleChannel( Key key ) {
+		CommChannel candidate;
+		while( (candidate = takeIdleCandidate( key )) != null ) {
+			if( candidate.isOpen() ) {
+				return candidate;
+			}
+			closeAll( Collections.singletonList( candidate ), Interpreter.getInstance() );
+		}
+		return null;
+	}
+
+	private CommChannel takeIdleCandidate( Key key ) {
+		lock.lock();
+		try {
+			final Location location = locations.get( key );
+			if( location == null ) {
+				return null;
+			}
+			for( Iterator< CommChannel > it = location.idle.iterator(); it.hasNext(); ) {
+				final CommChannel channel = it.next();
+				// A locked channel is still being released by its previous user, so we leave it in the pool
+				if( channel.lock.tryLock() ) {
+					try {
+						it.remove();
+						idleChannels.remove( channel );
+						cancelTimeoutHandler( channel );
+					} finally {
+						channel.lock.unlock();
 					}
+					forgetIfUnused( key, location );
+					return channel;
 				}
 			}
+			return null;
+		} finally {
+			lock.unlock();
 		}
-
-		return ret;
 	}
 
+	/**
+	 * Puts an idle channel in the pool. If the pool is full, the least recently used idle channels are
+	 * evicted and closed.
+	 *
+	 * @param location the location of the channel
+	 * @param protocol the name of the protocol of the channel
+	 * @param channel the channel
+	 * @param interpreter the interpreter owning the channel
+	 */
 	public void putPersistentChannel( URI location, String protocol, final CommChannel channel,
 		Interpreter interpreter ) {
-		synchronized( persistentChannels ) {
-			Map< String, CommChannel > protocolChannels =
-				persistentChannels.computeIfAbsent( location, k -> new HashMap<>() );
-			// Set the timeout
-			setTimeoutHandler( channel, location, protocol, interpreter );
-			// Put the protocol in the cache (may overwrite another one)
-			protocolChannels.put( protocol, channel );
-			/*
-			 * if ( protocolChannels.size() <= connectionCacheSize && protocolChannels.containsKey( protocol )
-			 * == false ) { // Set the timeout setTimeoutHandler( channel ); // Put the protocol in the cache
-			 * protocolChannels.put( protocol, channel ); } else { try { if ( protocolChannels.get( protocol )
-			 * != channel ) { channel.close(); } else { setTimeoutHandler( channel ); } } catch( IOException e )
-			 * { interpreter.logWarning( e ); } }
-			 */
-		}
-	}
-
-	private void setTimeoutHandler( final CommChannel channel, final URI location, final String protocol,
-		Interpreter interpreter ) {
-		/*
-		 * if ( channel.timeoutHandler() != null ) { interpreter.removeTimeoutHandler(
-		 * channel.timeoutHandler() ); }
-		 */
+		final List< CommChannel > evictedChannels = new ArrayList<>();
+		lock.lock();
+		try {
+			if( idleChannels.containsKey( channel ) ) {
+				return;
+			}
+			final Key key = new Key( location, protocol );
+			final Location l = location( key );
+			l.idle.addFirst( channel );
+			idleChannels.put( channel, key );
+			setTimeoutHandler( channel, key, interpreter );
+			// Someone may be waiting to open a channel for this key: it can reuse this one instead
+			l.changed.signalAll();
+
+			if( l.idle.size() > maxIdlePerLocation ) {
+				final CommChannel evicted = l.idle.peekLast();
+				removePersistentChannel( evicted, key );
+				evictedChannels.add( evicted );
+			}
+			while( idleChannels.size() > maxIdle ) {
+				final Map.Entry< CommChannel, Key > eldest = idleChannels.entrySet().iterator().next();
+				removePersistentChannel( eldest.getKey(), eldest.getValue() );
+				evictedChannels.add( eldest.getKey() );
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		evictions.add( evictedChannels.size() );
+		closeAll( evictedChannels, interpreter );
+	}
 
+	private void setTimeoutHandler( final CommChannel channel, final Key key, final Interpreter interpreter ) {
 		final TimeoutHandler handler = new TimeoutHandler( interpreter.persistentConnectionTimeout() ) {
 			@Override
 			public void onTimeout() {
+				lock.lock();
 				try {
-					synchronized( persistentChannels ) {
-						if( channel.timeoutHandler() == this ) {
-							removePersistentChannel( location, protocol, channel );
-							channel.close();
-							channel.setTimeoutHandler( null );
-						}
+					if( channel.timeoutHandler() != this ) {
+						return;
 					}
+					removePersistentChannel( channel, key );
+				} finally {
+					lock.unlock();
+				}
+				evictions.increment();
+				try {
+					channel.close();
 				} catch( IOException e ) {
 					interpreter.logSevere( e );
 				}
@@ -131,4 +311,219 @@ public class ChannelCache {
 		channel.setTimeoutHandler( handler );
 		interpreter.addTimeoutHandler( handler );
 	}
+
+	/**
+	 * Opens a new channel for the given location and protocol. If the maximum number of open channels
+	 * for them has been reached, waits until one of them is closed, or returns one of them if it
+	 * becomes idle in the meantime.
+	 *
+	 * @param location the location of the channel
+	 * @param protocol the name of the protocol of the channel
+	 * @param timeout how long to wait for the number of open channels to go below the limit, in
+	 *        milliseconds
+	 * @param factory creates the new channel
+	 * @return the new channel, or an idle channel for the same location and protocol
+	 * @throws IOException if the channel could not be created or the timeout expired
+	 */
+	public CommChannel openChannel( URI location, String protocol, long timeout,
+		ExceptionalCallable< CommChannel, IOException > factory )
+		throws IOException {
+		final Key key = new Key( location, protocol );
+		if( maxOpenPerLocation > 0 ) {
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeout );
+			boolean retry = false;
+			while( !reserve( key, deadline, retry ) ) {
+				final CommChannel idle = takeIdleChannel( key );
+				if( idle != null ) {
+					hits.increment();
+					return idle;
+				}
+				retry = true;
+			}
+		}
+
+		final CommChannel channel;
+		try {
+			channel = factory.call();
+		} catch( IOException | RuntimeException e ) {
+			if( maxOpenPerLocation > 0 ) {
+				channelClosed( key );
+			}
+			throw e;
+		}
+		creations.increment();
+		if( maxOpenPerLocation > 0 ) {
+			if( !channel.listenForClose( () -> channelClosed( key ) ) ) {
+				channelClosed( key );
+			}
+		}
+		return channel;
+	}
+
+	/*
+	 * Takes a slot for a new channel. Returns false if the limit has been reached but there are idle
+	 * channels for the key, which the caller should try to reuse. If the caller could not take any of
+	 * them in its previous attempt (retry), they are still being released and we give them some time.
+	 */
+	private boolean reserve( Key key, long deadline, boolean retry )
+		throws IOException {
+		lock.lock();
+		try {
+			final Location location = location( key );
+			boolean counted = retry;
+			boolean backOff = retry;
+			while( location.open >= maxOpenPerLocation ) {
+				if( !counted ) {
+					counted = true;
+					waits.increment();
+				}
+				final boolean hasIdle = !location.idle.isEmpty();
+				if( hasIdle && !backOff ) {
+					return false;
+				}
+				final long remaining = deadline - System.nanoTime();
+				if( remaining <= 0 ) {
+					forgetIfUnused( key, location );
+					throw new IOException( "Too many open connections to " + key.location
+						+ " (the limit is " + maxOpenPerLocation + ")" );
+				}
+				final long wait = hasIdle ? Math.min( remaining, BUSY_RETRY_NANOS ) : remaining;
+				location.waiting++;
+				try {
+					location.changed.await( wait, TimeUnit.NANOSECONDS );
+					backOff = false;
+				} catch( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException( "Interrupted while waiting for a connection to "
+						+ key.location );
+				} finally {
+					location.waiting--;
+				}
+			}
+			location.open++;
+			openChannelsCount++;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void channelClosed( Key key ) {
+		lock.lock();
+		try {
+			final Location location = locations.get( key );
+			if( location != null ) {
+				location.open--;
+				location.changed.signalAll();
+				forgetIfUnused( key, location );
+			}
+			openChannelsCount--;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of requests served with an idle channel from the pool.
+	 *
+	 * @return the number of pool hits
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests that found no usable idle channel in the pool.
+	 *
+	 * @return the number of pool misses
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of channels opened by the owner of this pool.
+	 *
+	 * @return the number of created channels
+	 */
+	public long creations() {
+		return creations.sum();
+	}
+
+	/**
+	 * Returns the number of times opening a channel had to wait because the maximum number of open
+	 * channels for its location had been reached.
+	 *
+	 * @return the number of waits for an open channel slot
+	 */
+	public long waits() {
+		return waits.sum();
+	}
+
+	/**
+	 * Returns the number of idle channels closed because they timed out or the pool was full.
+	 *
+	 * @return the number of evicted channels
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the number of idle channels currently in the pool.
+	 *
+	 * @return the number of idle channels
+	 */
+	public int idleChannels() {
+		lock.lock();
+		try {
+			return idleChannels.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of channels opened through
+	 * {@link #openChannel(URI, String, long, ExceptionalCallable)} that are still open, idle or not.
+	 * Channels are tracked only when the number of open channels per location is limited, otherwise
+	 * this is always 0.
+	 *
+	 * @return the number of open channels
+	 */
+	public int openChannels() {
+		lock.lock();
+		try {
+			return openChannelsCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of idle channels kept in the pool.
+	 *
+	 * @return the maximum number of idle channels
+	 */
+	public int maxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * Returns the maximum number of idle channels kept in the pool for a location and protocol.
+	 *
+	 * @return the maximum number of idle channels per location
+	 */
+	public int maxIdlePerLocation() {
+		return maxIdlePerLocation;
+	}
+
+	/**
+	 * Returns the maximum number of channels open at the same time for a location and protocol.
+	 *
+	 * @return the maximum number of open channels per location, not positive if unlimited
+	 */
+	public int maxOpenPerLocation() {
+		return maxOpenPerLocation;
+	}
 }
@@ -24,6 +24,7 @@ package jolie.net;
 
 import java.io.IOException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 import jolie.net.ports.InputPort;
@@ -54,11 +55,13 @@ public abstract class CommChannel {
 	private boolean toBeClosed = true;
 	private InputPort inputPort = null;
 	private OutputPort outputPort = null;
-	private boolean isOpen = true;
+	private volatile boolean isOpen = true;
 
 	private long redirectionMessageId = 0L;
 
 	private TimeoutHandler timeoutHandler = null;
+	private volatile CommCore readinessListener = null;
+	private final AtomicReference< Runnable > closeListener = new AtomicReference<>();
 
 	protected void setTimeoutHandler( TimeoutHandler timeoutHandler ) {
 		this.timeoutHandler = timeoutHandler;
@@ -162,6 +165,38 @@ public abstract class CommChannel {
 		return true;
 	}
 
+	/**
+	 * Returns <code>true</code> if this channel has been closed. Unlike {@link #isOpen()}, this does
+	 * not check the underlying medium, so it does not interfere with concurrent receptions.
+	 *
+	 * @return <code>true</code> if this channel has been closed
+	 */
+	final boolean isClosed() {
+		return !isOpen;
+	}
+
+	/**
+	 * Sets the <code>CommCore</code> waiting for this channel to become ready.
+	 *
+	 * @param commCore the <code>CommCore</code> to notify
+	 * @see #signalReady()
+	 */
+	final void setReadinessListener( CommCore commCore ) {
+		this.readinessListener = commCore;
+	}
+
+	/**
+	 * Notifies the <code>CommCore</code> this channel is registered with that the channel is ready for
+	 * receiving an input message. Channels implementing {@link PollableCommChannel} that call this
+	 * method should declare it with {@link PollableCommChannel#signalsReadiness()}.
+	 */
+	protected final void signalReady() {
+		final CommCore commCore = readinessListener;
+		if( commCore != null ) {
+			commCore.channelReady( this );
+		}
+	}
+
 	protected boolean isThreadSafe() {
 		return false;
 	}
@@ -269,7 +304,26 @@ public abstract class CommChannel {
 	protected final void close()
 		throws IOException {
 		isOpen = false;
-		closeImpl();
+		try {
+			closeImpl();
+		} finally {
+			final Runnable listener = closeListener.getAndSet( null );
+			if( listener != null ) {
+				listener.run();
+			}
+		}
+	}
+
+	/**
+	 * Sets a listener to be run once, the first time this channel is closed.
+	 *
+	 * @param listener the listener
+	 * @return <code>false</code> if this channel is already closed, in which case the listener is not
+	 *         set
+	 */
+	final boolean listenForClose( Runnable listener ) {
+		closeListener.set( listener );
+		return isOpen || !closeListener.compareAndSet( listener, null );
 	}
 
 	/**
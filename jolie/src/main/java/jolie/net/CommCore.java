@@ -22,9 +22,11 @@
 
 package jolie.net;
 
+import jolie.ExecutionThread;
 import jolie.Interpreter;
 import jolie.JolieThreadPoolExecutor;
 import jolie.NativeJolieThread;
+import jolie.VirtualThreads;
 import jolie.lang.Constants;
 import jolie.net.ext.CommChannelFactory;
 import jolie.net.ext.CommListenerFactory;
@@ -40,17 +42,28 @@ import jolie.runtime.typing.TypeCheckingException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Logger;
@@ -67,11 +80,17 @@ import java.util.regex.Pattern;
 public class CommCore {
 	private final Map< String, CommListener > listenersMap = new HashMap<>();
 	private final static int CHANNEL_HANDLER_TIMEOUT = 5;
+	private final static int SELECTOR_READ_BUFFER_SIZE = 8192;
+	private final static int MAX_ACCEPTS_PER_SELECTION = 64;
 	private final ThreadGroup threadGroup;
 
 	private static final Logger LOGGER = Logger.getLogger( "JOLIE" );
 
 	private final int connectionsLimit;
+	private final int connectionsQueueSize;
+	private final AtomicInteger activeChannelHandlers = new AtomicInteger( 0 );
+	private final AtomicLong rejectedChannelHandlers = new AtomicLong( 0L );
+	private final AtomicLong discardedResponses = new AtomicLong( 0L );
 	private final Interpreter interpreter;
 	private final ReadWriteLock channelHandlersLock = new ReentrantReadWriteLock( true );
 	private SelectorThread[] selectorThreads;
@@ -93,10 +112,28 @@ public class CommCore {
 	 *        parallel.
 	 * @throws java.io.IOException
 	 */
-	public CommCore( Interpreter interpreter, int connectionsLimit /* , int connectionsCacheSize */ )
+	public CommCore( Interpreter interpreter, int connectionsLimit )
+		throws IOException {
+		this( interpreter, connectionsLimit, -1 );
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param interpreter the Interpreter to refer to for this CommCore operations
+	 * @param connectionsLimit if more than zero, specifies an upper bound to the connections handled in
+	 *        parallel.
+	 * @param connectionsQueueSize if the connections limit is in use and this is not negative,
+	 *        specifies an upper bound to the connections waiting to be handled. Connections exceeding
+	 *        it are answered with a {@link Constants#SERVICE_UNAVAILABLE_FAULT_NAME} fault.
+	 * @throws java.io.IOException
+	 */
+	public CommCore( Interpreter interpreter, int connectionsLimit,
+		int connectionsQueueSize /* , int connectionsCacheSize */ )
 		throws IOException {
 		this.interpreter = interpreter;
 		this.connectionsLimit = connectionsLimit;
+		this.connectionsQueueSize = connectionsQueueSize;
 		// this.connectionCacheSize = connectionsCacheSize;
 		this.threadGroup = new ThreadGroup( "CommCore-" + interpreter.hashCode() );
 		/*
@@ -104,7 +141,39 @@ public class CommCore {
 		 * new CommThreadFactory() ); } else { executorService = Executors.newCachedThreadPool( new
 		 * CommThreadFactory() ); }
 		 */
-		executorService = new JolieThreadPoolExecutor( new CommThreadFactory() );
+		if( interpreter.usesVirtualThreads() ) {
+			executorService = VirtualThreads.newThreadPerTaskExecutor( interpreter, "CommCore" );
+		} else {
+			executorService = new JolieThreadPoolExecutor( new CommThreadFactory() );
+		}
+		if( connectionsLimit > 0 ) {
+			final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+				connectionsLimit,
+				connectionsLimit,
+				60L,
+				TimeUnit.SECONDS,
+				createChannelHandlersQueue( connectionsQueueSize ),
+				interpreter.usesVirtualThreads()
+					? VirtualThreads.newThreadFactory( interpreter, "CommChannelHandler" )
+					: new CommThreadFactory(),
+				( r, executor ) -> ((CommChannelHandlerRunnable) r).reject( executor.isShutdown() ) );
+			pool.allowCoreThreadTimeOut( true );
+			channelHandlersPool = pool;
+			final ThreadPoolExecutor rejections = new ThreadPoolExecutor(
+				REJECTION_THREADS,
+				REJECTION_THREADS,
+				60L,
+				TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>( REJECTIONS_QUEUE_SIZE ),
+				interpreter.usesVirtualThreads()
+					? VirtualThreads.newThreadFactory( interpreter, "CommChannelRejection" )
+					: new CommThreadFactory() );
+			rejections.allowCoreThreadTimeOut( true );
+			rejectionsPool = rejections;
+		} else {
+			channelHandlersPool = null;
+			rejectionsPool = null;
+		}
 
 		// TODO make socket an extension, too?
 		CommListenerFactory listenerFactory = new SocketListenerFactory( this );
@@ -117,6 +186,16 @@ public class CommCore {
 		return executorService;
 	}
 
+	private static BlockingQueue< Runnable > createChannelHandlersQueue( int size ) {
+		if( size < 0 ) {
+			return new LinkedBlockingQueue<>();
+		} else if( size == 0 ) {
+			return new SynchronousQueue<>();
+		} else {
+			return new ArrayBlockingQueue<>( size );
+		}
+	}
+
 	private SelectorThread[] selectorThreads()
 		throws IOException {
 		if( selectorThreads == null ) {
@@ -149,6 +228,61 @@ public class CommCore {
 		return connectionsLimit;
 	}
 
+	/**
+	 * Returns the maximum number of connections that can wait for a free handler when the connections
+	 * limit is reached. A negative value means that the queue is unbounded.
+	 * 
+	 * @return the connectionsQueueSize of this CommCore
+	 */
+	public int connectionsQueueSize() {
+		return connectionsQueueSize;
+	}
+
+	/**
+	 * Returns the number of connections that are currently being handled.
+	 * 
+	 * @return the number of connections that are currently being handled
+	 */
+	public int activeConnections() {
+		return activeChannelHandlers.get();
+	}
+
+	/**
+	 * Returns the number of connections waiting for a free handler because the connections limit has
+	 * been reached.
+	 * 
+	 * @return the number of connections waiting to be handled
+	 */
+	public int queuedConnections() {
+		return channelHandlersPool == null ? 0 : channelHandlersPool.getQueue().size();
+	}
+
+	/**
+	 * Returns the number of connections that have been answered with a
+	 * {@link Constants#SERVICE_UNAVAILABLE_FAULT_NAME} fault because both the connections limit and the
+	 * connections queue were full.
+	 * 
+	 * @return the number of rejected connections
+	 */
+	public long rejectedConnections() {
+		return rejectedChannelHandlers.get();
+	}
+
+	/**
+	 * Returns the number of responses that have been discarded because they arrived after their
+	 * requests stopped waiting for them, e.g., because they timed out.
+	 *
+	 * @return the number of discarded responses
+	 */
+	public long discardedResponses() {
+		return discardedResponses.get();
+	}
+
+	void discardResponse( CommMessage response ) {
+		discardedResponses.incrementAndGet();
+		interpreter.logFine( "Discarded the response to request " + response.id() + ", which stopped waiting for it" );
+	}
+
 	public ThreadGroup threadGroup() {
 		return threadGroup;
 	}
@@ -295,6 +429,11 @@ public class CommCore {
 	}
 
 	private final ExecutorService executorService;
+	private final ThreadPoolExecutor channelHandlersPool;
+	// Answers the rejected connections, so that the threads scheduling the handlers never block on them
+	private final ThreadPoolExecutor rejectionsPool;
+	private static final int REJECTION_THREADS = 2;
+	private static final int REJECTIONS_QUEUE_SIZE = 256;
 
 	private final static class CommThreadFactory implements ThreadFactory {
 		@Override
@@ -460,10 +599,68 @@ public class CommCore {
 			}
 		}
 
+		/**
+		 * Schedules the answer to the message waiting on the channel, without starting a new handler. This
+		 * runs in the thread that scheduled the receiving, so it does not read or write the channel: if too
+		 * many rejections are pending already, the channel is closed without an answer.
+		 */
+		private void reject( boolean shutdown ) {
+			if( !shutdown ) {
+				rejectedChannelHandlers.incrementAndGet();
+				try {
+					rejectionsPool.execute( this::answerRejected );
+					return;
+				} catch( RejectedExecutionException e ) {
+					interpreter.logFine( "Connections limit reached, closing a connection without answering it" );
+				}
+			}
+			try {
+				channel.closeImpl();
+			} catch( IOException e ) {
+				interpreter.logFine( e );
+			}
+		}
+
+		/**
+		 * Answers the message waiting on the channel with a
+		 * {@link Constants#SERVICE_UNAVAILABLE_FAULT_NAME} fault.
+		 */
+		private void answerRejected() {
+			final ExecutionThread previousThread = ExecutionThread.currentThread();
+			ExecutionThread.setCurrentThread( interpreter().initThread().getNewSessionThread() );
+			channel.lock.lock();
+			try {
+				final CommMessage message = channel.recv();
+				if( message != null ) {
+					interpreter.logFine( "Connections limit reached, rejecting a message for operation "
+						+ message.operationName() );
+					try {
+						channel.send( CommMessage.createFaultResponse( message,
+							new FaultException( Constants.SERVICE_UNAVAILABLE_FAULT_NAME,
+								"The service is overloaded, try again later." ) ) );
+					} finally {
+						channel.disposeForInput();
+					}
+				} else {
+					channel.disposeForInput();
+				}
+			} catch( IOException e ) {
+				interpreter.logFine( e );
+				try {
+					channel.closeImpl();
+				} catch( IOException e2 ) {
+					interpreter.logFine( e2 );
+				}
+			} finally {
+				channel.lock.unlock();
+				ExecutionThread.setCurrentThread( previousThread );
+			}
+		}
+
 		@Override
 		public void run() {
-			final CommChannelHandler thread = CommChannelHandler.currentThread();
-			thread.setExecutionThread( interpreter().initThread().getNewSessionThread() );
+			activeChannelHandlers.incrementAndGet();
+			ExecutionThread.setCurrentThread( interpreter().initThread().getNewSessionThread() );
 			channel.lock.lock();
 			channelHandlersLock.readLock().lock();
 			try {
@@ -506,7 +703,8 @@ public class CommCore {
 				if( channel.lock.isHeldByCurrentThread() ) {
 					channel.lock.unlock();
 				}
-				thread.setExecutionThread( null );
+				ExecutionThread.setCurrentThread( null );
+				activeChannelHandlers.decrementAndGet();
 			}
 		}
 	}
@@ -518,7 +716,13 @@ public class CommCore {
 	 * @param port the <code>Port</code> responsible for the message receiving
 	 */
 	public void scheduleReceive( CommChannel channel, InputPort port ) {
-		executorService.execute( new CommChannelHandlerRunnable( channel, port ) );
+		final CommChannelHandlerRunnable handler = new CommChannelHandlerRunnable( channel, port );
+		if( channelHandlersPool == null || channel.redirectionChannel() != null ) {
+			// Responses to redirected requests complete work that has already been admitted
+			executorService.execute( handler );
+		} else {
+			channelHandlersPool.execute( handler );
+		}
 	}
 
 	protected void startCommChannelHandler( Runnable r ) {
@@ -622,9 +826,14 @@ public class CommCore {
 		}
 	}
 
+	// Channels that signal when they become ready, waiting to be scheduled for receiving
+	private final Set< CommChannel > channelsWaitingForReadiness = ConcurrentHashMap.newKeySet();
+
 	/**
 	 * Registers a <code>CommChannel</code> for input polling. The registered channel must implement the
-	 * {@link PollableCommChannel <code>PollableCommChannel</code>} interface.
+	 * {@link PollableCommChannel <code>PollableCommChannel</code>} interface. If the channel signals
+	 * its readiness (see {@link PollableCommChannel#signalsReadiness()}), it is scheduled for receiving
+	 * as soon as it signals; otherwise, it is polled periodically.
 	 * 
 	 * @param channel the channel to register for polling
 	 * @throws java.io.IOException in case the channel could not be registered for polling
@@ -633,7 +842,48 @@ public class CommCore {
 	 */
 	public void registerForPolling( CommChannel channel )
 		throws IOException {
-		pollingThread().register( channel );
+		if( channel instanceof PollableCommChannel && ((PollableCommChannel) channel).signalsReadiness() ) {
+			channel.setReadinessListener( this );
+			channelsWaitingForReadiness.add( channel );
+			// The channel may have become ready before registering
+			if( ((PollableCommChannel) channel).isReady() ) {
+				channelReady( channel );
+			}
+		} else {
+			pollingThread().register( channel );
+		}
+	}
+
+	/**
+	 * Schedules a channel registered for polling for receiving, if it is still waiting to be.
+	 *
+	 * @param channel the channel that became ready
+	 * @see CommChannel#signalReady()
+	 */
+	void channelReady( CommChannel channel ) {
+		if( active && channelsWaitingForReadiness.remove( channel ) ) {
+			scheduleReceive( channel, channel.parentInputPort() );
+		}
+	}
+
+	/**
+	 * Handles the connections accepted by a server channel registered with
+	 * {@link CommCore#registerForAccept(ServerSocketChannel, AcceptHandler)}.
+	 */
+	@FunctionalInterface
+	interface AcceptHandler {
+		void accept( SocketChannel channel )
+			throws IOException;
+	}
+
+	private static class Acceptor {
+		private final ServerSocketChannel channel;
+		private final AcceptHandler handler;
+
+		private Acceptor( ServerSocketChannel channel, AcceptHandler handler ) {
+			this.channel = channel;
+			this.handler = handler;
+		}
 	}
 
 	private class SelectorThread extends NativeJolieThread {
@@ -644,6 +894,9 @@ public class CommCore {
 		private final Selector selector;
 		private final SelectorMutex selectingMutex = new SelectorMutex();
 		private final Deque< Runnable > selectorTasks = new ArrayDeque<>();
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect( SELECTOR_READ_BUFFER_SIZE );
+		// Whether the last run of runKeys found a channel locked by another thread
+		private boolean contended = false;
 
 		public SelectorThread( Interpreter interpreter )
 			throws IOException {
@@ -656,11 +909,26 @@ public class CommCore {
 			boolean keepRun;
 			synchronized( this ) {
 				do {
+					contended = false;
 					for( final SelectionKey key : selectedKeys ) {
-						if( key.isValid() ) {
+						if( key.isValid() && key.attachment() instanceof Acceptor ) {
+							acceptConnections( (Acceptor) key.attachment() );
+						} else if( key.isValid() ) {
 							final SelectableStreamingCommChannel channel =
 								(SelectableStreamingCommChannel) key.attachment();
 							if( channel.lock.tryLock() ) {
+								boolean ready;
+								try {
+									ready = channel.readAvailableInput( readBuffer );
+								} catch( IOException e ) {
+									// The receiving thread will handle the error
+									ready = true;
+								}
+								if( !ready ) {
+									// Keep waiting for the rest of the message
+									channel.lock.unlock();
+									continue;
+								}
 								key.cancel();
 								selectorTasks.add( () -> {
 									try {
@@ -692,15 +960,24 @@ public class CommCore {
 										interpreter.logWarning( e );
 									}
 								} );
+							} else {
+								contended = true;
 							}
 						}
 					}
 					synchronized( selectingMutex ) {
-						if( selector.selectNow() > 0 ) { // Clean up the cancelled keys
+						/*
+						 * The thread holding the lock of a contended channel may be waiting for the monitor of this
+						 * selector thread to unregister it, so the monitor must be released before selecting the
+						 * channel again: the keys are left to the next select in run.
+						 */
+						if( selector.selectNow() > 0 && !contended ) { // Clean up the cancelled keys
 							// If some new channels are selected, run again
 							selectedKeys = selector.selectedKeys().toArray( new SelectionKey[ 0 ] );
+							selector.selectedKeys().clear();
 							keepRun = true;
 						} else {
+							selector.selectedKeys().clear();
 							keepRun = false;
 						}
 					}
@@ -709,6 +986,35 @@ public class CommCore {
 			return selectorTasks;
 		}
 
+		private void acceptConnections( Acceptor acceptor ) {
+			for( int i = 0; i < MAX_ACCEPTS_PER_SELECTION; i++ ) {
+				final SocketChannel socketChannel;
+				try {
+					socketChannel = acceptor.channel.accept();
+				} catch( IOException e ) {
+					interpreter.logWarning( e );
+					return;
+				}
+				if( socketChannel == null ) {
+					return;
+				}
+				// Registering the new channel may involve other selector threads, so it is done outside of
+				// the selection lock
+				selectorTasks.add( () -> {
+					try {
+						acceptor.handler.accept( socketChannel );
+					} catch( IOException e ) {
+						interpreter.logWarning( e );
+						try {
+							socketChannel.close();
+						} catch( IOException e2 ) {
+							interpreter.logWarning( e2 );
+						}
+					}
+				} );
+			}
+		}
+
 		private void runTasks( Deque< Runnable > tasks )
 			throws IOException {
 			Runnable r;
@@ -725,9 +1031,13 @@ public class CommCore {
 					synchronized( selectingMutex ) {
 						selector.select();
 						selectedKeys = selector.selectedKeys().toArray( new SelectionKey[ 0 ] );
+						selector.selectedKeys().clear();
 					}
 					final Deque< Runnable > tasks = runKeys( selectedKeys );
 					runTasks( tasks );
+					if( contended ) {
+						Thread.yield();
+					}
 				} catch( IOException e ) {
 					interpreter.logSevere( e );
 				}
@@ -735,10 +1045,12 @@ public class CommCore {
 
 			synchronized( this ) {
 				for( SelectionKey key : selector.keys() ) {
-					try {
-						((SelectableStreamingCommChannel) key.attachment()).closeImpl();
-					} catch( IOException e ) {
-						interpreter.logWarning( e );
+					if( key.attachment() instanceof SelectableStreamingCommChannel ) {
+						try {
+							((SelectableStreamingCommChannel) key.attachment()).closeImpl();
+						} catch( IOException e ) {
+							interpreter.logWarning( e );
+						}
 					}
 				}
 			}
@@ -746,7 +1058,7 @@ public class CommCore {
 
 		public void register( SelectableStreamingCommChannel channel, int index ) {
 			try {
-				if( channel.inputStream().available() > 0 ) {
+				if( channel.hasBufferedInput() ) {
 					scheduleReceive( channel, channel.parentInputPort() );
 					return;
 				}
@@ -770,6 +1082,18 @@ public class CommCore {
 			}
 		}
 
+		public void registerAcceptor( ServerSocketChannel serverChannel, AcceptHandler handler )
+			throws IOException {
+			synchronized( this ) {
+				selector.wakeup();
+				serverChannel.configureBlocking( false );
+				synchronized( selectingMutex ) {
+					serverChannel.register( selector, SelectionKey.OP_ACCEPT, new Acceptor( serverChannel, handler ) );
+					selector.wakeup();
+				}
+			}
+		}
+
 		public void unregister( SelectableStreamingCommChannel channel )
 			throws IOException {
 			synchronized( this ) {
@@ -815,6 +1139,20 @@ public class CommCore {
 		 */
 	}
 
+	/**
+	 * Registers a server channel for accepting connections on the selector threads. The handler is
+	 * invoked by a selector thread for each accepted connection, so it should not block.
+	 *
+	 * @param serverChannel the server channel to accept connections from
+	 * @param handler the handler of the accepted connections
+	 * @throws IOException in case the channel could not be registered
+	 */
+	void registerForAccept( ServerSocketChannel serverChannel, AcceptHandler handler )
+		throws IOException {
+		final int i = nextSelector.getAndIncrement() % selectorThreads().length;
+		selectorThreads()[ i ].registerAcceptor( serverChannel, handler );
+	}
+
 	/** Shutdowns the communication core, interrupting every communication-related thread. */
 	public synchronized void shutdown( long timeout ) {
 		if( active ) {
@@ -837,12 +1175,29 @@ public class CommCore {
 				channelHandlersLock.writeLock().tryLock( CHANNEL_HANDLER_TIMEOUT, TimeUnit.SECONDS );
 			} catch( InterruptedException e ) {
 			}
+			if( channelHandlersPool != null ) {
+				channelHandlersPool.shutdown();
+				rejectionsPool.shutdown();
+			}
 			executorService.shutdown();
 			try {
+				if( channelHandlersPool != null ) {
+					channelHandlersPool.awaitTermination( interpreter.persistentConnectionTimeout(),
+						TimeUnit.MILLISECONDS );
+				}
 				executorService.awaitTermination( interpreter.persistentConnectionTimeout(), TimeUnit.MILLISECONDS );
 			} catch( InterruptedException e ) {
 			}
 			threadGroup.interrupt();
+
+			channelsWaitingForReadiness.forEach( ( c ) -> {
+				try {
+					c.closeImpl();
+				} catch( IOException e ) {
+					interpreter.logWarning( e );
+				}
+			} );
+			channelsWaitingForReadiness.clear();
 		}
 	}
 
@@ -107,6 +107,7 @@ public class LocalCommChannel extends CommChannel implements PollableCommChannel
 		CompletableFuture f = new CompletableFuture<>();
 		responseWaiters.put( message.id(), f );
 		interpreter.commCore().scheduleReceive( new CoLocalCommChannel( message, f ), listener.inputPort() );
+		signalReady();
 	}
 
 	@Override
@@ -120,6 +121,11 @@ public class LocalCommChannel extends CommChannel implements PollableCommChannel
 		return responseWaiters.isEmpty() == false;
 	}
 
+	@Override
+	public boolean signalsReadiness() {
+		return true;
+	}
+
 	@Override
 	protected void disposeForInputImpl()
 		throws IOException {
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import jolie.Interpreter;
+import jolie.util.ExceptionalCallable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A pool of channels that are shared by many sessions at the same time, indexed by location and
+ * protocol.
+ *
+ * Each location gets a small, fixed number of channels, which are handed out in round-robin order.
+ * Requests are written to a shared channel through a queue and their responses are matched to them
+ * by message id, so a shared channel can have many requests in flight. Only channels whose protocol
+ * is thread safe (see {@link jolie.net.protocols.ConcurrentCommProtocol}) can be shared: for other
+ * protocols, {@link #getChannel(URI, String, int, ExceptionalCallable)} returns <code>null</code>
+ * and the caller should fall back to exclusive channels.
+ *
+ * A shared channel is closed when it fails, or when it is found idle for longer than
+ * {@link Interpreter#persistentConnectionTimeout()} milliseconds.
+ */
+public class MultiplexedChannelPool {
+	public static final int DEFAULT_CONNECTIONS = 1;
+
+	private static class Slots {
+		private final AbstractCommChannel[] channels;
+		private final long[] lastUses;
+		private int next = 0;
+
+		private Slots( int connections ) {
+			channels = new AbstractCommChannel[ connections ];
+			lastUses = new long[ connections ];
+		}
+	}
+
+	private final Map< ChannelCache.Key, Slots > slots = new HashMap<>();
+	// Locations whose protocol turned out not to support multiplexing
+	private final Set< ChannelCache.Key > unsupported = new HashSet<>();
+
+	/**
+	 * Returns a shared channel for the given location and protocol, creating it if needed.
+	 *
+	 * @param location the location of the channel
+	 * @param protocol the name of the protocol of the channel
+	 * @param connections the maximum number of channels to open towards the location
+	 * @param factory creates a new channel for the location
+	 * @return a shared channel, or <code>null</code> if the protocol does not support multiplexing
+	 * @throws IOException if a new channel could not be created
+	 */
+	public CommChannel getChannel( URI location, String protocol, int connections,
+		ExceptionalCallable< CommChannel, IOException > factory )
+		throws IOException {
+		final ChannelCache.Key key = new ChannelCache.Key( location, protocol );
+		final long now = System.currentTimeMillis();
+		final long idleTimeout = Interpreter.getInstance().persistentConnectionTimeout();
+		final int index;
+		AbstractCommChannel retired = null;
+		synchronized( slots ) {
+			if( unsupported.contains( key ) ) {
+				return null;
+			}
+			final Slots s = slots.computeIfAbsent( key, k -> new Slots( Math.max( 1, connections ) ) );
+			index = s.next;
+			s.next = (s.next + 1) % s.channels.length;
+			final AbstractCommChannel channel = s.channels[ index ];
+			if( channel != null && !channel.isClosed()
+				&& (now - s.lastUses[ index ] < idleTimeout || channel.hasPendingRequests()) ) {
+				s.lastUses[ index ] = now;
+				return channel;
+			}
+			// The peer may have dropped an idle channel without us noticing, so we replace it
+			if( channel != null && !channel.isClosed() ) {
+				retired = channel;
+			}
+			s.channels[ index ] = null;
+		}
+		close( retired );
+
+		final CommChannel created = factory.call();
+		if( !(created instanceof StreamingCommChannel) || !created.isThreadSafe() ) {
+			synchronized( slots ) {
+				unsupported.add( key );
+				slots.remove( key );
+			}
+			// The caller uses the channel exclusively, as with multiplexing disabled
+			return created;
+		}
+
+		final AbstractCommChannel channel = (AbstractCommChannel) created;
+		channel.setMultiplexed();
+		AbstractCommChannel ret = channel;
+		synchronized( slots ) {
+			final Slots s = slots.get( key );
+			final AbstractCommChannel current = s == null ? null : s.channels[ index ];
+			if( current != null && !current.isClosed() ) {
+				// Another session filled the slot while we were connecting
+				ret = current;
+			} else if( s != null ) {
+				s.channels[ index ] = channel;
+			}
+			if( s != null ) {
+				s.lastUses[ index ] = now;
+			}
+		}
+		if( ret != channel ) {
+			close( channel );
+		}
+		return ret;
+	}
+
+	private static void close( CommChannel channel ) {
+		if( channel != null ) {
+			try {
+				channel.close();
+			} catch( IOException e ) {
+				Interpreter.getInstance().logWarning( e );
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of open shared channels in this pool.
+	 *
+	 * @return the number of open shared channels
+	 */
+	public int openChannels() {
+		int ret = 0;
+		synchronized( slots ) {
+			for( Slots s : slots.values() ) {
+				for( AbstractCommChannel channel : s.channels ) {
+					if( channel != null && !channel.isClosed() ) {
+						ret++;
+					}
+				}
+			}
+		}
+		return ret;
+	}
+}
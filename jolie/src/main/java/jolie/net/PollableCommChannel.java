@@ -25,7 +25,8 @@ import java.io.IOException;
 
 /**
  * This interface is to be implemented by communication channels that are to be polled by
- * <code>CommCore</code>.
+ * <code>CommCore</code>. Channels that can tell when they become ready should also override
+ * {@link #signalsReadiness()}, so that they are not polled.
  * 
  * @author Fabrizio Montesi
  * @see CommCore
@@ -42,4 +43,15 @@ public interface PollableCommChannel {
 	 */
 	boolean isReady()
 		throws IOException;
+
+	/**
+	 * Returns <code>true</code> if this channel calls {@link CommChannel#signalReady()} whenever it
+	 * becomes ready, <code>false</code> otherwise. <code>CommCore</code> schedules signalling channels
+	 * as soon as they signal, and polls the others periodically.
+	 *
+	 * @return <code>true</code> if this channel signals when it becomes ready
+	 */
+	default boolean signalsReadiness() {
+		return false;
+	}
 }
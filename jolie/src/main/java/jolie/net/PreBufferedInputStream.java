@@ -23,12 +23,27 @@
 
 package jolie.net;
 
-import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 
-public class PreBufferedInputStream extends BufferedInputStream {
+/**
+ * A buffered input stream whose buffer can be pre-filled with data read elsewhere, e.g., by a
+ * selector probing a channel.
+ *
+ * Unlike {@link java.io.BufferedInputStream}, this class does not synchronise on itself: blocking
+ * reads performed while holding a monitor would pin the carrier thread of a virtual thread. Streams
+ * of this class are meant to be accessed by one thread at a time, which channels already guarantee
+ * by their own locking.
+ */
+public class PreBufferedInputStream extends FilterInputStream {
 	private final static int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+	private final static int DEFAULT_BUFFER_SIZE = 8192;
+
+	private byte[] buf = new byte[ DEFAULT_BUFFER_SIZE ];
+	private int pos = 0;
+	private int count = 0;
 
 	public PreBufferedInputStream( InputStream istream ) {
 		super( istream );
@@ -38,6 +53,16 @@ public class PreBufferedInputStream extends BufferedInputStream {
 		return pos < count;
 	}
 
+	/**
+	 * Returns a read-only view of the data buffered by this stream that has not been read yet. The view
+	 * is valid until the next operation on this stream.
+	 *
+	 * @return a read-only view of the buffered data
+	 */
+	public ByteBuffer cachedData() {
+		return ByteBuffer.wrap( buf, pos, count - pos ).asReadOnlyBuffer();
+	}
+
 	public void append( ByteBuffer b ) {
 		final int bufferSize = b.remaining();
 		enlargeIfNecessary( bufferSize );
@@ -69,4 +94,84 @@ public class PreBufferedInputStream extends BufferedInputStream {
 		enlargeIfNecessary( 1 );
 		buf[ count++ ] = b;
 	}
+
+	private int fill()
+		throws IOException {
+		pos = 0;
+		count = 0;
+		final int n = in.read( buf, 0, buf.length );
+		if( n > 0 ) {
+			count = n;
+		}
+		return n;
+	}
+
+	@Override
+	public int read()
+		throws IOException {
+		if( pos >= count && fill() <= 0 ) {
+			return -1;
+		}
+		return buf[ pos++ ] & 0xff;
+	}
+
+	@Override
+	public int read( byte[] b, int off, int len )
+		throws IOException {
+		if( len == 0 ) {
+			return 0;
+		}
+		int available = count - pos;
+		if( available <= 0 ) {
+			if( len >= buf.length ) {
+				// Do not copy large reads through the buffer
+				return in.read( b, off, len );
+			}
+			if( fill() <= 0 ) {
+				return -1;
+			}
+			available = count;
+		}
+		final int n = Math.min( available, len );
+		System.arraycopy( buf, pos, b, off, n );
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public long skip( long n )
+		throws IOException {
+		if( n <= 0 ) {
+			return 0;
+		}
+		final int available = count - pos;
+		if( available <= 0 ) {
+			return in.skip( n );
+		}
+		final long skipped = Math.min( available, n );
+		pos += (int) skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available()
+		throws IOException {
+		final int available = count - pos;
+		final int underlying = in.available();
+		return available > Integer.MAX_VALUE - underlying ? Integer.MAX_VALUE : available + underlying;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark( int readlimit ) {}
+
+	@Override
+	public void reset()
+		throws IOException {
+		throw new IOException( "mark/reset not supported" );
+	}
 }
@@ -24,6 +24,7 @@ package jolie.net;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectableChannel;
 
 import jolie.Interpreter;
@@ -69,6 +70,33 @@ public abstract class SelectableStreamingCommChannel extends StreamingCommChanne
 	 */
 	abstract public SelectableChannel selectableChannel();
 
+	/**
+	 * Returns <code>true</code> if this channel has buffered enough input to receive a message without
+	 * waiting for the network. This is checked before registering this channel for selection.
+	 *
+	 * @return <code>true</code> if a message can be received without waiting
+	 * @throws IOException in case of an I/O error
+	 */
+	protected boolean hasBufferedInput()
+		throws IOException {
+		return inputStream().available() > 0;
+	}
+
+	/**
+	 * Reads the input available on this channel without blocking. This is called by the selector when
+	 * this channel becomes readable, to decide whether a thread should be started for receiving a
+	 * message. The default implementation reads nothing and returns <code>true</code>.
+	 *
+	 * @param buffer a buffer that implementations may use for reading
+	 * @return <code>true</code> if receiving a message from this channel would not wait for more input,
+	 *         <code>false</code> if this channel should keep waiting for input
+	 * @throws IOException in case of an I/O error
+	 */
+	protected boolean readAvailableInput( ByteBuffer buffer )
+		throws IOException {
+		return true;
+	}
+
 	@Override
 	public final void send( CommMessage message )
 		throws IOException {
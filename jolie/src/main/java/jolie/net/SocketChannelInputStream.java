@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Reads from a blocking socket channel through the direct buffers of the {@link ByteBufferPool}.
+ *
+ * Unlike the streams made by {@link java.nio.channels.Channels}, this does not synchronise on the
+ * blocking lock of the channel, and a large read does not make the JDK allocate a temporary direct
+ * buffer as large as the destination array: data is moved one pooled buffer at a time.
+ */
+class SocketChannelInputStream extends InputStream {
+	private final SocketChannel socketChannel;
+
+	SocketChannelInputStream( SocketChannel socketChannel ) {
+		this.socketChannel = socketChannel;
+	}
+
+	@Override
+	public int read()
+		throws IOException {
+		final byte[] b = new byte[ 1 ];
+		return read( b, 0, 1 ) == -1 ? -1 : b[ 0 ] & 0xff;
+	}
+
+	@Override
+	public int read( byte[] b, int off, int len )
+		throws IOException {
+		if( len == 0 ) {
+			return 0;
+		}
+		if( !socketChannel.isBlocking() ) {
+			throw new IllegalBlockingModeException();
+		}
+
+		final ByteBufferPool pool = ByteBufferPool.getInstance();
+		final ByteBuffer buffer = pool.acquire();
+		try {
+			buffer.limit( Math.min( len, buffer.capacity() ) );
+			final int read = socketChannel.read( buffer );
+			if( read > 0 ) {
+				buffer.flip();
+				buffer.get( b, off, read );
+			}
+			return read;
+		} finally {
+			pool.release( buffer );
+		}
+	}
+
+	@Override
+	public void close()
+		throws IOException {
+		socketChannel.close();
+	}
+}
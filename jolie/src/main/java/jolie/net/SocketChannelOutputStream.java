@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A buffered output stream writing to a blocking socket channel through a direct buffer of the
+ * {@link ByteBufferPool}.
+ *
+ * The buffer is borrowed on the first write and given back when the stream is flushed, so idle
+ * channels do not hold any buffer. Protocols can write a whole {@link ByteBuffer} with
+ * {@link #write(ByteBuffer)}, as the sodep and HTTP protocols do with large byte arrays: a direct
+ * buffer is then sent together with the buffered data in one gathering write, without being copied.
+ *
+ * Unlike the streams made by {@link java.nio.channels.Channels}, this does not synchronise on the
+ * blocking lock of the channel, which is held by a concurrent blocking read.
+ */
+public class SocketChannelOutputStream extends OutputStream {
+	private final SocketChannel socketChannel;
+	private ByteBuffer buffer = null;
+
+	SocketChannelOutputStream( SocketChannel socketChannel ) {
+		this.socketChannel = socketChannel;
+	}
+
+	// Returns the output buffer of this stream, with at least size bytes remaining
+	private ByteBuffer buffer( int size )
+		throws IOException {
+		if( buffer == null ) {
+			buffer = ByteBufferPool.getInstance().acquire();
+		} else if( buffer.remaining() < size ) {
+			drain();
+		}
+		return buffer;
+	}
+
+	@Override
+	public void write( int b )
+		throws IOException {
+		buffer( 1 ).put( (byte) b );
+	}
+
+	@Override
+	public void write( byte[] b, int off, int len )
+		throws IOException {
+		while( len > 0 ) {
+			final ByteBuffer out = buffer( 1 );
+			final int n = Math.min( len, out.remaining() );
+			out.put( b, off, n );
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Writes the remaining bytes of the given buffer. If the buffer is direct, it is written together
+	 * with the data buffered by this stream in a single gathering write.
+	 *
+	 * @param src the buffer to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void write( ByteBuffer src )
+		throws IOException {
+		if( !src.isDirect() ) {
+			while( src.hasRemaining() ) {
+				final ByteBuffer out = buffer( 1 );
+				final int n = Math.min( src.remaining(), out.remaining() );
+				final ByteBuffer slice = src.duplicate();
+				slice.limit( slice.position() + n );
+				out.put( slice );
+				src.position( src.position() + n );
+			}
+			return;
+		}
+
+		checkBlocking();
+		if( buffer == null || buffer.position() == 0 ) {
+			while( src.hasRemaining() ) {
+				socketChannel.write( src );
+			}
+		} else {
+			buffer.flip();
+			final ByteBuffer[] buffers = new ByteBuffer[] { buffer, src };
+			while( src.hasRemaining() ) {
+				socketChannel.write( buffers );
+			}
+			buffer.clear();
+		}
+	}
+
+	private void checkBlocking() {
+		if( !socketChannel.isBlocking() ) {
+			throw new IllegalBlockingModeException();
+		}
+	}
+
+	private void drain()
+		throws IOException {
+		checkBlocking();
+		buffer.flip();
+		while( buffer.hasRemaining() ) {
+			socketChannel.write( buffer );
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void flush()
+		throws IOException {
+		if( buffer != null ) {
+			try {
+				drain();
+			} finally {
+				ByteBufferPool.getInstance().release( buffer );
+				buffer = null;
+			}
+		}
+	}
+
+	@Override
+	public void close()
+		throws IOException {
+		try {
+			flush();
+		} finally {
+			socketChannel.close();
+		}
+	}
+}
@@ -22,19 +22,18 @@
 
 package jolie.net;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
 import java.nio.channels.IllegalBlockingModeException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SocketChannel;
 
 import jolie.Interpreter;
 import jolie.net.protocols.CommProtocol;
+import jolie.net.protocols.MessageFramer;
 import jolie.util.Helpers;
 
 
@@ -47,6 +46,8 @@ public class SocketCommChannel extends SelectableStreamingCommChannel {
 	private final SocketChannel socketChannel;
 	private final PreBufferedInputStream istream;
 	private final OutputStream ostream;
+	private MessageFramer framer = null;
+	private boolean framerCreated = false;
 
 	private static final int SO_LINGER = 10000;
 
@@ -65,10 +66,8 @@ public class SocketCommChannel extends SelectableStreamingCommChannel {
 		super( location, protocol );
 		this.socketChannel = socketChannel;
 		socketChannel.socket().setSoLinger( true, SO_LINGER );
-		// this.istream = new PreBufferedInputStream( new BufferedInputStream( Channels.newInputStream(
-		// socketChannel ) ) );
-		this.istream = new PreBufferedInputStream( Channels.newInputStream( socketChannel ) );
-		this.ostream = new BufferedOutputStream( Channels.newOutputStream( socketChannel ) );
+		this.istream = new PreBufferedInputStream( new SocketChannelInputStream( socketChannel ) );
+		this.ostream = new SocketChannelOutputStream( socketChannel );
 		setToBeClosed( false ); // Socket connections are kept open by default
 	}
 
@@ -87,6 +86,49 @@ public class SocketCommChannel extends SelectableStreamingCommChannel {
 		return istream;
 	}
 
+	private MessageFramer framer() {
+		if( !framerCreated ) {
+			framer = protocol().createMessageFramer();
+			framerCreated = true;
+		}
+		return framer;
+	}
+
+	@Override
+	protected boolean hasBufferedInput()
+		throws IOException {
+		if( framer() == null ) {
+			return super.hasBufferedInput();
+		}
+		framer.reset();
+		return istream.hasCachedData() && framer.feed( istream.cachedData() ) != 0;
+	}
+
+	/**
+	 * Reads the available input into the input stream of this channel, until a complete message has
+	 * been buffered. If the protocol does not provide a {@link MessageFramer}, nothing is read.
+	 */
+	@Override
+	protected boolean readAvailableInput( ByteBuffer buffer )
+		throws IOException {
+		if( framer() == null ) {
+			return true;
+		}
+
+		boolean ready = false;
+		int read;
+		do {
+			buffer.clear();
+			read = socketChannel.read( buffer );
+			if( read > 0 ) {
+				buffer.flip();
+				ready = framer.feed( buffer.duplicate() ) != 0;
+				istream.append( buffer );
+			}
+		} while( read > 0 && !ready );
+		return ready || read < 0;
+	}
+
 	/**
 	 * Receives a message from the channel.
 	 * 
@@ -113,9 +155,25 @@ public class SocketCommChannel extends SelectableStreamingCommChannel {
 	 */
 	@Override
 	protected void sendImpl( CommMessage message )
+		throws IOException {
+		writeImpl( message );
+		flushImpl();
+	}
+
+	@Override
+	protected void writeImpl( CommMessage message )
 		throws IOException {
 		try {
 			protocol().send( ostream, message, istream );
+		} catch( IllegalBlockingModeException e ) {
+			throw new IOException( e );
+		}
+	}
+
+	@Override
+	protected void flushImpl()
+		throws IOException {
+		try {
 			ostream.flush();
 		} catch( IllegalBlockingModeException e ) {
 			throw new IOException( e );
@@ -23,11 +23,12 @@ package jolie.net;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.nio.channels.AsynchronousCloseException;
-import java.nio.channels.ClosedByInterruptException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
 
 import jolie.Interpreter;
 import jolie.net.ext.CommProtocolFactory;
@@ -35,11 +36,70 @@ import jolie.net.ports.InputPort;
 
 /**
  * A communication listener using sockets as backend.
+ *
+ * Connections are accepted by the selector threads of {@link CommCore}. The listener can be
+ * configured with the following parameters in the query of the input port location, e.g.,
+ * <code>socket://localhost:8000/?backlog=1024&amp;tcpNoDelay=true</code>:
+ * <ul>
+ * <li><code>backlog</code>: the maximum number of pending connections;</li>
+ * <li><code>acceptors</code>: the number of listening sockets, bound to the same port with
+ * SO_REUSEPORT when larger than 1 (requires Java 9 and operating system support);</li>
+ * <li><code>tcpNoDelay</code>: whether to disable Nagle's algorithm on accepted connections;</li>
+ * <li><code>sendBufferSize</code> and <code>receiveBufferSize</code>: the sizes of the socket
+ * buffers of accepted connections.</li>
+ * </ul>
  * 
  * @author Fabrizio Montesi
  */
 public class SocketListener extends CommListener {
-	private final ServerSocketChannel serverChannel;
+	private static class Parameters {
+		private static final String BACKLOG = "backlog";
+		private static final String ACCEPTORS = "acceptors";
+		private static final String TCP_NO_DELAY = "tcpNoDelay";
+		private static final String SEND_BUFFER_SIZE = "sendBufferSize";
+		private static final String RECEIVE_BUFFER_SIZE = "receiveBufferSize";
+	}
+
+	private static final SocketOption< Boolean > SO_REUSEPORT = reusePortOption();
+
+	private final ServerSocketChannel[] serverChannels;
+	private final boolean tcpNoDelay;
+	private final int sendBufferSize;
+	private final int receiveBufferSize;
+
+	@SuppressWarnings( "unchecked" )
+	private static SocketOption< Boolean > reusePortOption() {
+		// StandardSocketOptions.SO_REUSEPORT is available from Java 9
+		try {
+			return (SocketOption< Boolean >) StandardSocketOptions.class.getField( "SO_REUSEPORT" ).get( null );
+		} catch( ReflectiveOperationException e ) {
+			return null;
+		}
+	}
+
+	private static Map< String, String > parseParameters( String query ) {
+		final Map< String, String > parameters = new HashMap<>();
+		if( query != null ) {
+			for( String parameter : query.split( "&" ) ) {
+				final String[] pair = parameter.split( "=", 2 );
+				parameters.put( pair[ 0 ], pair.length > 1 ? pair[ 1 ] : "" );
+			}
+		}
+		return parameters;
+	}
+
+	private static int getIntParameter( Map< String, String > parameters, String name, int defaultValue )
+		throws IOException {
+		final String value = parameters.get( name );
+		if( value == null ) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt( value );
+		} catch( NumberFormatException e ) {
+			throw new IOException( "Invalid value for socket parameter " + name + ": " + value );
+		}
+	}
 
 	public SocketListener(
 		Interpreter interpreter,
@@ -51,11 +111,39 @@ public class SocketListener extends CommListener {
 			protocolFactory,
 			inputPort );
 
-		serverChannel = ServerSocketChannel.open();
-		final ServerSocket socket = serverChannel.socket();
+		final Map< String, String > parameters = parseParameters( inputPort.location().getQuery() );
+		final int backlog = getIntParameter( parameters, Parameters.BACKLOG, 0 );
+		int acceptors = Math.max( 1, getIntParameter( parameters, Parameters.ACCEPTORS, 1 ) );
+		tcpNoDelay = Boolean.parseBoolean( parameters.get( Parameters.TCP_NO_DELAY ) );
+		sendBufferSize = getIntParameter( parameters, Parameters.SEND_BUFFER_SIZE, 0 );
+		receiveBufferSize = getIntParameter( parameters, Parameters.RECEIVE_BUFFER_SIZE, 0 );
+
+		final ServerSocketChannel firstChannel = ServerSocketChannel.open();
+		if( acceptors > 1 && (SO_REUSEPORT == null || !firstChannel.supportedOptions().contains( SO_REUSEPORT )) ) {
+			interpreter.logWarning( "SO_REUSEPORT is not supported, using a single acceptor for "
+				+ inputPort.location().toString() );
+			acceptors = 1;
+		}
+
+		serverChannels = new ServerSocketChannel[ acceptors ];
+		serverChannels[ 0 ] = firstChannel;
+		final InetSocketAddress address = new InetSocketAddress( inputPort.location().getPort() );
 		try {
-			socket.bind( new InetSocketAddress( inputPort.location().getPort() ) );
+			for( int i = 0; i < serverChannels.length; i++ ) {
+				if( serverChannels[ i ] == null ) {
+					serverChannels[ i ] = ServerSocketChannel.open();
+				}
+				if( acceptors > 1 ) {
+					serverChannels[ i ].setOption( SO_REUSEPORT, true );
+				}
+				if( receiveBufferSize > 0 ) {
+					// Buffers larger than 64K must be set before binding
+					serverChannels[ i ].setOption( StandardSocketOptions.SO_RCVBUF, receiveBufferSize );
+				}
+				serverChannels[ i ].bind( address, backlog );
+			}
 		} catch( IOException e ) {
+			shutdown();
 			final IOException exception =
 				new IOException( e.getMessage() + " [with location: " + inputPort.location().toString() + "]" );
 			exception.setStackTrace( e.getStackTrace() );
@@ -65,34 +153,39 @@ public class SocketListener extends CommListener {
 
 	@Override
 	public void shutdown() {
-		if( serverChannel.isOpen() ) {
-			try {
-				serverChannel.close();
-			} catch( IOException e ) {
+		for( ServerSocketChannel serverChannel : serverChannels ) {
+			if( serverChannel != null && serverChannel.isOpen() ) {
+				try {
+					serverChannel.close();
+				} catch( IOException e ) {
+				}
 			}
 		}
 	}
 
+	private void accept( SocketChannel socketChannel )
+		throws IOException {
+		if( tcpNoDelay ) {
+			socketChannel.setOption( StandardSocketOptions.TCP_NODELAY, true );
+		}
+		if( sendBufferSize > 0 ) {
+			socketChannel.setOption( StandardSocketOptions.SO_SNDBUF, sendBufferSize );
+		}
+		final SocketCommChannel channel = new SocketCommChannel(
+			socketChannel,
+			inputPort().location(),
+			createProtocol() );
+		channel.setParentInputPort( inputPort() );
+		// Wait for the first message without occupying a thread
+		interpreter().commCore().registerForSelection( channel );
+	}
+
 	@Override
 	public void run() {
 		try {
-			SocketChannel socketChannel;
-			while( (socketChannel = serverChannel.accept()) != null ) {
-				final CommChannel channel = new SocketCommChannel(
-					socketChannel,
-					inputPort().location(),
-					createProtocol() );
-				channel.setParentInputPort( inputPort() );
-				interpreter().commCore().scheduleReceive( channel, inputPort() );
-			}
-		} catch( ClosedByInterruptException e ) {
-			try {
-				serverChannel.close();
-			} catch( IOException ioe ) {
-				interpreter().logWarning( ioe );
+			for( ServerSocketChannel serverChannel : serverChannels ) {
+				interpreter().commCore().registerForAccept( serverChannel, this::accept );
 			}
-		} catch( AsynchronousCloseException e ) {
-			// Closed by CommCore shutdown
 		} catch( IOException e ) {
 			interpreter().logWarning( e );
 		}
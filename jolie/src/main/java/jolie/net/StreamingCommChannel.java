@@ -27,6 +27,10 @@ import jolie.util.Helpers;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This abstract class implements a communication channel based on a <code>CommProtocol</code>.
@@ -37,6 +41,18 @@ import java.net.URI;
 public abstract class StreamingCommChannel extends AbstractCommChannel {
 	private final URI location;
 	private final CommProtocol protocol;
+	// Messages waiting to be written to a multiplexed channel
+	private final Queue< PendingWrite > writeQueue = new ConcurrentLinkedQueue<>();
+
+	// A message waiting to be written, with the error that prevented writing it, if any
+	private static class PendingWrite {
+		private final CommMessage message;
+		private IOException error = null; // guarded by lock
+
+		private PendingWrite( CommMessage message ) {
+			this.message = message;
+		}
+	}
 
 	public StreamingCommChannel( URI location, CommProtocol protocol ) {
 		this.location = location;
@@ -53,9 +69,79 @@ public abstract class StreamingCommChannel extends AbstractCommChannel {
 		return protocol.isThreadSafe();
 	}
 
+	/**
+	 * Writes a message to this channel, possibly leaving it buffered until {@link #flushImpl()} is
+	 * called. By default, this is the same as {@link #sendImpl(CommMessage)}.
+	 *
+	 * @param message the message to write
+	 * @throws IOException if an error writing the message occurs
+	 */
+	protected void writeImpl( CommMessage message )
+		throws IOException {
+		sendImpl( message );
+	}
+
+	/**
+	 * Flushes the messages buffered by {@link #writeImpl(CommMessage)}.
+	 *
+	 * @throws IOException if an error flushing the messages occurs
+	 */
+	protected void flushImpl()
+		throws IOException {}
+
+	/**
+	 * Sends a message through this channel. If the channel is multiplexed, the message is queued and
+	 * the thread that gets to write writes all the queued messages before flushing them, so that
+	 * concurrent small messages are coalesced into fewer socket writes. If that fails, the sender of
+	 * every message taken from the queue gets the error.
+	 *
+	 * @param message the message to send
+	 * @throws IOException in case of some communication error
+	 */
+	@Override
+	public void send( final CommMessage message )
+		throws IOException {
+		if( !isMultiplexed() ) {
+			super.send( message );
+			return;
+		}
+
+		final PendingWrite write = new PendingWrite( message );
+		writeQueue.add( write );
+		lock.lock();
+		try {
+			final List< PendingWrite > taken = new ArrayList<>();
+			try {
+				PendingWrite queued;
+				while( (queued = writeQueue.poll()) != null ) {
+					taken.add( queued );
+					writeImpl( queued.message );
+				}
+				if( !taken.isEmpty() ) {
+					flushImpl();
+				}
+			} catch( IOException e ) {
+				setToBeClosed( true );
+				for( PendingWrite w : taken ) {
+					w.error = e;
+				}
+			}
+			// Set by whichever thread took our message from the queue
+			if( write.error != null ) {
+				throw write.error;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	@Override
 	protected void releaseImpl()
 		throws IOException {
+		if( isMultiplexed() ) {
+			// Shared channels stay open until they fail or their pool retires them
+			return;
+		}
 		Helpers.lockAndThen( lock,
 			() -> {
 				if( parentPort() instanceof OutputPort ) {
@@ -33,6 +33,7 @@ import jolie.lang.Constants;
 import jolie.net.ChannelCache;
 import jolie.net.CommChannel;
 import jolie.net.CommMessage;
+import jolie.net.MultiplexedChannelPool;
 import jolie.net.protocols.CommProtocol;
 import jolie.process.AssignmentProcess;
 import jolie.process.DeepCopyProcess;
@@ -54,13 +55,17 @@ import jolie.util.LocationParser;
  * @author Fabrizio Montesi
  */
 public class OutputPort extends AbstractIdentifiableObject implements Port {
+	private static final String MULTIPLEX_PARAMETER = "multiplex";
+	private static final String MULTIPLEX_CONNECTIONS_PARAMETER = "connections";
+
 	private final Interpreter interpreter;
 	private final Process configurationProcess;
 	private Expression locationExpression;
 	private final VariablePath locationVariablePath, protocolVariablePath;
 	private final boolean isConstant;
 	private final Interface iface;
-	private final ChannelCache channelCache = new ChannelCache();
+	private final ChannelCache channelCache;
+	private final MultiplexedChannelPool multiplexedChannels = new MultiplexedChannelPool();
 
 	/*
 	 * To be called at runtime, after main is run. Requires the caller to set the variables by itself.
@@ -68,6 +73,7 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 	public OutputPort( Interpreter interpreter, String id ) {
 		super( id );
 		this.interpreter = interpreter;
+		this.channelCache = createChannelCache( interpreter );
 
 		this.protocolVariablePath =
 			new VariablePathBuilder( false )
@@ -99,6 +105,7 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 		super( id );
 		this.isConstant = isConstant;
 		this.interpreter = interpreter;
+		this.channelCache = createChannelCache( interpreter );
 		this.locationVariablePath = locationVariablePath;
 		this.protocolVariablePath = protocolVariablePath;
 		this.iface = iface;
@@ -125,6 +132,7 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 		boolean isConstant ) {
 		super( id );
 		this.interpreter = interpreter;
+		this.channelCache = createChannelCache( interpreter );
 
 		this.protocolVariablePath = new VariablePathBuilder( false ).add( id(), 0 )
 			.add( Constants.PROTOCOL_NODE_NAME, 0 ).toVariablePath();
@@ -209,6 +217,20 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 			new URI( locationExpression.evaluate().strValue() ) );
 	}
 
+	private static ChannelCache createChannelCache( Interpreter interpreter ) {
+		final Interpreter.Configuration configuration = interpreter.configuration();
+		return new ChannelCache(
+			configuration.connectionsCacheSizePerLocation(),
+			configuration.connectionsCacheSize(),
+			configuration.connectionsPerLocationLimit() );
+	}
+
+	private CommChannel openChannel( URI uri, String protocol )
+		throws IOException {
+		return channelCache.openChannel( uri, protocol, interpreter.responseTimeout(),
+			() -> interpreter.commCore().createCommChannel( uri, this ) );
+	}
+
 	private CommChannel getCommChannel( boolean forceNew )
 		throws URISyntaxException, IOException {
 		CommChannel ret;
@@ -223,13 +245,21 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 			URI uri = getLocation( loc );
 			if( forceNew ) {
 				// A fresh channel was requested
-				ret = interpreter.commCore().createCommChannel( uri, this );
+				ret = openChannel( uri, protocolVariablePath.getValue().strValue() );
 			} else {
 				// Try reusing an existing channel first
-				String protocol = protocolVariablePath.getValue().strValue();
-				ret = channelCache.getPersistentChannel( uri, protocol );
+				Value protocolValue = protocolVariablePath.getValue();
+				String protocol = protocolValue.strValue();
+				ret = null;
+				if( isMultiplexed( protocolValue ) ) {
+					ret = multiplexedChannels.getChannel( uri, protocol, multiplexedConnections( protocolValue ),
+						() -> openChannel( uri, protocol ) );
+				}
 				if( ret == null ) {
-					ret = interpreter.commCore().createCommChannel( uri, this );
+					ret = channelCache.getPersistentChannel( uri, protocol );
+				}
+				if( ret == null ) {
+					ret = openChannel( uri, protocol );
 				}
 			}
 		}
@@ -238,6 +268,42 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 		return ret;
 	}
 
+	/*
+	 * Multiplexing is enabled by the protocol parameter "multiplex", and the number of shared channels
+	 * per location is given by "multiplex.connections".
+	 */
+	private static boolean isMultiplexed( Value protocolValue ) {
+		return protocolValue.hasChildren( MULTIPLEX_PARAMETER )
+			&& protocolValue.getFirstChild( MULTIPLEX_PARAMETER ).boolValue();
+	}
+
+	private static int multiplexedConnections( Value protocolValue ) {
+		final Value multiplex = protocolValue.getFirstChild( MULTIPLEX_PARAMETER );
+		if( multiplex.hasChildren( MULTIPLEX_CONNECTIONS_PARAMETER ) ) {
+			return Math.max( 1, multiplex.getFirstChild( MULTIPLEX_CONNECTIONS_PARAMETER ).intValue() );
+		}
+		return MultiplexedChannelPool.DEFAULT_CONNECTIONS;
+	}
+
+	/**
+	 * Returns the pool of channels shared by concurrent sessions, used when the protocol of this output
+	 * port is configured with <code>multiplex = true</code>.
+	 *
+	 * @return the shared channel pool of this output port
+	 */
+	public MultiplexedChannelPool multiplexedChannels() {
+		return multiplexedChannels;
+	}
+
+	/**
+	 * Returns the pool of persistent channels used by this output port.
+	 *
+	 * @return the channel pool of this output port
+	 */
+	public ChannelCache channelCache() {
+		return channelCache;
+	}
+
 	public void putPersistentChannel( URI location, String protocol, CommChannel channel ) {
 		channelCache.putPersistentChannel( location, protocol, channel, interpreter );
 	}
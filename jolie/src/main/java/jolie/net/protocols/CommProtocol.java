@@ -227,4 +227,15 @@ public abstract class CommProtocol {
 		throws IOException;
 
 	abstract public boolean isThreadSafe();
+
+	/**
+	 * Returns a new {@link MessageFramer} for the messages received by this protocol, or
+	 * <code>null</code> if messages can be received only by blocking on
+	 * {@link #recv(InputStream, OutputStream)}. This implementation returns <code>null</code>.
+	 *
+	 * @return a new {@link MessageFramer}, or <code>null</code>
+	 */
+	public MessageFramer createMessageFramer() {
+		return null;
+	}
 }
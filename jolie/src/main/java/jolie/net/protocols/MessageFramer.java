@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2021 The Jolie Developers
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net.protocols;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Detects the boundaries of the messages of a protocol by inspecting the bytes received by a
+ * channel as they arrive, without blocking and without decoding the messages.
+ *
+ * Channels that are waiting for input can feed a framer with the data read from the network and
+ * hand the channel over to a receiving thread only when a complete message has been buffered, so
+ * that {@link CommProtocol#recv(java.io.InputStream, java.io.OutputStream)} does not block on slow
+ * peers. A framer is used by one channel, and only by one thread at a time.
+ *
+ * @see CommProtocol#createMessageFramer()
+ */
+public interface MessageFramer {
+	/**
+	 * Returned by {@link #feed(ByteBuffer)} when the framer cannot tell where the current message ends,
+	 * e.g., because its length is determined by the closing of the connection or because the data is
+	 * malformed. The channel should then receive the message by blocking.
+	 */
+	int UNKNOWN_BOUNDARY = -1;
+
+	/**
+	 * Consumes all the remaining bytes of <code>buffer</code>.
+	 *
+	 * @param buffer the bytes received after those passed to the previous invocation
+	 * @return the number of messages completed by the consumed bytes, or {@link #UNKNOWN_BOUNDARY}
+	 */
+	int feed( ByteBuffer buffer );
+
+	/**
+	 * Discards the state of this framer, so that the next fed byte is taken as the beginning of a
+	 * message.
+	 */
+	void reset();
+}
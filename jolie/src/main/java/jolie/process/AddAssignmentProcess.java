@@ -22,6 +22,8 @@
 package jolie.process;
 
 import jolie.ExecutionThread;
+import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
 import jolie.runtime.Value;
 import jolie.runtime.VariablePath;
 import jolie.runtime.expression.Expression;
@@ -63,11 +65,19 @@ public class AddAssignmentProcess implements Process, Expression {
 	}
 
 	/** Evaluates the expression and adds its value to the variable's value. */
-	public void run() {
-		if( ExecutionThread.currentThread().isKilled() ) {
+	public void run()
+		throws FaultException {
+		final ExecutionThread ethread = ExecutionThread.currentThread();
+		if( ethread.isKilled() ) {
 			return;
 		}
-		varPath.getValue().add( expression.evaluate() );
+		final Value value = varPath.getValue();
+		value.add( expression.evaluate() );
+		final long memoryLimit = ethread.interpreter().sessionMemoryLimit();
+		if( memoryLimit > 0 ) {
+			// Adding strings makes a new one
+			ethread.state().charge( HeapSize.ofContent( value ), memoryLimit );
+		}
 	}
 
 	public Value evaluate() {
@@ -24,6 +24,8 @@ package jolie.process;
 import jolie.ExecutionThread;
 import jolie.Interpreter;
 import jolie.lang.parse.context.ParsingContext;
+import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
 import jolie.runtime.Value;
 import jolie.runtime.VariablePath;
 import jolie.runtime.expression.Expression;
@@ -69,11 +71,17 @@ public class AssignmentProcess implements Process, Expression {
 	}
 
 	/** Evaluates the expression and stores its value in the variable. */
-	public void run() {
-		if( ExecutionThread.currentThread().isKilled() )
+	public void run()
+		throws FaultException {
+		final ExecutionThread ethread = ExecutionThread.currentThread();
+		if( ethread.isKilled() )
 			return;
 		Value evaluationValue = expression.evaluate();
 		varPath.getValue().assignValue( evaluationValue );
+		final long memoryLimit = ethread.interpreter().sessionMemoryLimit();
+		if( memoryLimit > 0 ) {
+			ethread.state().charge( HeapSize.NODE + HeapSize.ofContent( evaluationValue ), memoryLimit );
+		}
 		final Tracer tracer = Interpreter.getInstance().tracer();
 		tracer.trace( () -> new AssignmentTraceAction(
 			AssignmentTraceAction.Type.ASSIGNMENT,
@@ -24,6 +24,9 @@ package jolie.process;
 import jolie.ExecutionThread;
 import jolie.Interpreter;
 import jolie.lang.parse.context.ParsingContext;
+import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
+import jolie.runtime.Value;
 import jolie.runtime.VariablePath;
 import jolie.runtime.expression.Expression;
 import jolie.tracer.AssignmentTraceAction;
@@ -54,19 +57,32 @@ public class DeepCopyProcess implements Process {
 	}
 
 	@Override
-	public void run() {
-		if( ExecutionThread.currentThread().isKilled() )
+	public void run()
+		throws FaultException {
+		final ExecutionThread ethread = ExecutionThread.currentThread();
+		if( ethread.isKilled() )
 			return;
 
+		final long memoryLimit = ethread.interpreter().sessionMemoryLimit();
+		/*
+		 * The copy is charged as much as its source, which is what the next measure finds in the
+		 * destination. What the copy replaced is discounted by that measure.
+		 */
+		final Value source;
 		if( rightExpression instanceof VariablePath ) {
+			source = memoryLimit > 0 ? ((VariablePath) rightExpression).getValueOrNull() : null;
 			leftPath.deepCopy( (VariablePath) rightExpression );
 		} else {
+			source = rightExpression.evaluate();
 			if( copyLinks ) {
-				leftPath.getValue().deepCopyWithLinks( rightExpression.evaluate() );
+				leftPath.deepCopyWithLinks( source );
 			} else {
-				leftPath.getValue().deepCopy( rightExpression.evaluate() );
+				leftPath.getValue().deepCopy( source );
 			}
 		}
+		if( memoryLimit > 0 && source != null ) {
+			ethread.state().charge( HeapSize.of( source ), memoryLimit );
+		}
 		final Tracer tracer = Interpreter.getInstance().tracer();
 
 		tracer.trace( () -> new AssignmentTraceAction(
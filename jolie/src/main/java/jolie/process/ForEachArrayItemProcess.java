@@ -21,35 +21,54 @@ package jolie.process;
 
 import jolie.runtime.ExitingException;
 import jolie.runtime.FaultException;
+import jolie.runtime.ParallelForEachExecution;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
 import jolie.runtime.VariablePath;
+import jolie.runtime.expression.Expression;
 import jolie.util.Pair;
 
 public class ForEachArrayItemProcess implements Process {
 	private final VariablePath keyPath, targetPath;
 	private final Process process;
+	private final boolean parallel;
 
 	public ForEachArrayItemProcess(
 		VariablePath keyPath,
 		VariablePath targetPath,
 		Process process ) {
+		this( keyPath, targetPath, process, false );
+	}
+
+	/**
+	 * @param parallel if true, the iterations are run in parallel, each branch with its own keyPath
+	 *        variable (see {@link ParallelForEachExecution})
+	 */
+	public ForEachArrayItemProcess(
+		VariablePath keyPath,
+		VariablePath targetPath,
+		Process process,
+		boolean parallel ) {
 		this.keyPath = keyPath;
 		this.targetPath = targetPath;
 		this.process = process;
+		this.parallel = parallel;
 	}
 
 	public Process copy( TransformationReason reason ) {
 		return new ForEachArrayItemProcess(
 			keyPath.copy(),
 			targetPath.copy(),
-			process.copy( reason ) );
+			process.copy( reason ),
+			parallel );
 	}
 
 	public void run()
 		throws FaultException, ExitingException {
 		final ValueVector targetVector = targetPath.getValueVectorOrNull();
-		if( targetVector != null ) {
+		if( targetVector != null && parallel && !keyPath.isGlobal() ) {
+			runParallel( targetVector.size() );
+		} else if( targetVector != null ) {
 			int size = targetVector.size();
 			VariablePath target = targetPath.copy();
 			int length = target.path().length;
@@ -62,6 +81,18 @@ public class ForEachArrayItemProcess implements Process {
 		}
 	}
 
+	private void runParallel( int size )
+		throws FaultException {
+		final int length = targetPath.path().length;
+		final Expression key = targetPath.path()[ length - 1 ].key();
+		new ParallelForEachExecution( size, keyPath, process, i -> {
+			final VariablePath target = targetPath.copy();
+			target.path()[ length - 1 ] = new Pair<>( key, Value.create( i ) );
+			keyPath.makePointer( target );
+			process.run();
+		} ).run();
+	}
+
 	@Override
 	public boolean isKillable() {
 		return true;
@@ -24,27 +24,43 @@ package jolie.process;
 import jolie.ExecutionThread;
 import jolie.runtime.ExitingException;
 import jolie.runtime.FaultException;
+import jolie.runtime.ParallelForEachExecution;
 import jolie.runtime.Value;
 import jolie.runtime.VariablePath;
 
 public class ForEachSubNodeProcess implements Process {
 	final private VariablePath keyPath, targetPath;
 	final private Process process;
+	final private boolean parallel;
 
 	public ForEachSubNodeProcess(
 		VariablePath keyPath,
 		VariablePath targetPath,
 		Process process ) {
+		this( keyPath, targetPath, process, false );
+	}
+
+	/**
+	 * @param parallel if true, the iterations are run in parallel, each branch with its own keyPath
+	 *        variable (see {@link ParallelForEachExecution})
+	 */
+	public ForEachSubNodeProcess(
+		VariablePath keyPath,
+		VariablePath targetPath,
+		Process process,
+		boolean parallel ) {
 		this.keyPath = keyPath;
 		this.targetPath = targetPath;
 		this.process = process;
+		this.parallel = parallel;
 	}
 
 	public Process copy( TransformationReason reason ) {
 		return new ForEachSubNodeProcess(
 			(VariablePath) keyPath.cloneExpression( reason ),
 			(VariablePath) targetPath.cloneExpression( reason ),
-			process.copy( reason ) );
+			process.copy( reason ),
+			parallel );
 	}
 
 	public void run()
@@ -61,9 +77,18 @@ public class ForEachSubNodeProcess implements Process {
 				keys = v.children().keySet().toArray( keys );
 			}
 
-			for( String id : keys ) {
-				keyPath.getValue().setValue( id );
-				process.run();
+			if( parallel && !keyPath.isGlobal() ) {
+				final String[] ids = keys;
+				new ParallelForEachExecution( ids.length, keyPath, process,
+					i -> {
+						keyPath.getValue().setValue( ids[ i ] );
+						process.run();
+					} ).run();
+			} else {
+				for( String id : keys ) {
+					keyPath.getValue().setValue( id );
+					process.run();
+				}
 			}
 		}
 	}
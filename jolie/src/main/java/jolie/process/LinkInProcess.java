@@ -21,6 +21,9 @@
 
 package jolie.process;
 
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import jolie.ExecutionThread;
 import jolie.Interpreter;
 import jolie.net.CommChannel;
@@ -33,6 +36,8 @@ public class LinkInProcess implements Process {
 	public static class Execution {
 		private CommMessage message = null;
 		private final LinkInProcess parent;
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition messageArrived = lock.newCondition();
 
 		public Execution( LinkInProcess parent ) {
 			this.parent = parent;
@@ -43,22 +48,30 @@ public class LinkInProcess implements Process {
 			InternalLink link = InternalLink.getById( parent.linkId );
 			try {
 				link.signForMessage( this );
-				synchronized( this ) {
+				lock.lock();
+				try {
 					if( message == null && !Interpreter.getInstance().exiting() ) {
 						ExecutionThread ethread = ExecutionThread.currentThread();
 						ethread.setCanBeInterrupted( true );
-						this.wait();
+						messageArrived.await();
 						ethread.setCanBeInterrupted( false );
 					}
+				} finally {
+					lock.unlock();
 				}
 			} catch( InterruptedException ie ) {
 				link.cancelWaiting( this );
 			}
 		}
 
-		public synchronized boolean recvMessage( CommChannel channel, CommMessage message ) {
-			this.message = message;
-			this.notify();
+		public boolean recvMessage( CommChannel channel, CommMessage message ) {
+			lock.lock();
+			try {
+				this.message = message;
+				messageArrived.signal();
+			} finally {
+				lock.unlock();
+			}
 			return true;
 		}
 
@@ -31,6 +31,7 @@ import jolie.net.CommMessage;
 import jolie.net.SessionMessage;
 import jolie.runtime.ExitingException;
 import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
 import jolie.runtime.InputOperation;
 import jolie.runtime.OneWayOperation;
 import jolie.runtime.VariablePath;
@@ -76,6 +77,10 @@ public class OneWayProcess implements InputOperationProcess {
 		if( varPath != null ) {
 			varPath.getValue( state.root() ).refCopy( sessionMessage.message().value() );
 		}
+		if( Interpreter.getInstance().sessionMemoryLimit() > 0 ) {
+			// The limit is checked by the next write of the session
+			state.charge( HeapSize.of( sessionMessage.message().value() ) );
+		}
 
 		return NullProcess.getInstance();
 	}
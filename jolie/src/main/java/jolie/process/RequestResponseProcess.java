@@ -35,6 +35,7 @@ import jolie.net.CommMessage;
 import jolie.net.SessionMessage;
 import jolie.runtime.ExitingException;
 import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
 import jolie.runtime.InputOperation;
 import jolie.runtime.RequestResponseOperation;
 import jolie.runtime.Value;
@@ -109,6 +110,10 @@ public class RequestResponseProcess implements InputOperationProcess {
 		if( inputVarPath != null ) {
 			inputVarPath.getValue( state.root() ).refCopy( sessionMessage.message().value() );
 		}
+		if( Interpreter.getInstance().sessionMemoryLimit() > 0 ) {
+			// The limit is checked by the next write of the session
+			state.charge( HeapSize.of( sessionMessage.message().value() ) );
+		}
 
 		return new Process() {
 			public void run()
@@ -23,7 +23,9 @@ package jolie.process;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -38,6 +40,8 @@ import jolie.net.CommMessage;
 import jolie.net.ports.OutputPort;
 import jolie.runtime.ExitingException;
 import jolie.runtime.FaultException;
+import jolie.runtime.HeapSize;
+import jolie.runtime.TimeoutHandler;
 import jolie.runtime.Value;
 import jolie.runtime.VariablePath;
 import jolie.runtime.expression.Expression;
@@ -94,6 +98,32 @@ public class SolicitResponseProcess implements Process {
 			context ) );
 	}
 
+	/*
+	 * Waits for a response until the response timeout expires. Completable futures are timed out by the
+	 * timing wheel of the interpreter instead of a timed wait.
+	 */
+	private static CommMessage awaitResponse( Future< CommMessage > future )
+		throws InterruptedException, ExecutionException, TimeoutException {
+		final Interpreter interpreter = Interpreter.getInstance();
+		if( !(future instanceof CompletableFuture) ) {
+			return future.get( interpreter.responseTimeout(), TimeUnit.MILLISECONDS );
+		}
+
+		final CompletableFuture< CommMessage > completableFuture = (CompletableFuture< CommMessage >) future;
+		final TimeoutHandler timeoutHandler = new TimeoutHandler( interpreter.responseTimeout() ) {
+			@Override
+			protected void onTimeout() {
+				completableFuture.completeExceptionally( new TimeoutException() );
+			}
+		};
+		interpreter.addTimeoutHandler( timeoutHandler );
+		try {
+			return completableFuture.get();
+		} finally {
+			timeoutHandler.cancel();
+		}
+	}
+
 	public void run()
 		throws FaultException {
 		if( ExecutionThread.currentThread().isKilled() ) {
@@ -143,13 +173,19 @@ public class SolicitResponseProcess implements Process {
 
 			CommMessage response = null;
 			do {
+				final Future< CommMessage > responseFuture = channel.recvResponseFor( message );
 				try {
-					response = channel.recvResponseFor( message ).get( Interpreter.getInstance().responseTimeout(),
-						TimeUnit.MILLISECONDS );
+					response = awaitResponse( responseFuture );
+				} catch( TimeoutException e ) {
+					// Stop waiting, so that the channel does not keep a receiver running for us
+					responseFuture.cancel( false );
+					throw e;
 				} catch( InterruptedException e ) {
 					throw new IOException( e );
 				} catch( ExecutionException e ) {
-					if( e.getCause() instanceof IOException ) {
+					if( e.getCause() instanceof TimeoutException ) {
+						throw (TimeoutException) e.getCause();
+					} else if( e.getCause() instanceof IOException ) {
 						throw (IOException) e.getCause();
 					} else {
 						throw new IOException( e.getCause() );
@@ -160,6 +196,10 @@ public class SolicitResponseProcess implements Process {
 
 			if( inputVarPath != null ) {
 				inputVarPath.setValue( response.value() );
+				final long memoryLimit = Interpreter.getInstance().sessionMemoryLimit();
+				if( memoryLimit > 0 ) {
+					ExecutionThread.currentThread().state().charge( HeapSize.of( response.value() ), memoryLimit );
+				}
 			}
 
 			if( response.isFault() ) {
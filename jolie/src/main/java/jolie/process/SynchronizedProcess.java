@@ -22,8 +22,10 @@
 package jolie.process;
 
 import jolie.Interpreter;
+import jolie.lang.Constants;
 import jolie.runtime.ExitingException;
 import jolie.runtime.FaultException;
+import jolie.runtime.InstrumentedLock;
 
 public class SynchronizedProcess implements Process {
 	final private String id;
@@ -40,8 +42,23 @@ public class SynchronizedProcess implements Process {
 
 	public void run()
 		throws FaultException, ExitingException {
-		synchronized( Interpreter.getInstance().getLock( id ) ) {
+		final Interpreter interpreter = Interpreter.getInstance();
+		final InstrumentedLock lock = interpreter.getLock( id );
+		final long timeout = interpreter.lockTimeout();
+		try {
+			if( !lock.acquire( timeout ) ) {
+				throw new FaultException( Constants.LOCK_TIMEOUT_FAULT_NAME,
+					"Could not acquire lock " + id + " within " + timeout + " ms" );
+			}
+		} catch( InterruptedException e ) {
+			// Only waits with a timeout are interrupted, by killing the thread: the block is not run
+			Thread.currentThread().interrupt();
+			return;
+		}
+		try {
 			process.run();
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * The children of a node of a branch (see {@link Value#createBranchRoot(Value, String[], int[])}):
+ * the children with one of the local names belong to the branch only, all the others are those of
+ * the node the branch was made from, so reading or writing them reads or writes that node.
+ */
+final class BranchChildrenMap extends AbstractMap< String, ValueVector > {
+	private final Map< String, ValueVector > shared;
+	private final Map< String, ValueVector > local = new ConcurrentHashMap<>();
+	private final Set< String > localNames;
+
+	BranchChildrenMap( Map< String, ValueVector > shared, Set< String > localNames ) {
+		this.shared = shared;
+		this.localNames = localNames;
+	}
+
+	/**
+	 * Returns the children of a branch of node in which only the variable at the given path, from the
+	 * given segment on, belongs to the branch. Each node on the path before it is overlaid by a
+	 * {@link BranchValue}, which shares the content and the other children of the node. The other
+	 * elements of the vectors on the path are shared too, but elements added by the branch are its own.
+	 */
+	static BranchChildrenMap overlay( Value node, String[] keys, int[] indexes, int segment ) {
+		final String key = keys[ segment ];
+		final BranchChildrenMap ret = new BranchChildrenMap( node.children(), Collections.singleton( key ) );
+		if( segment + 1 < keys.length ) {
+			final ValueVector vec = node.getChildren( key );
+			final Value element = vec.get( indexes[ segment ] );
+			final ValueVector local = ValueVector.create();
+			for( int i = 0; i < vec.size(); i++ ) {
+				local.add( i == indexes[ segment ] ? new BranchValue( element,
+					overlay( element, keys, indexes, segment + 1 ) ) : vec.get( i ) );
+			}
+			ret.local.put( key, local );
+		}
+		return ret;
+	}
+
+	boolean isLocal( String key ) {
+		return localNames.contains( key );
+	}
+
+	private Map< String, ValueVector > mapOf( Object key ) {
+		return localNames.contains( key ) ? local : shared;
+	}
+
+	@Override
+	public boolean containsKey( Object key ) {
+		return mapOf( key ).containsKey( key );
+	}
+
+	@Override
+	public ValueVector get( Object key ) {
+		return mapOf( key ).get( key );
+	}
+
+	@Override
+	public ValueVector put( String key, ValueVector value ) {
+		return mapOf( key ).put( key, value );
+	}
+
+	@Override
+	public ValueVector computeIfAbsent( String key,
+		Function< ? super String, ? extends ValueVector > mappingFunction ) {
+		return mapOf( key ).computeIfAbsent( key, mappingFunction );
+	}
+
+	@Override
+	public ValueVector remove( Object key ) {
+		return mapOf( key ).remove( key );
+	}
+
+	@Override
+	public void clear() {
+		local.clear();
+		shared.keySet().removeIf( key -> !localNames.contains( key ) );
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return local.isEmpty() && sharedEntries().findAny().isPresent() == false;
+	}
+
+	private Stream< Entry< String, ValueVector > > sharedEntries() {
+		return shared.entrySet().stream().filter( e -> !localNames.contains( e.getKey() ) );
+	}
+
+	@Override
+	public Set< Entry< String, ValueVector > > entrySet() {
+		return new AbstractSet< Entry< String, ValueVector > >() {
+			@Override
+			public Iterator< Entry< String, ValueVector > > iterator() {
+				return Stream.concat( local.entrySet().stream(), sharedEntries() ).iterator();
+			}
+
+			@Override
+			public int size() {
+				return local.size() + (int) sharedEntries().count();
+			}
+		};
+	}
+}
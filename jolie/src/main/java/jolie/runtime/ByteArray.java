@@ -21,34 +21,275 @@
 
 package jolie.runtime;
 
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
+/**
+ * A sequence of bytes, either held in a byte array or in a {@link ByteBuffer} outside of the heap.
+ *
+ * Large payloads are better kept in direct buffers or memory-mapped file regions, which the garbage
+ * collector never scans nor moves: see {@link #read(ReadableByteChannel, int)},
+ * {@link #read(DataInput, int)} and {@link #map(FileChannel, long, int)}. Such byte arrays are best
+ * consumed with {@link #writeTo(OutputStream)}, {@link #writeTo(WritableByteChannel)},
+ * {@link #inputStream()} or {@link #slice(int, int)}, since {@link #getBytes()} copies them in the
+ * heap.
+ */
 public class ByteArray {
+	/**
+	 * Payloads of at least this many bytes are read in direct buffers by the read methods.
+	 */
+	public static final int DIRECT_THRESHOLD = 1024 * 1024;
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	// Exactly one of buffer and data is not null. data is never modified, and is always at position 0
 	final private byte[] buffer;
+	final private ByteBuffer data;
 
 	public ByteArray( byte[] buffer ) {
 		this.buffer = buffer;
+		this.data = null;
+	}
+
+	private ByteArray( ByteBuffer data ) {
+		this.buffer = null;
+		this.data = data;
+	}
+
+	/**
+	 * Returns a byte array holding the remaining bytes of the given buffer, which are not copied. The
+	 * buffer must not be modified afterwards.
+	 *
+	 * @param buffer the buffer holding the bytes
+	 * @return a byte array backed by buffer
+	 */
+	public static ByteArray wrap( ByteBuffer buffer ) {
+		return new ByteArray( buffer.slice().asReadOnlyBuffer() );
+	}
+
+	/**
+	 * Maps a region of a file in memory. The file must not be truncated while the returned byte array
+	 * is in use, since reading the region would then fail; changes to the file are visible through it.
+	 *
+	 * @param channel the channel of the file
+	 * @param position the position of the region in the file
+	 * @param size the size of the region
+	 * @return a byte array backed by the mapped region
+	 * @throws IOException if the region could not be mapped
+	 */
+	public static ByteArray map( FileChannel channel, long position, int size )
+		throws IOException {
+		return new ByteArray( channel.map( FileChannel.MapMode.READ_ONLY, position, size ).asReadOnlyBuffer() );
+	}
+
+	/**
+	 * Reads exactly size bytes from the given channel. If they are at least {@link #DIRECT_THRESHOLD},
+	 * they are read in a direct buffer.
+	 *
+	 * @param channel the channel to read from
+	 * @param size the number of bytes to read
+	 * @return the bytes read
+	 * @throws IOException if reading fails or the channel ends before size bytes are read
+	 */
+	public static ByteArray read( ReadableByteChannel channel, int size )
+		throws IOException {
+		final ByteBuffer b = size < DIRECT_THRESHOLD ? ByteBuffer.allocate( size ) : ByteBuffer.allocateDirect( size );
+		while( b.hasRemaining() ) {
+			if( channel.read( b ) < 0 ) {
+				throw new IOException( "Unexpected end of stream after " + b.position() + " of " + size + " bytes" );
+			}
+		}
+		return b.hasArray() ? new ByteArray( b.array() ) : wrap( (ByteBuffer) b.flip() );
+	}
+
+	/**
+	 * Reads exactly size bytes from the given input. If they are at least {@link #DIRECT_THRESHOLD},
+	 * they are read in a direct buffer.
+	 *
+	 * @param in the input to read from
+	 * @param size the number of bytes to read
+	 * @return the bytes read
+	 * @throws IOException if reading fails or the input ends before size bytes are read
+	 */
+	public static ByteArray read( DataInput in, int size )
+		throws IOException {
+		if( size < DIRECT_THRESHOLD ) {
+			final byte[] bytes = new byte[ size ];
+			in.readFully( bytes );
+			return new ByteArray( bytes );
+		}
+		final ByteBuffer b = ByteBuffer.allocateDirect( size );
+		final byte[] chunk = new byte[ CHUNK_SIZE ];
+		while( b.hasRemaining() ) {
+			final int n = Math.min( chunk.length, b.remaining() );
+			in.readFully( chunk, 0, n );
+			b.put( chunk, 0, n );
+		}
+		return wrap( (ByteBuffer) b.flip() );
 	}
 
 	public int size() {
-		return buffer.length;
+		return buffer == null ? data.limit() : buffer.length;
 	}
 
+	/**
+	 * Returns the bytes of this byte array. Byte arrays held outside of the heap are copied in a new
+	 * array at every call.
+	 *
+	 * @return the bytes of this byte array
+	 */
 	public byte[] getBytes() {
-		return buffer;
+		if( buffer != null ) {
+			return buffer;
+		}
+		final byte[] ret = new byte[ data.limit() ];
+		data.duplicate().get( ret );
+		return ret;
+	}
+
+	/**
+	 * Returns a read-only view of the bytes of this byte array.
+	 *
+	 * @return a buffer holding the bytes of this byte array between its position and its limit
+	 */
+	public ByteBuffer asByteBuffer() {
+		return buffer == null ? data.duplicate() : ByteBuffer.wrap( buffer ).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns a byte array holding a part of this one, sharing its bytes.
+	 *
+	 * @param offset the index of the first byte of the slice
+	 * @param length the number of bytes of the slice
+	 * @return the slice
+	 */
+	public ByteArray slice( int offset, int length ) {
+		if( offset < 0 || length < 0 || offset + length > size() ) {
+			throw new IndexOutOfBoundsException( "Slice [" + offset + ", " + (offset + length) + ") of " + size() );
+		}
+		final ByteBuffer b = asByteBuffer();
+		b.position( offset );
+		b.limit( offset + length );
+		return wrap( b );
+	}
+
+	/**
+	 * Writes the bytes of this byte array to the given stream, without copying them in the heap all at
+	 * once.
+	 *
+	 * @param os the stream to write to
+	 * @throws IOException if writing fails
+	 */
+	public void writeTo( OutputStream os )
+		throws IOException {
+		if( buffer != null ) {
+			os.write( buffer );
+			return;
+		}
+		final ByteBuffer b = data.duplicate();
+		final byte[] chunk = new byte[ Math.min( CHUNK_SIZE, b.remaining() ) ];
+		while( b.hasRemaining() ) {
+			final int n = Math.min( chunk.length, b.remaining() );
+			b.get( chunk, 0, n );
+			os.write( chunk, 0, n );
+		}
+	}
+
+	/**
+	 * Writes the bytes of this byte array to the given channel. Bytes held in a direct buffer are
+	 * handed to the channel as they are.
+	 *
+	 * @param channel the channel to write to
+	 * @throws IOException if writing fails
+	 */
+	public void writeTo( WritableByteChannel channel )
+		throws IOException {
+		final ByteBuffer b = asByteBuffer();
+		while( b.hasRemaining() ) {
+			channel.write( b );
+		}
+	}
+
+	/**
+	 * Returns a stream reading the bytes of this byte array.
+	 *
+	 * @return a new stream over the bytes of this byte array
+	 */
+	public InputStream inputStream() {
+		final ByteBuffer b = asByteBuffer();
+		return new InputStream() {
+			@Override
+			public int read() {
+				return b.hasRemaining() ? b.get() & 0xFF : -1;
+			}
+
+			@Override
+			public int read( byte[] bytes, int offset, int length ) {
+				if( length == 0 ) {
+					return 0;
+				}
+				if( !b.hasRemaining() ) {
+					return -1;
+				}
+				final int n = Math.min( length, b.remaining() );
+				b.get( bytes, offset, n );
+				return n;
+			}
+
+			@Override
+			public int available() {
+				return b.remaining();
+			}
+		};
 	}
 
 	public boolean equals( ByteArray other ) {
-		return Arrays.equals( buffer, other.buffer );
+		if( buffer != null && other.buffer != null ) {
+			return Arrays.equals( buffer, other.buffer );
+		}
+		return asByteBuffer().equals( other.asByteBuffer() );
+	}
+
+	@Override
+	public boolean equals( Object other ) {
+		return other instanceof ByteArray && equals( (ByteArray) other );
+	}
+
+	/**
+	 * Returns a hash code of the content of this byte array, the same as
+	 * {@link Arrays#hashCode(byte[])} whether it is kept in the heap or not.
+	 */
+	@Override
+	public int hashCode() {
+		if( buffer != null ) {
+			return Arrays.hashCode( buffer );
+		}
+		final ByteBuffer b = data;
+		int h = 1;
+		for( int i = b.position(); i < b.limit(); i++ ) {
+			h = 31 * h + b.get( i );
+		}
+		return h;
 	}
 
 	@Override
 	public String toString() {
-		return new String( buffer );
+		return buffer == null ? toString( Charset.defaultCharset() ) : new String( buffer );
 	}
 
 	public String toString( String charset ) throws UnsupportedEncodingException {
-		return new String( buffer, charset );
+		return buffer == null ? toString( Charset.forName( charset ) ) : new String( buffer, charset );
+	}
+
+	private String toString( Charset charset ) {
+		return charset.decode( asByteBuffer() ).toString();
 	}
 }
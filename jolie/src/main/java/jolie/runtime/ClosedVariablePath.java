@@ -36,8 +36,13 @@ public class ClosedVariablePath extends VariablePath {
 		this.rootValue = rootValue;
 	}
 
+	public ClosedVariablePath( Pair< Expression, Expression >[] path, Value rootValue, boolean constantValues ) {
+		super( path, constantValues );
+		this.rootValue = rootValue;
+	}
+
 	public ClosedVariablePath( VariablePath otherPath, Value rootValue ) {
-		this( otherPath.path(), rootValue );
+		this( otherPath.path(), rootValue, otherPath.hasConstantValues() );
 	}
 
 	@Override
@@ -48,7 +53,7 @@ public class ClosedVariablePath extends VariablePath {
 	@Override
 	public Expression cloneExpression( TransformationReason reason ) {
 		Pair< Expression, Expression >[] clonedPath = cloneExpressionHelper( path(), reason );
-		return new ClosedVariablePath( clonedPath, rootValue );
+		return new ClosedVariablePath( clonedPath, rootValue, hasConstantValues() );
 	}
 
 	@Override
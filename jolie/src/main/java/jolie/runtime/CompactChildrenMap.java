@@ -0,0 +1,461 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import jolie.lang.Constants;
+
+/**
+ * The children of a {@link Value}, kept inline in a single array of names and vectors as long as
+ * they are few.
+ *
+ * Most nodes of a message tree have a handful of children, for which a hash table costs several
+ * times the memory of the children themselves. This map stores them in an array that is replaced,
+ * never changed, by every write, so reads and iterations take no lock and see a consistent
+ * snapshot. Writes are serialised by the monitor of the map. When a node gets more than
+ * {@link #MAX_INLINE_CHILDREN} children, they are moved to a {@link ConcurrentHashMap} for good.
+ *
+ * Deep copies share vectors between maps instead of copying them (see
+ * {@link ValueImpl#copyOnWrite(Value)}). A map modifies in place only the vectors it owns: every
+ * method that returns a vector, iterations included, replaces a shared vector with an owned copy
+ * before returning it. Only {@link #sharedGet(Object)}, {@link #sharedEntries()} and
+ * {@link #sharedValues()} return vectors as they are, for the callers that just read them.
+ *
+ * Replacing or removing a vector advances the {@link TreeEpoch} of the tree that adopted the map,
+ * if any.
+ */
+final class CompactChildrenMap extends AbstractMap< String, ValueVector > implements Serializable {
+	private static final long serialVersionUID = Constants.serialVersionUID();
+	static final int MAX_INLINE_CHILDREN = 8;
+	private static final Object[] EMPTY = new Object[ 0 ];
+
+	// Names at even positions, each followed by its vector. null once the children are in delegate.
+	private volatile Object[] entries = EMPTY;
+	// Holds the children once they are too many to keep inline
+	private volatile Map< String, ValueVector > delegate = null;
+	private transient volatile TreeEpoch tree = null;
+
+	private static final AtomicReferenceFieldUpdater< CompactChildrenMap, TreeEpoch > TREE =
+		AtomicReferenceFieldUpdater.newUpdater( CompactChildrenMap.class, TreeEpoch.class, "tree" );
+
+	TreeEpoch tree() {
+		return tree;
+	}
+
+	/**
+	 * Makes the structural changes of this map advance the epoch of the given tree.
+	 *
+	 * @return <code>false</code> if this map has been adopted by another tree
+	 */
+	boolean adopt( TreeEpoch t ) {
+		final TreeEpoch current = tree;
+		return current == t || (current == null && (TREE.compareAndSet( this, null, t ) || tree == t));
+	}
+
+	private static int indexOf( Object[] a, Object key ) {
+		for( int i = 0; i < a.length; i += 2 ) {
+			if( a[ i ].equals( key ) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int size() {
+		final Object[] a = entries;
+		return a == null ? delegate.size() : a.length / 2;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		final Object[] a = entries;
+		return a == null ? delegate.isEmpty() : a.length == 0;
+	}
+
+	@Override
+	public boolean containsKey( Object key ) {
+		final Object[] a = entries;
+		return a == null ? delegate.containsKey( key ) : indexOf( a, key ) >= 0;
+	}
+
+	// Returns the vector for key, whether this map owns it or not
+	private ValueVector lookup( Object key ) {
+		final Object[] a = entries;
+		if( a == null ) {
+			return delegate.get( key );
+		}
+		final int i = indexOf( a, key );
+		return i < 0 ? null : (ValueVector) a[ i + 1 ];
+	}
+
+	private boolean owns( ValueVector vector ) {
+		return !(vector instanceof ValueVectorImpl) || ((ValueVectorImpl) vector).owner() == this;
+	}
+
+	private void claim( ValueVector vector ) {
+		if( vector instanceof ValueVectorImpl && ((ValueVectorImpl) vector).owner() == null ) {
+			((ValueVectorImpl) vector).setOwner( this );
+		}
+	}
+
+	/**
+	 * Returns the vector for key. If the vector is shared with other maps by a deep copy, it is first
+	 * replaced with a copy owned by this map, so that callers can modify it.
+	 */
+	@Override
+	public ValueVector get( Object key ) {
+		final ValueVector vector = lookup( key );
+		return vector == null || owns( vector ) ? vector : own( (String) key );
+	}
+
+	private synchronized ValueVector own( String key ) {
+		final ValueVector vector = lookup( key );
+		if( vector == null || owns( vector ) ) {
+			return vector;
+		}
+		final ValueVectorImpl copy = ((ValueVectorImpl) vector).copyFor( this );
+		store( key, copy );
+		return copy;
+	}
+
+	@Override
+	public ValueVector put( String key, ValueVector value ) {
+		Objects.requireNonNull( key );
+		Objects.requireNonNull( value );
+		synchronized( this ) {
+			claim( value );
+			return store( key, value );
+		}
+	}
+
+	/**
+	 * Puts a vector that is shared with other maps, and that this map copies before letting it be
+	 * modified.
+	 *
+	 * @param key the name of the children
+	 * @param value a vector without an owner
+	 */
+	synchronized void putShared( String key, ValueVector value ) {
+		store( key, value );
+	}
+
+	// Must be called while holding the monitor of this map
+	private ValueVector store( String key, ValueVector value ) {
+		final Object[] a = entries;
+		if( a == null ) {
+			final ValueVector old = delegate.put( key, value );
+			if( old != null ) {
+				TreeEpoch.advance( tree );
+			}
+			return old;
+		}
+		final int i = indexOf( a, key );
+		if( i >= 0 ) {
+			final ValueVector old = (ValueVector) a[ i + 1 ];
+			final Object[] b = a.clone();
+			b[ i + 1 ] = value;
+			entries = b;
+			TreeEpoch.advance( tree );
+			return old;
+		}
+		insert( a, key, value );
+		return null;
+	}
+
+	// Must be called while holding the monitor of this map
+	private void insert( Object[] a, String key, ValueVector value ) {
+		if( a.length / 2 < MAX_INLINE_CHILDREN ) {
+			final Object[] b = Arrays.copyOf( a, a.length + 2 );
+			b[ a.length ] = key;
+			b[ a.length + 1 ] = value;
+			entries = b;
+		} else {
+			final Map< String, ValueVector > map = new ConcurrentHashMap<>( MAX_INLINE_CHILDREN * 4 );
+			for( int i = 0; i < a.length; i += 2 ) {
+				map.put( (String) a[ i ], (ValueVector) a[ i + 1 ] );
+			}
+			map.put( key, value );
+			// Readers check entries first, so delegate must be visible before entries is cleared
+			delegate = map;
+			entries = null;
+		}
+	}
+
+	@Override
+	public ValueVector putIfAbsent( String key, ValueVector value ) {
+		return computeIfAbsent( key, k -> value );
+	}
+
+	@Override
+	public ValueVector computeIfAbsent( String key,
+		Function< ? super String, ? extends ValueVector > mappingFunction ) {
+		final ValueVector current = get( key );
+		if( current != null ) {
+			return current;
+		}
+		synchronized( this ) {
+			final ValueVector vector = get( key );
+			if( vector != null ) {
+				return vector;
+			}
+			final ValueVector value = mappingFunction.apply( key );
+			if( value != null ) {
+				claim( value );
+				store( key, value );
+			}
+			return value;
+		}
+	}
+
+	@Override
+	public ValueVector remove( Object key ) {
+		synchronized( this ) {
+			final Object[] a = entries;
+			if( a == null ) {
+				final ValueVector old = delegate.remove( key );
+				if( old != null ) {
+					TreeEpoch.advance( tree );
+				}
+				return old;
+			}
+			final int i = indexOf( a, key );
+			if( i < 0 ) {
+				return null;
+			}
+			final Object[] b = new Object[ a.length - 2 ];
+			System.arraycopy( a, 0, b, 0, i );
+			System.arraycopy( a, i + 2, b, i, a.length - i - 2 );
+			entries = b;
+			TreeEpoch.advance( tree );
+			return (ValueVector) a[ i + 1 ];
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		if( entries == null ) {
+			delegate.clear();
+		} else {
+			entries = EMPTY;
+		}
+		TreeEpoch.advance( tree );
+	}
+
+	// Returns the vector found for key by an iteration, owned by this map
+	private ValueVector owned( String key, ValueVector vector ) {
+		if( owns( vector ) ) {
+			return vector;
+		}
+		final ValueVector ret = own( key );
+		return ret == null ? vector : ret;
+	}
+
+	@Override
+	public void forEach( BiConsumer< ? super String, ? super ValueVector > action ) {
+		final Object[] a = entries;
+		if( a == null ) {
+			delegate.forEach( ( key, vector ) -> action.accept( key, owned( key, vector ) ) );
+		} else {
+			for( int i = 0; i < a.length; i += 2 ) {
+				action.accept( (String) a[ i ], owned( (String) a[ i ], (ValueVector) a[ i + 1 ] ) );
+			}
+		}
+	}
+
+	@Override
+	public Set< Entry< String, ValueVector > > entrySet() {
+		return new EntrySet();
+	}
+
+	/**
+	 * Returns the vector for key without copying it if it is shared with other maps, so it must not be
+	 * modified.
+	 */
+	ValueVector sharedGet( Object key ) {
+		return lookup( key );
+	}
+
+	/**
+	 * Returns the children of this map without copying the vectors shared with other maps, which must
+	 * not be modified.
+	 */
+	Iterable< Entry< String, ValueVector > > sharedEntries() {
+		final Object[] a = entries;
+		if( a == null ) {
+			return delegate.entrySet();
+		}
+		return () -> new Iterator< Entry< String, ValueVector > >() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < a.length;
+			}
+
+			@Override
+			public Entry< String, ValueVector > next() {
+				if( next >= a.length ) {
+					throw new NoSuchElementException();
+				}
+				final Entry< String, ValueVector > entry =
+					new SimpleImmutableEntry<>( (String) a[ next ], (ValueVector) a[ next + 1 ] );
+				next += 2;
+				return entry;
+			}
+		};
+	}
+
+	/**
+	 * Returns the vectors of this map without copying the ones shared with other maps, which must not
+	 * be modified.
+	 */
+	Iterable< ValueVector > sharedValues() {
+		final Object[] a = entries;
+		if( a == null ) {
+			return delegate.values();
+		}
+		return () -> new Iterator< ValueVector >() {
+			private int next = 1;
+
+			@Override
+			public boolean hasNext() {
+				return next < a.length;
+			}
+
+			@Override
+			public ValueVector next() {
+				if( next >= a.length ) {
+					throw new NoSuchElementException();
+				}
+				final ValueVector vector = (ValueVector) a[ next ];
+				next += 2;
+				return vector;
+			}
+		};
+	}
+
+	private class EntrySet extends AbstractSet< Entry< String, ValueVector > > {
+		@Override
+		public Iterator< Entry< String, ValueVector > > iterator() {
+			final Object[] a = entries;
+			return a == null ? new DelegateEntryIterator( delegate.entrySet().iterator() )
+				: new EntryIterator( a );
+		}
+
+		@Override
+		public int size() {
+			return CompactChildrenMap.this.size();
+		}
+	}
+
+	private class EntryIterator implements Iterator< Entry< String, ValueVector > > {
+		private final Object[] a;
+		private int next = 0;
+		private String last = null;
+
+		private EntryIterator( Object[] a ) {
+			this.a = a;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < a.length;
+		}
+
+		@Override
+		public Entry< String, ValueVector > next() {
+			if( next >= a.length ) {
+				throw new NoSuchElementException();
+			}
+			last = (String) a[ next ];
+			final Entry< String, ValueVector > entry =
+				new WriteThroughEntry( last, owned( last, (ValueVector) a[ next + 1 ] ) );
+			next += 2;
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			if( last == null ) {
+				throw new IllegalStateException();
+			}
+			CompactChildrenMap.this.remove( last );
+			last = null;
+		}
+	}
+
+	// Routes the changes made through the iterator to this map, so that they are counted by TreeEpoch
+	private class DelegateEntryIterator implements Iterator< Entry< String, ValueVector > > {
+		private final Iterator< Entry< String, ValueVector > > it;
+		private String last = null;
+
+		private DelegateEntryIterator( Iterator< Entry< String, ValueVector > > it ) {
+			this.it = it;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return it.hasNext();
+		}
+
+		@Override
+		public Entry< String, ValueVector > next() {
+			final Entry< String, ValueVector > entry = it.next();
+			last = entry.getKey();
+			return new WriteThroughEntry( last, owned( last, entry.getValue() ) );
+		}
+
+		@Override
+		public void remove() {
+			if( last == null ) {
+				throw new IllegalStateException();
+			}
+			CompactChildrenMap.this.remove( last );
+			last = null;
+		}
+	}
+
+	@SuppressWarnings( "serial" )
+	private class WriteThroughEntry extends SimpleEntry< String, ValueVector > {
+		private WriteThroughEntry( String key, ValueVector value ) {
+			super( key, value );
+		}
+
+		@Override
+		public ValueVector setValue( ValueVector value ) {
+			super.setValue( value );
+			return put( getKey(), value );
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import java.util.Map;
+
+/**
+ * The children of a received value, still in the encoding of the message that carried them. They
+ * are decoded the first time they are accessed (see
+ * {@link Value#createLazy(Object, EncodedChildren)}), so that the parts of a message that are never
+ * read are never decoded. Until then, an encoder of the same format can write them as they are (see
+ * {@link Value#encodedChildren()}).
+ */
+public interface EncodedChildren {
+	/**
+	 * Decodes the children and puts them in the given map, which is empty. Called at most once.
+	 *
+	 * @param children the map of the children of the value
+	 */
+	void decodeInto( Map< String, ValueVector > children );
+
+	/**
+	 * Returns the number of bytes of the encoding.
+	 *
+	 * @return the size of the encoded children, in bytes
+	 */
+	int size();
+}
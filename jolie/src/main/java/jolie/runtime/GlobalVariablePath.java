@@ -35,6 +35,10 @@ public class GlobalVariablePath extends VariablePath {
 		super( path );
 	}
 
+	public GlobalVariablePath( Pair< Expression, Expression >[] path, boolean constantValues ) {
+		super( path, constantValues );
+	}
+
 	@Override
 	public boolean isGlobal() {
 		return true;
@@ -48,7 +52,7 @@ public class GlobalVariablePath extends VariablePath {
 	@Override
 	public Expression cloneExpression( TransformationReason reason ) {
 		Pair< Expression, Expression >[] clonedPath = cloneExpressionHelper( path(), reason );
-		return new GlobalVariablePath( clonedPath );
+		return new GlobalVariablePath( clonedPath, hasConstantValues() );
 	}
 
 	@Override
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Estimates the heap retained by value trees, for accounting the memory used by sessions.
+ *
+ * The estimates assume a 64-bit JVM with compressed references. They do not follow links, and count
+ * the subtrees shared by deep copies once per copy. Byte arrays count their size, whether they are
+ * kept in the heap or not, and children still encoded (see {@link EncodedChildren}) count the size
+ * of their encoding.
+ */
+public final class HeapSize {
+	/** The estimated size of a value node, without its content and children. */
+	public static final long NODE = 40L;
+	private static final long MAP = 32L;
+	private static final long MAP_ENTRY = 16L;
+	private static final long VECTOR = 32L;
+	private static final long VECTOR_ELEMENT = 8L;
+	private static final long STRING = 40L;
+	private static final long OBJECT = 16L;
+
+	private HeapSize() {}
+
+	/**
+	 * Returns the estimated size of the content of the given value, without the node holding it.
+	 *
+	 * @param value the value to measure
+	 * @return the estimated size of the content of value, in bytes
+	 */
+	public static long ofContent( Value value ) {
+		final Object o = value.rawValueObject();
+		if( o == null || o instanceof UnboxedKind ) {
+			return 0L;
+		} else if( o instanceof String ) {
+			return STRING + ((String) o).length();
+		} else if( o instanceof ByteArray ) {
+			return OBJECT + ((ByteArray) o).size();
+		}
+		return OBJECT;
+	}
+
+	/**
+	 * Returns the estimated size of the tree rooted in the given value.
+	 *
+	 * @param value the root of the tree to measure
+	 * @return the estimated size of the tree, in bytes
+	 */
+	public static long of( Value value ) {
+		long size = 0L;
+		final Deque< Value > pending = new ArrayDeque<>();
+		pending.push( value );
+		while( !pending.isEmpty() ) {
+			final Value v = pending.pop();
+			size += NODE;
+			if( v.isLink() ) {
+				continue;
+			}
+			size += ofContent( v );
+			final EncodedChildren encoded = v.encodedChildren();
+			if( encoded != null ) {
+				size += encoded.size();
+				continue;
+			}
+			final Map< String, ValueVector > children =
+				v instanceof ValueImpl ? ((ValueImpl) v).childrenOrNull() : v.children();
+			if( children != null && !children.isEmpty() ) {
+				size += MAP;
+				for( ValueVector vector : children instanceof CompactChildrenMap
+					? ((CompactChildrenMap) children).sharedValues()
+					: children.values() ) {
+					size += MAP_ENTRY + VECTOR;
+					if( !vector.isLink() ) {
+						for( Value element : vector ) {
+							size += VECTOR_ELEMENT;
+							pending.push( element );
+						}
+					}
+				}
+			}
+		}
+		return size;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jolie.lang.Constants;
+
+/**
+ * A lock used for the synchronized blocks of a program (see
+ * {@link jolie.Interpreter#getLock(String)}), which records how contended it is.
+ *
+ * Being a {@link ReentrantLock} rather than a monitor, it does not pin the virtual threads that
+ * wait for it.
+ */
+public final class InstrumentedLock extends ReentrantLock {
+	private static final long serialVersionUID = Constants.serialVersionUID();
+
+	private final String id;
+	private final Condition condition = newCondition();
+	private final LongAdder acquisitions = new LongAdder();
+	private final LongAdder contentions = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong( 0L );
+
+	/**
+	 * @param id the identifier of the lock
+	 */
+	public InstrumentedLock( String id ) {
+		this.id = id;
+	}
+
+	/**
+	 * Returns the identifier of this lock.
+	 */
+	public String id() {
+		return id;
+	}
+
+	/**
+	 * Returns the condition on which the threads holding this lock can wait to be notified.
+	 */
+	public Condition condition() {
+		return condition;
+	}
+
+	/**
+	 * Acquires this lock, waiting for it at most for the given time.
+	 *
+	 * @param timeout the maximum time to wait, in milliseconds, or a value that is not positive to wait
+	 *        as long as it takes
+	 * @return true if the lock has been acquired, false if the timeout elapsed first
+	 * @throws InterruptedException if the thread was interrupted while waiting with a timeout
+	 */
+	public boolean acquire( long timeout )
+		throws InterruptedException {
+		if( tryLock() ) {
+			acquisitions.increment();
+			return true;
+		}
+
+		final long start = System.nanoTime();
+		boolean acquired = false;
+		try {
+			if( timeout > 0 ) {
+				acquired = tryLock( timeout, TimeUnit.MILLISECONDS );
+			} else {
+				lock();
+				acquired = true;
+			}
+		} finally {
+			final long waited = System.nanoTime() - start;
+			waitNanos.add( waited );
+			maxWaitNanos.accumulateAndGet( waited, Math::max );
+			contentions.increment();
+			if( acquired ) {
+				acquisitions.increment();
+			} else {
+				timeouts.increment();
+			}
+		}
+		return acquired;
+	}
+
+	/**
+	 * Returns the number of times this lock has been acquired with {@link #acquire(long)}.
+	 */
+	public long acquisitions() {
+		return acquisitions.sum();
+	}
+
+	/**
+	 * Returns the number of calls of {@link #acquire(long)} that had to wait for this lock.
+	 */
+	public long contentions() {
+		return contentions.sum();
+	}
+
+	/**
+	 * Returns the number of calls of {@link #acquire(long)} that gave up waiting for this lock.
+	 */
+	public long timeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * Returns the total time that threads have spent waiting for this lock, in nanoseconds.
+	 */
+	public long waitNanos() {
+		return waitNanos.sum();
+	}
+
+	/**
+	 * Returns the longest time that a thread has waited for this lock, in nanoseconds.
+	 */
+	public long maxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+	/**
+	 * Returns the name of the thread that holds this lock, or null if the lock is free.
+	 */
+	public String holderName() {
+		final Thread owner = getOwner();
+		return owner == null ? null : owner.getName();
+	}
+}
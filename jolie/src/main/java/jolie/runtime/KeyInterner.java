@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interns the names of the children of decoded messages, shared by all the interpreters of the JVM.
+ *
+ * Message decoders see the same few names (e.g., "row", "id", "name") over and over, and would
+ * otherwise keep a copy of each of them in every node they create. The interner is a bounded cache:
+ * a name is looked up in at most {@link #MAX_PROBES} slots of a table of {@link #capacity()}
+ * entries, and a new name replaces an old one when all of them are taken. Names seeded with
+ * {@link #seed(String)}, like those of the types of the program, are never replaced. The table is
+ * read and written without locking: entries are immutable, so a thread may at worst miss an entry
+ * that another thread just added, and intern a name twice. The capacity defaults to
+ * {@link #DEFAULT_CAPACITY}, and can be changed by the interpreter with {@link #setCapacity(int)}.
+ */
+public class KeyInterner {
+	public static final int DEFAULT_CAPACITY = 8192;
+	private static final int MAX_PROBES = 4;
+	// Names longer than this are rarely repeated, so they are not interned
+	private static final int MAX_KEY_LENGTH = 64;
+
+	private static volatile KeyInterner instance = new KeyInterner( DEFAULT_CAPACITY );
+
+	private static class Entry {
+		private final String key;
+		private final boolean seeded;
+
+		private Entry( String key, boolean seeded ) {
+			this.key = key;
+			this.seeded = seeded;
+		}
+	}
+
+	// Maps encoded names to their interned strings, so that decoders can skip creating the string
+	private static class EncodedEntry {
+		private final byte[] bytes;
+		private final int hash;
+		private final Charset charset;
+		private final String key;
+
+		private EncodedEntry( byte[] bytes, int hash, Charset charset, String key ) {
+			this.bytes = bytes;
+			this.hash = hash;
+			this.charset = charset;
+			this.key = key;
+		}
+
+		private boolean matches( byte[] b, int offset, int length, int h, Charset c ) {
+			if( hash != h || bytes.length != length || !charset.equals( c ) ) {
+				return false;
+			}
+			for( int i = 0; i < length; i++ ) {
+				if( bytes[ i ] != b[ offset + i ] ) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final int mask;
+	private final Entry[] entries;
+	private final EncodedEntry[] encodedEntries;
+	private final AtomicInteger size = new AtomicInteger( 0 );
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private KeyInterner( int capacity ) {
+		this.mask = capacity - 1;
+		this.entries = new Entry[ capacity ];
+		this.encodedEntries = new EncodedEntry[ capacity ];
+	}
+
+	public static KeyInterner getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the number of names that the interner can hold, rounded up to a power of two of at least
+	 * {@link #MAX_PROBES}. If the capacity changes, the interner is replaced by an empty one: this is
+	 * meant to be called before the program is built, so that its names are seeded in the new interner.
+	 *
+	 * @param capacity the requested capacity
+	 */
+	public static synchronized void setCapacity( int capacity ) {
+		int c = MAX_PROBES;
+		while( c < capacity && c < (1 << 30) ) {
+			c <<= 1;
+		}
+		if( c != instance.capacity() ) {
+			instance = new KeyInterner( c );
+		}
+	}
+
+	/**
+	 * Returns the interned instance of the given name, interning it if it is not already.
+	 *
+	 * @param key the name to intern
+	 * @return a string equal to key
+	 */
+	public String intern( String key ) {
+		return intern( key, false );
+	}
+
+	/**
+	 * Interns the given name for good, so that it is never replaced by other names.
+	 *
+	 * @param key the name to intern
+	 * @return a string equal to key
+	 */
+	public String seed( String key ) {
+		return intern( key, true );
+	}
+
+	private String intern( String key, boolean seed ) {
+		if( key.length() > MAX_KEY_LENGTH ) {
+			return key;
+		}
+		final int start = spread( key.hashCode() );
+		int victim = -1;
+		for( int i = 0; i < MAX_PROBES; i++ ) {
+			final int slot = (start + i) & mask;
+			final Entry entry = entries[ slot ];
+			if( entry == null ) {
+				if( victim < 0 || entries[ victim ] != null ) {
+					victim = slot;
+				}
+			} else if( entry.key.equals( key ) ) {
+				if( seed && !entry.seeded ) {
+					entries[ slot ] = new Entry( entry.key, true );
+				}
+				hits.increment();
+				return entry.key;
+			} else if( victim < 0 && !entry.seeded ) {
+				victim = slot;
+			}
+		}
+		misses.increment();
+		if( victim >= 0 ) {
+			if( entries[ victim ] == null ) {
+				size.incrementAndGet();
+			}
+			entries[ victim ] = new Entry( key, seed );
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the interned instance of the name encoded in the given bytes, decoding it only if it has
+	 * not been seen before.
+	 *
+	 * @param bytes the buffer holding the encoded name
+	 * @param offset the position of the name in bytes
+	 * @param length the length of the encoded name
+	 * @param charset the charset used to encode the name
+	 * @return the decoded name
+	 */
+	public String intern( byte[] bytes, int offset, int length, Charset charset ) {
+		if( length > MAX_KEY_LENGTH ) {
+			return new String( bytes, offset, length, charset );
+		}
+		int h = 1;
+		for( int i = offset; i < offset + length; i++ ) {
+			h = 31 * h + bytes[ i ];
+		}
+		final int slot = spread( h ) & mask;
+		final EncodedEntry entry = encodedEntries[ slot ];
+		if( entry != null && entry.matches( bytes, offset, length, h, charset ) ) {
+			hits.increment();
+			return entry.key;
+		}
+		final byte[] copy = new byte[ length ];
+		System.arraycopy( bytes, offset, copy, 0, length );
+		final String key = intern( new String( copy, charset ), false );
+		encodedEntries[ slot ] = new EncodedEntry( copy, h, charset, key );
+		return key;
+	}
+
+	private static int spread( int h ) {
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the maximum number of names that this interner can hold.
+	 *
+	 * @return the capacity of this interner
+	 */
+	public int capacity() {
+		return entries.length;
+	}
+
+	/**
+	 * Returns the number of names held by this interner, which is at most {@link #capacity()}.
+	 *
+	 * @return the number of interned names
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Returns how many times a name was found already interned.
+	 *
+	 * @return the number of hits
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns how many times a name was not found, and was interned or, if there was no room for it,
+	 * returned as it is.
+	 *
+	 * @return the number of misses
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+}
@@ -22,15 +22,29 @@
 package jolie.runtime;
 
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import jolie.ExecutionThread;
 import jolie.TransparentExecutionThread;
 import jolie.process.Process;
 
+/**
+ * Runs the branches of a parallel composition.
+ *
+ * The thread that runs the composition takes part in it: it runs branches itself, taking them from
+ * the same pool of branches as the helpers that it schedules on the thread pool of the interpreter.
+ * Short branches are thus mostly run without any thread hand-off. Whenever a branch is taken while
+ * others are left, a helper is scheduled unless one is already waiting to start, so that a branch
+ * that blocks (e.g., waiting for a message) never holds back the others.
+ */
 public class ParallelExecution {
 	private class ParallelThread extends TransparentExecutionThread {
+		private boolean terminated = false; // guarded by lock
+
 		public ParallelThread( Process process ) {
 			super( process, ExecutionThread.currentThread() );
 		}
@@ -52,88 +66,118 @@ public class ParallelExecution {
 		}
 	}
 
-	final private Collection< ParallelThread > threads = new HashSet<>();
+	private final ParallelThread[] threads;
+	// Branches are taken from the last one down
+	private final AtomicInteger nextThread;
+	private final AtomicBoolean helperScheduled = new AtomicBoolean( false );
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition condition = lock.newCondition();
+	private int running; // guarded by lock
 	private FaultException fault = null;
 	private boolean isKilled = false;
+	// Kept here, since the thread that runs this execution only references it weakly
+	private FutureTask< Void > killSignal;
 
 	public ParallelExecution( Process[] procs ) {
-		for( Process proc : procs ) {
-			threads.add( new ParallelThread( proc ) );
+		threads = new ParallelThread[ procs.length ];
+		for( int i = 0; i < procs.length; i++ ) {
+			threads[ i ] = new ParallelThread( procs[ i ] );
 		}
+		nextThread = new AtomicInteger( procs.length );
+		running = procs.length;
 	}
 
 	public void run()
 		throws FaultException {
-		synchronized( this ) {
-			for( ParallelThread t : threads ) {
-				t.start();
+		final ExecutionThread ethread = ExecutionThread.currentThread();
+		// Cancelled by ethread if it gets killed, even while it is running one of the branches
+		killSignal = new FutureTask< Void >( () -> {
+		}, null ) {
+			@Override
+			public boolean cancel( boolean mayInterruptIfRunning ) {
+				killNotify( ethread.killerFault() );
+				return super.cancel( mayInterruptIfRunning );
 			}
+		};
+		ethread.cancelIfKilled( killSignal );
 
-			ExecutionThread ethread;
-			while( fault == null && !threads.isEmpty() ) {
-				ethread = ExecutionThread.currentThread();
-				try {
-					ethread.setCanBeInterrupted( true );
-					wait();
-					ethread.setCanBeInterrupted( false );
-				} catch( InterruptedException e ) {
-					synchronized( this ) {
-						if( ethread.isKilled() && !threads.isEmpty() ) {
-							isKilled = true;
-							for( ParallelThread t : threads ) {
-								t.kill( ethread.killerFault() );
-							}
-							try {
-								wait();
-							} catch( InterruptedException ie ) {
-							}
-						}
-					}
-				}
-			}
+		runThreads();
 
+		lock.lock();
+		try {
+			while( running > 0 ) {
+				condition.awaitUninterruptibly();
+			}
 			if( fault != null ) {
-				for( ParallelThread t : threads ) {
-					t.kill( fault );
-				}
-				while( !threads.isEmpty() ) {
-					try {
-						wait();
-					} catch( InterruptedException e ) {
-					}
-				}
 				throw fault;
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
-	private void terminationNotify( ParallelThread thread ) {
-		synchronized( this ) {
-			threads.remove( thread );
+	// Runs branches in the current thread until there are none left to take
+	private void runThreads() {
+		int i;
+		while( (i = nextThread.decrementAndGet()) >= 0 ) {
+			if( i > 0 && helperScheduled.compareAndSet( false, true ) ) {
+				threads[ 0 ].interpreter().runJolieThread( this::help );
+			}
+			threads[ i ].runInCurrentThread();
+		}
+	}
+
+	private void help() {
+		helperScheduled.set( false );
+		runThreads();
+	}
 
-			if( threads.isEmpty() ) {
-				notify();
+	// Must be called while holding lock
+	private void killThreads( FaultException f ) {
+		for( ParallelThread t : threads ) {
+			if( !t.terminated ) {
+				t.kill( f );
 			}
 		}
 	}
 
+	private void killNotify( FaultException f ) {
+		lock.lock();
+		try {
+			if( f != null && !isKilled && fault == null && running > 0 ) {
+				isKilled = true;
+				killThreads( f );
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 
-	private void signalFault( ParallelThread thread, FaultException f ) {
-		synchronized( this ) {
-			threads.remove( thread );
-			if( isKilled ) {
-				if( threads.isEmpty() ) {
-					notify();
-				}
-			} else {
-				if( fault == null ) {
-					fault = f;
-					notify();
-				} else if( threads.isEmpty() ) {
-					notify();
-				}
+	private void terminationNotify( ParallelThread thread ) {
+		lock.lock();
+		try {
+			thread.terminated = true;
+			if( --running == 0 ) {
+				condition.signal();
 			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
+	private void signalFault( ParallelThread thread, FaultException f ) {
+		lock.lock();
+		try {
+			thread.terminated = true;
+			if( !isKilled && fault == null ) {
+				fault = f;
+				killThreads( f );
+			}
+			if( --running == 0 ) {
+				condition.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 }
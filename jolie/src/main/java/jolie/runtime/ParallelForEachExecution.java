@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jolie.ExecutionThread;
+import jolie.State;
+import jolie.TransparentExecutionThread;
+import jolie.process.Process;
+
+/**
+ * Runs the iterations of a parallel foreach.
+ *
+ * The iterations are run by a few branches, about one per processor, that take them in chunks of
+ * consecutive indexes. The thread that runs the loop runs one of the branches itself; the others
+ * are run by the thread pool of the interpreter. Each branch has its own loop variable (see
+ * {@link State#branch(VariablePath)}), and shares all the other variables with the thread that runs
+ * the loop.
+ *
+ * Faults are reported as if the iterations had been run in order: the loop throws the fault of the
+ * iteration with the lowest index that faulted. Every iteration before that one is run, and no
+ * iteration after it is started once the fault is known.
+ */
+public class ParallelForEachExecution {
+	/**
+	 * The body of the loop.
+	 */
+	@FunctionalInterface
+	public interface Iteration {
+		/**
+		 * Runs the iteration with the given index, in the current branch.
+		 *
+		 * @param index the index of the iteration
+		 */
+		void run( int index )
+			throws FaultException, ExitingException;
+	}
+
+	private class BranchThread extends TransparentExecutionThread {
+		private final State state;
+
+		public BranchThread( Process process, ExecutionThread parent ) {
+			super( process, parent );
+			state = parent.state().branch( localVariable );
+		}
+
+		@Override
+		public State state() {
+			return state;
+		}
+
+		@Override
+		public void runProcess() {
+			runIterations( this );
+		}
+	}
+
+	private final int size;
+	private final int workers;
+	// A few chunks per branch, so that the branches get about the same work even if iterations differ
+	private final int chunkSize;
+	private final VariablePath localVariable;
+	private final Process body;
+	private final Iteration iteration;
+	private final AtomicInteger nextIndex = new AtomicInteger( 0 );
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition condition = lock.newCondition();
+	private volatile int faultIndex = Integer.MAX_VALUE; // written while holding lock
+	private volatile boolean exiting = false;
+	private FaultException fault = null; // guarded by lock
+	private int terminated = 0; // guarded by lock
+	private boolean isKilled = false; // guarded by lock
+	// Kept here, since the thread that runs the loop only references it weakly
+	private FutureTask< Void > killSignal;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param size the number of iterations
+	 * @param localVariable the path of the loop variable, which is local to each branch
+	 * @param body the process run by the iterations
+	 * @param iteration runs an iteration of the loop
+	 */
+	public ParallelForEachExecution( int size, VariablePath localVariable, Process body, Iteration iteration ) {
+		this.size = size;
+		this.workers = Math.max( 1, Math.min( size, Runtime.getRuntime().availableProcessors() ) );
+		this.chunkSize = Math.max( 1, size / (workers * 4) );
+		this.localVariable = localVariable;
+		this.body = body;
+		this.iteration = iteration;
+	}
+
+	public void run()
+		throws FaultException {
+		if( size <= 0 ) {
+			return;
+		}
+		final ExecutionThread ethread = ExecutionThread.currentThread();
+		final BranchThread[] threads = new BranchThread[ workers ];
+		for( int i = 0; i < workers; i++ ) {
+			threads[ i ] = new BranchThread( body, ethread );
+		}
+
+		// Cancelled by ethread if it gets killed, even while it is running one of the branches
+		killSignal = new FutureTask< Void >( () -> {
+		}, null ) {
+			@Override
+			public boolean cancel( boolean mayInterruptIfRunning ) {
+				killNotify( threads, ethread.killerFault() );
+				return super.cancel( mayInterruptIfRunning );
+			}
+		};
+		ethread.cancelIfKilled( killSignal );
+
+		for( int i = 1; i < workers; i++ ) {
+			ethread.interpreter().runJolieThread( threads[ i ]::runInCurrentThread );
+		}
+		threads[ 0 ].runInCurrentThread();
+
+		lock.lock();
+		try {
+			while( terminated < size ) {
+				condition.awaitUninterruptibly();
+			}
+			if( fault != null && !isKilled ) {
+				throw fault;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Every index that is taken is accounted as terminated, whether its iteration is run or skipped
+	private void runIterations( BranchThread thread ) {
+		int start;
+		while( (start = nextIndex.getAndAdd( chunkSize )) < size ) {
+			final int end = (int) Math.min( (long) start + chunkSize, size );
+			for( int i = start; i < end; i++ ) {
+				if( i < faultIndex && !exiting && !thread.isKilled() ) {
+					runIteration( i );
+				}
+			}
+			terminationNotify( end - start );
+		}
+	}
+
+	private void runIteration( int index ) {
+		try {
+			try {
+				iteration.run( index );
+			} catch( FaultException.RuntimeFaultException rf ) {
+				throw rf.faultException();
+			}
+		} catch( FaultException f ) {
+			signalFault( index, f );
+		} catch( ExitingException e ) {
+			exiting = true;
+		}
+	}
+
+	private void signalFault( int index, FaultException f ) {
+		lock.lock();
+		try {
+			if( index < faultIndex ) {
+				faultIndex = index;
+				fault = f;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void killNotify( BranchThread[] threads, FaultException f ) {
+		lock.lock();
+		try {
+			if( f != null && !isKilled && terminated < size ) {
+				isKilled = true;
+				for( BranchThread t : threads ) {
+					t.kill( f );
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void terminationNotify( int count ) {
+		lock.lock();
+		try {
+			terminated += count;
+			if( terminated == size ) {
+				condition.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+/**
+ * The vectors remembered by the paths evaluated against a root value (see {@link VariablePath}).
+ *
+ * This is an open addressing table keyed by the identity of the path. Reads take no lock, writes
+ * are serialised by the monitor of the cache, and entries are never removed but replaced. A root
+ * keeps at most {@link #MAX_ENTRIES} paths: the other ones are evaluated as if they could not be
+ * remembered.
+ */
+final class PathCache {
+	static final class Entry {
+		private final VariablePath path;
+		final ValueVector first;
+		final long epoch;
+		final ValueVector vector;
+
+		Entry( VariablePath path, ValueVector first, long epoch, ValueVector vector ) {
+			this.path = path;
+			this.first = first;
+			this.epoch = epoch;
+			this.vector = vector;
+		}
+	}
+
+	private static final int INITIAL_CAPACITY = 8;
+	private static final int MAX_ENTRIES = 256;
+
+	// Always at least half empty, so that lookups end on an empty slot
+	private volatile Entry[] table = new Entry[ INITIAL_CAPACITY ];
+	private int size = 0;
+
+	Entry get( VariablePath path ) {
+		final Entry[] t = table;
+		final int mask = t.length - 1;
+		for( int i = path.cacheHash() & mask;; i = (i + 1) & mask ) {
+			final Entry e = t[ i ];
+			if( e == null || e.path == path ) {
+				return e;
+			}
+		}
+	}
+
+	synchronized void put( Entry entry ) {
+		final Entry[] t = table;
+		final int i = slot( t, entry.path );
+		if( t[ i ] != null ) {
+			t[ i ] = entry;
+		} else if( size < MAX_ENTRIES ) {
+			size++;
+			if( size * 2 > t.length ) {
+				final Entry[] b = new Entry[ t.length * 2 ];
+				for( Entry e : t ) {
+					if( e != null ) {
+						b[ slot( b, e.path ) ] = e;
+					}
+				}
+				b[ slot( b, entry.path ) ] = entry;
+				table = b;
+			} else {
+				t[ i ] = entry;
+			}
+		}
+	}
+
+	private static int slot( Entry[] t, VariablePath path ) {
+		final int mask = t.length - 1;
+		int i = path.cacheHash() & mask;
+		while( t[ i ] != null && t[ i ].path != path ) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+}
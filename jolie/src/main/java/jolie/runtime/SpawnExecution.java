@@ -22,44 +22,111 @@
 package jolie.runtime;
 
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import jolie.ExecutionThread;
 import jolie.Interpreter;
 import jolie.SessionThread;
-import jolie.process.Process;
+import jolie.State;
+import jolie.net.SessionMessage;
 import jolie.process.SpawnProcess;
 
+/**
+ * Runs the iterations of a spawn statement, each in a new session with a copy of the state of the
+ * spawning thread.
+ *
+ * By default every iteration may run at the same time as the others, as iterations may wait for
+ * each other. If {@link Interpreter#spawnParallelism()} is positive, at most that many iterations
+ * run at the same time: the spawning thread and as many helpers, scheduled on the thread pool of
+ * the interpreter, take the indexes in chunks and run their iterations one after the other. The
+ * session of an iteration is created only when the iteration starts.
+ */
 public class SpawnExecution {
-	private class SpawnedThread extends SessionThread {
+	// Chunks are small enough for the workers to share the iterations evenly
+	private static final int CHUNKS_PER_WORKER = 4;
+
+	/*
+	 * Spawned sessions are not known to the correlation engine, so no message can reach them: unlike a
+	 * SessionThread, they have no message queues, and their receives wait until they are killed.
+	 */
+	private class SpawnedThread extends ExecutionThread {
+		private final long id = SessionThread.newSessionId();
+		private final State state;
 		private final int index;
 
 		public SpawnedThread(
-			ExecutionThread parentThread,
-			Process process,
+			State state,
 			int index ) {
-			super( process, parentThread );
+			super( parentSpawnProcess.body(), ethread );
+			this.state = state;
 			this.index = index;
+			copyScopes( ethread );
+		}
+
+		@Override
+		public State state() {
+			return state;
+		}
+
+		@Override
+		public Future< SessionMessage > requestMessage( InputOperation operation, ExecutionThread ethread ) {
+			return noMessage( ethread );
+		}
+
+		@Override
+		public Future< SessionMessage > requestMessage( Map< String, InputOperation > operations,
+			ExecutionThread ethread ) {
+			return noMessage( ethread );
+		}
+
+		private Future< SessionMessage > noMessage( ExecutionThread ethread ) {
+			final Future< SessionMessage > future = new CompletableFuture< SessionMessage >() {
+				@Override
+				public boolean cancel( boolean mayInterruptIfRunning ) {
+					// Like those of a SessionThread, cancelled requests yield no message
+					return complete( null );
+				}
+			};
+			ethread.cancelIfKilled( future );
+			return future;
+		}
+
+		@Override
+		public String getSessionId() {
+			return Long.toString( id );
 		}
 
 		@Override
 		public void runProcess() {
-			parentSpawnProcess.indexPath().getValue().setValue( index );
+			interpreter().sessionStarted( this );
 			try {
-				process().run();
-			} catch( FaultException | ExitingException | FaultException.RuntimeFaultException f ) {
+				parentSpawnProcess.indexPath().getValue().setValue( index );
+				try {
+					process().run();
+				} catch( FaultException | ExitingException | FaultException.RuntimeFaultException f ) {
+				}
+				collectResult( index );
+			} finally {
+				interpreter().sessionEnded( this );
+				terminationNotify();
 			}
-
-			terminationNotify( this );
 		}
 	}
 
-	private final Collection< SpawnedThread > threads = new HashSet<>();
 	private final SpawnProcess parentSpawnProcess;
 	private final ExecutionThread ethread;
-	private CountDownLatch latch;
+	private final AtomicInteger nextIndex = new AtomicInteger( 0 );
+	private int upperBound;
+	private int chunkSize;
+	private State initState;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition condition = lock.newCondition();
+	private int terminated = 0; // guarded by lock
 
 	public SpawnExecution( SpawnProcess parent ) {
 		this.parentSpawnProcess = parent;
@@ -71,38 +138,66 @@ public class SpawnExecution {
 		if( parentSpawnProcess.inPath() != null ) {
 			parentSpawnProcess.inPath().undef();
 		}
-		int upperBound = parentSpawnProcess.upperBound().evaluate().intValue();
-		latch = new CountDownLatch( upperBound );
-		SpawnedThread thread;
-
-		for( int i = 0; i < upperBound; i++ ) {
-			thread = new SpawnedThread(
-				ethread,
-				parentSpawnProcess.body(),
-				i );
-			threads.add( thread );
+		upperBound = parentSpawnProcess.upperBound().evaluate().intValue();
+		if( upperBound <= 0 ) {
+			return;
 		}
-
-		for( SpawnedThread t : threads ) {
-			// We start threads in this other cycle to avoid race conditions on inPath
-			t.start();
+		// Sessions copy this state rather than the one of ethread, which gets the results of the iterations
+		initState = ethread.state().clone();
+
+		final int parallelism = ethread.interpreter().spawnParallelism();
+		final int workers = parallelism > 0 ? Math.min( parallelism, upperBound ) : upperBound;
+		chunkSize = Math.max( 1, upperBound / (workers * CHUNKS_PER_WORKER) );
+		for( int i = 1; i < workers; i++ ) {
+			ethread.interpreter().runJolieThread( this::runIterations );
 		}
+		runIterations();
 
+		lock.lock();
 		try {
-			latch.await();
-		} catch( InterruptedException e ) {
-			Interpreter.getInstance().logWarning( e );
+			while( terminated < upperBound ) {
+				condition.awaitUninterruptibly();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Runs chunks of iterations in the current thread until there are none left to take
+	private void runIterations() {
+		int from;
+		while( (from = nextIndex.getAndAdd( chunkSize )) < upperBound ) {
+			final int to = Math.min( from + chunkSize, upperBound );
+			for( int i = from; i < to; i++ ) {
+				final State state;
+				synchronized( initState ) {
+					state = initState.clone();
+				}
+				new SpawnedThread( state, i ).runInCurrentThread();
+			}
 		}
 	}
 
-	private void terminationNotify( SpawnedThread thread ) {
-		synchronized( this ) {
-			if( parentSpawnProcess.inPath() != null ) {
-				parentSpawnProcess.inPath().getValueVector( ethread.state().root() ).get( thread.index )
+	private void collectResult( int index ) {
+		if( parentSpawnProcess.inPath() != null ) {
+			lock.lock();
+			try {
+				parentSpawnProcess.inPath().getValueVector( ethread.state().root() ).get( index )
 					.deepCopy( parentSpawnProcess.inPath().getValueVector().first() );
+			} finally {
+				lock.unlock();
 			}
+		}
+	}
 
-			latch.countDown();
+	private void terminationNotify() {
+		lock.lock();
+		try {
+			if( ++terminated == upperBound ) {
+				condition.signal();
+			}
+		} finally {
+			lock.unlock();
 		}
 	}
 }
@@ -21,15 +21,23 @@
 
 package jolie.runtime;
 
-import java.lang.ref.WeakReference;
-
 /**
+ * A task to be run when a timeout expires, unless it is cancelled before.
+ *
  * @author Fabrizio Montesi
+ * @see TimingWheel
  */
 public abstract class TimeoutHandler implements Runnable {
 	private final long time;
 	private volatile boolean cancelled = false;
 
+	// Scheduling state, managed by the TimingWheel this handler is added to
+	volatile TimingWheel wheel = null;
+	TimingWheel.Bucket bucket = null;
+	TimeoutHandler prev = null;
+	TimeoutHandler next = null;
+	long remainingRounds = 0;
+
 	public TimeoutHandler( long timeout ) {
 		this.time = System.currentTimeMillis() + timeout;
 	}
@@ -39,7 +47,18 @@ public abstract class TimeoutHandler implements Runnable {
 	}
 
 	public void cancel() {
+		if( cancelled ) {
+			return;
+		}
 		cancelled = true;
+		final TimingWheel w = wheel;
+		if( w != null ) {
+			w.cancel( this );
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
 	}
 
 	public void run() {
@@ -49,30 +68,4 @@ public abstract class TimeoutHandler implements Runnable {
 	}
 
 	protected abstract void onTimeout();
-
-	/**
-	 * Note: this comparator imposes orderings that are inconsistent with equals.
-	 */
-	public static class Comparator implements java.util.Comparator< WeakReference< TimeoutHandler > > {
-		@Override
-		public int compare( WeakReference< TimeoutHandler > wt1, WeakReference< TimeoutHandler > wt2 ) {
-			TimeoutHandler t1 = (wt1 != null) ? wt1.get() : null;
-			TimeoutHandler t2 = (wt2 != null) ? wt2.get() : null;
-			if( t1 == null ) {
-				return -1;
-			} else if( t2 == null ) {
-				return 1;
-			}
-
-			// Both are not null after this
-
-			if( t1.time < t2.time ) {
-				return -1;
-			} else if( t1.time == t2.time ) {
-				return 0;
-			} else {
-				return 1;
-			}
-		}
-	}
 }
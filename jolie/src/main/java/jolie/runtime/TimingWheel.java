@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel for {@link TimeoutHandler}s.
+ *
+ * Handlers are hashed into a circular array of buckets by the tick at which they expire, so adding
+ * and cancelling them costs O(1) whatever the number of scheduled handlers. Callers never lock:
+ * additions and cancellations are queued, and a single worker thread moves handlers in and out of
+ * the buckets at every tick. The handlers that expire in a tick are run as one batch by the given
+ * executor.
+ *
+ * Handlers may run up to one tick later than their expiration time, and never before it.
+ */
+public class TimingWheel {
+	private static final long TICK_DURATION = 10; // msecs
+	private static final int WHEEL_SIZE = 512; // must be a power of two
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	static class Bucket {
+		private TimeoutHandler head = null;
+		private TimeoutHandler tail = null;
+
+		private void add( TimeoutHandler handler ) {
+			handler.bucket = this;
+			handler.prev = tail;
+			handler.next = null;
+			if( tail == null ) {
+				head = handler;
+			} else {
+				tail.next = handler;
+			}
+			tail = handler;
+		}
+
+		private void remove( TimeoutHandler handler ) {
+			if( handler.prev == null ) {
+				head = handler.next;
+			} else {
+				handler.prev.next = handler.next;
+			}
+			if( handler.next == null ) {
+				tail = handler.prev;
+			} else {
+				handler.next.prev = handler.prev;
+			}
+			handler.bucket = null;
+			handler.prev = null;
+			handler.next = null;
+		}
+	}
+
+	private final Bucket[] wheel = new Bucket[ WHEEL_SIZE ];
+	private final Queue< TimeoutHandler > additions = new ConcurrentLinkedQueue<>();
+	private final Queue< TimeoutHandler > cancellations = new ConcurrentLinkedQueue<>();
+	private final Executor executor;
+	private final String name;
+	private final AtomicBoolean started = new AtomicBoolean( false );
+	private volatile boolean running = true;
+	private volatile boolean idle = false;
+	private Thread worker = null;
+
+	// The following fields are accessed only by the worker
+	private final long startTime = System.currentTimeMillis();
+	private long tick = 0;
+	private int size = 0;
+
+	/**
+	 * @param name the name of the worker thread
+	 * @param executor the executor running the expired handlers
+	 */
+	public TimingWheel( String name, Executor executor ) {
+		this.name = name;
+		this.executor = executor;
+		for( int i = 0; i < WHEEL_SIZE; i++ ) {
+			wheel[ i ] = new Bucket();
+		}
+	}
+
+	/**
+	 * Schedules a handler. Handlers added after {@link #stop()} are never run.
+	 *
+	 * @param handler the handler to schedule
+	 */
+	public void add( TimeoutHandler handler ) {
+		if( !running ) {
+			return;
+		}
+		handler.wheel = this;
+		additions.add( handler );
+		if( started.compareAndSet( false, true ) ) {
+			worker = new Thread( this::work, name );
+			worker.setDaemon( true );
+			worker.start();
+		} else if( idle ) {
+			LockSupport.unpark( worker );
+		}
+	}
+
+	void cancel( TimeoutHandler handler ) {
+		cancellations.add( handler );
+	}
+
+	/**
+	 * Stops the worker of this wheel and runs all the handlers that are still scheduled, regardless of
+	 * their expiration time.
+	 */
+	public void stop() {
+		if( !running ) {
+			return;
+		}
+		running = false;
+		final Thread w = worker;
+		if( w != null ) {
+			LockSupport.unpark( w );
+			try {
+				w.join();
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		final List< TimeoutHandler > remaining = new ArrayList<>();
+		for( Bucket bucket : wheel ) {
+			while( bucket.head != null ) {
+				remaining.add( bucket.head );
+				bucket.remove( bucket.head );
+			}
+		}
+		TimeoutHandler handler;
+		while( (handler = additions.poll()) != null ) {
+			remaining.add( handler );
+		}
+		cancellations.clear();
+		size = 0;
+		runAll( remaining );
+	}
+
+	private void work() {
+		while( running ) {
+			processCancellations();
+			transferAdditions();
+			if( size == 0 ) {
+				idle = true;
+				if( running && additions.isEmpty() ) {
+					LockSupport.park( this );
+				}
+				idle = false;
+				// Nothing is scheduled, so we can skip the ticks we missed while parked
+				tick = Math.max( tick, (System.currentTimeMillis() - startTime) / TICK_DURATION );
+				continue;
+			}
+
+			final long deadline = startTime + (tick + 1) * TICK_DURATION;
+			long now;
+			while( running && (now = System.currentTimeMillis()) < deadline ) {
+				LockSupport.parkNanos( this, TimeUnit.MILLISECONDS.toNanos( deadline - now ) );
+			}
+			if( running ) {
+				processCancellations();
+				transferAdditions();
+				expire( wheel[ (int) (tick & WHEEL_MASK) ] );
+				tick++;
+			}
+		}
+	}
+
+	private void processCancellations() {
+		TimeoutHandler handler;
+		while( (handler = cancellations.poll()) != null ) {
+			final Bucket bucket = handler.bucket;
+			if( bucket != null ) {
+				bucket.remove( handler );
+				size--;
+			}
+		}
+	}
+
+	private void transferAdditions() {
+		TimeoutHandler handler;
+		while( (handler = additions.poll()) != null ) {
+			if( handler.isCancelled() ) {
+				continue;
+			}
+			final long expirationTick = Math.max( tick, (handler.time() - startTime) / TICK_DURATION );
+			handler.remainingRounds = (expirationTick - tick) / WHEEL_SIZE;
+			wheel[ (int) (expirationTick & WHEEL_MASK) ].add( handler );
+			size++;
+		}
+	}
+
+	private void expire( Bucket bucket ) {
+		List< TimeoutHandler > expired = null;
+		TimeoutHandler handler = bucket.head;
+		while( handler != null ) {
+			final TimeoutHandler next = handler.next;
+			if( handler.remainingRounds <= 0 ) {
+				bucket.remove( handler );
+				size--;
+				if( expired == null ) {
+					expired = new ArrayList<>();
+				}
+				expired.add( handler );
+			} else {
+				handler.remainingRounds--;
+			}
+			handler = next;
+		}
+		if( expired != null ) {
+			runAll( expired );
+		}
+	}
+
+	private void runAll( final List< TimeoutHandler > handlers ) {
+		if( handlers.isEmpty() ) {
+			return;
+		}
+		try {
+			executor.execute( () -> handlers.forEach( TimeoutHandler::run ) );
+		} catch( RejectedExecutionException e ) {
+			// The interpreter is shutting down
+		}
+	}
+}
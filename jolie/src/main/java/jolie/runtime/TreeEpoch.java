@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Counts the structural changes of a tree of values, that is, the changes that may make a path lead
+ * to a different node than before: replacing or removing a vector or an element, erasing the
+ * children of a value, and sharing them with a deep copy. Adding children is not a structural
+ * change, since it does not move the nodes that are already there.
+ *
+ * Each root value that is not shared has its own epoch (see {@link Value#createRootValue()}). The
+ * nodes, maps of children and vectors of the tree are not tied to it when they are created: they
+ * are adopted by the epoch of a tree the first time a path of that tree is remembered through them
+ * (see {@link VariablePath}), and from then on report their structural changes to it. Something
+ * that has been adopted by a tree is never adopted by another one, so paths cannot be remembered
+ * through the nodes that two trees share. Only {@link CompactChildrenMap}, {@link ValueVectorImpl}
+ * and {@link ValueImpl} can be adopted: other maps of children must be looked up again.
+ */
+final class TreeEpoch {
+	private static final AtomicLongFieldUpdater< TreeEpoch > VALUE =
+		AtomicLongFieldUpdater.newUpdater( TreeEpoch.class, "value" );
+
+	private volatile long value = 0L;
+
+	long current() {
+		return value;
+	}
+
+	/**
+	 * Must be called after a structural change has been made, so that the readers that see the new
+	 * epoch see the change too. The tree must be read after the change too, so that a concurrent
+	 * adoption either sees the change or gets advanced.
+	 *
+	 * @param tree the tree that adopted the changed object, or <code>null</code> if there is none
+	 */
+	static void advance( TreeEpoch tree ) {
+		if( tree != null ) {
+			VALUE.incrementAndGet( tree );
+		}
+	}
+}
@@ -21,17 +21,18 @@
 
 package jolie.runtime;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.List;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Function;
 
 import jolie.lang.Constants;
@@ -40,6 +41,118 @@ import jolie.process.TransformationReason;
 import jolie.runtime.expression.Expression;
 import jolie.runtime.typing.TypeCastingException;
 
+/**
+ * The kinds of values that are stored unboxed, in the bits of a long, by {@link ValueImpl}. These
+ * follow the same conversion rules as their boxed counterparts.
+ */
+enum UnboxedKind {
+	INT {
+		@Override
+		Object box( long bits ) {
+			return (int) bits;
+		}
+
+		@Override
+		double doubleValue( long bits ) {
+			return (int) bits;
+		}
+
+		@Override
+		String strValue( long bits ) {
+			return Integer.toString( (int) bits );
+		}
+
+		@Override
+		int hash( long bits ) {
+			return Integer.hashCode( (int) bits );
+		}
+	},
+	LONG {
+		@Override
+		Object box( long bits ) {
+			return bits;
+		}
+
+		@Override
+		double doubleValue( long bits ) {
+			return bits;
+		}
+
+		@Override
+		String strValue( long bits ) {
+			return Long.toString( bits );
+		}
+
+		@Override
+		int hash( long bits ) {
+			return Long.hashCode( bits );
+		}
+	},
+	DOUBLE {
+		@Override
+		Object box( long bits ) {
+			return Double.longBitsToDouble( bits );
+		}
+
+		@Override
+		int intValue( long bits ) {
+			return (int) Double.longBitsToDouble( bits );
+		}
+
+		@Override
+		long longValue( long bits ) {
+			return (long) Double.longBitsToDouble( bits );
+		}
+
+		@Override
+		double doubleValue( long bits ) {
+			return Double.longBitsToDouble( bits );
+		}
+
+		@Override
+		String strValue( long bits ) {
+			return Double.toString( Double.longBitsToDouble( bits ) );
+		}
+
+		@Override
+		boolean bitsEqual( long a, long b ) {
+			return Double.doubleToLongBits( Double.longBitsToDouble( a ) ) == Double
+				.doubleToLongBits( Double.longBitsToDouble( b ) );
+		}
+
+		@Override
+		int hash( long bits ) {
+			return Double.hashCode( Double.longBitsToDouble( bits ) );
+		}
+	};
+
+	abstract Object box( long bits );
+
+	int intValue( long bits ) {
+		return (int) bits;
+	}
+
+	long longValue( long bits ) {
+		return bits;
+	}
+
+	abstract double doubleValue( long bits );
+
+	boolean boolValue( long bits ) {
+		return longValue( bits ) > 0;
+	}
+
+	abstract String strValue( long bits );
+
+	// Compare and hash like the boxed counterparts, so that boxed and unboxed values can be mixed
+	boolean bitsEqual( long a, long b ) {
+		return a == b;
+	}
+
+	abstract int hash( long bits );
+}
+
+
 class ValueLink extends Value implements Cloneable {
 	private final VariablePath linkPath;
 
@@ -82,6 +195,31 @@ class ValueLink extends Value implements Cloneable {
 		getLinkedValue().setValueObject( object );
 	}
 
+	@Override
+	void setUnboxed( UnboxedKind kind, long bits ) {
+		getLinkedValue().setUnboxed( kind, bits );
+	}
+
+	@Override
+	Object rawValueObject() {
+		return getLinkedValue().rawValueObject();
+	}
+
+	@Override
+	long rawBits() {
+		return getLinkedValue().rawBits();
+	}
+
+	@Override
+	void setLinked() {
+		getLinkedValue().setLinked();
+	}
+
+	@Override
+	boolean isLinked() {
+		return getLinkedValue().isLinked();
+	}
+
 	@Override
 	public void erase() {
 		getLinkedValue().erase();
@@ -102,6 +240,11 @@ class ValueLink extends Value implements Cloneable {
 		return getLinkedValue().children();
 	}
 
+	@Override
+	public EncodedChildren encodedChildren() {
+		return getLinkedValue().encodedChildren();
+	}
+
 	@Override
 	public Object valueObject() {
 		return getLinkedValue().valueObject();
@@ -121,31 +264,166 @@ class ValueLink extends Value implements Cloneable {
 
 class ValueImpl extends Value implements Cloneable, Serializable {
 	private static final long serialVersionUID = 1L;
+	@SuppressWarnings( "rawtypes" )
+	private static final AtomicReferenceFieldUpdater< ValueImpl, Map > CHILDREN =
+		AtomicReferenceFieldUpdater.newUpdater( ValueImpl.class, Map.class, "children" );
 
+	/*
+	 * Either the value, or the kind of the value stored unboxed in bits. Writers store the bits before
+	 * the kind, and readers check that the kind did not change while they read the bits. As for long
+	 * fields in Java, a read that races with writers of different kinds may still pair the kind of one
+	 * with the bits of the other: sessions that write the same variable must be synchronised.
+	 */
 	private volatile Object valueObject = null;
-	private final AtomicReference< Map< String, ValueVector > > children = new AtomicReference<>();
+	private volatile long bits = 0L;
+	private volatile Map< String, ValueVector > children = null;
+	/*
+	 * Shared values are reachable by many sessions at the same time (e.g., global variables), so they
+	 * get concurrent maps for their children right away instead of compact ones.
+	 */
+	private final boolean shared;
+	// Set once a link may have been put somewhere in the subtree of this value
+	private volatile boolean linked = false;
+	private transient volatile TreeEpoch tree = null;
+
+	private static final AtomicReferenceFieldUpdater< ValueImpl, TreeEpoch > TREE =
+		AtomicReferenceFieldUpdater.newUpdater( ValueImpl.class, TreeEpoch.class, "tree" );
 
 	@Override
 	public void setValueObject( Object object ) {
 		valueObject = object;
 	}
 
+	@Override
+	void setLinked() {
+		linked = true;
+	}
+
+	@Override
+	boolean isLinked() {
+		return linked;
+	}
+
+	@Override
+	boolean adopt( TreeEpoch t ) {
+		final TreeEpoch current = tree;
+		if( current != t && (current != null || (!TREE.compareAndSet( this, null, t ) && tree != t)) ) {
+			return false;
+		}
+		// Read after adopting, so that a concurrent replacement of the map advances the epoch
+		final Map< String, ValueVector > c = childrenOrNull();
+		return c instanceof CompactChildrenMap && ((CompactChildrenMap) c).adopt( t );
+	}
+
+	// Returns the children of this value without creating the map. Subclasses may fill it first.
+	Map< String, ValueVector > childrenOrNull() {
+		return children;
+	}
+
+	@Override
+	void setUnboxed( UnboxedKind kind, long bits ) {
+		// Write again if another writer stored its bits before we published our kind
+		do {
+			this.bits = bits;
+			valueObject = kind;
+		} while( this.bits != bits );
+	}
+
+	@Override
+	Object rawValueObject() {
+		return valueObject;
+	}
+
+	@Override
+	long rawBits() {
+		return bits;
+	}
+
 	@Override
 	public ValueVector getChildren( String childId ) {
-		return children().computeIfAbsent( childId, k -> ValueVector.create() );
+		return getChildren( childId, children(), shared );
 	}
 
 	@Override
 	public ValueImpl clone() {
-		ValueImpl ret = new ValueImpl();
-		ret._deepCopy( this, true );
+		ValueImpl ret = new ValueImpl( null, shared );
+		ret.copyFrom( this, true );
 		return ret;
 	}
 
+	/**
+	 * Returns a copy of the given value that shares its children with it, for the vectors that have
+	 * been shared by a deep copy (see {@link ValueVectorImpl#copyFor(CompactChildrenMap)}).
+	 */
+	static Value copyOnWrite( Value v ) {
+		if( v.isLink() ) {
+			return ((ValueLink) v).clone();
+		}
+		final ValueImpl ret = v.isUsedInCorrelation() ? new CSetValue() : new ValueImpl();
+		ret.copyFrom( v, true );
+		return ret;
+	}
+
+	/**
+	 * Makes this value, which nothing else can reach yet, a deep copy of the given one. Where possible,
+	 * the children vectors are shared instead of copied, and either value copies them on the first
+	 * access that may modify them.
+	 */
+	void copyFrom( Value value, boolean copyLinks ) {
+		assignValue( value );
+		if( !shareChildren( value, copyLinks ) ) {
+			copyChildren( value, copyLinks, true );
+		}
+	}
+
+	/*
+	 * Sharing is safe only if the copy is a new value, otherwise the destination could be in the
+	 * subtree of the source and end up containing itself. Shared trees are always copied, since their
+	 * maps do not track the vectors they own, and so are values that may contain links when links must
+	 * be followed.
+	 */
+	private boolean shareChildren( Value value, boolean copyLinks ) {
+		if( shared || !(value instanceof ValueImpl) ) {
+			return false;
+		}
+		final ValueImpl source = (ValueImpl) value;
+		final Map< String, ValueVector > c = source.childrenOrNull();
+		if( source.shared || (source.linked && !copyLinks)
+			|| (c != null && !(c instanceof CompactChildrenMap)) ) {
+			return false;
+		}
+		linked = source.linked;
+		if( c != null && !c.isEmpty() ) {
+			final CompactChildrenMap myChildren = new CompactChildrenMap();
+			final TreeEpoch sourceTree = ((CompactChildrenMap) c).tree();
+			for( Entry< String, ValueVector > entry : ((CompactChildrenMap) c).sharedEntries() ) {
+				final ValueVector vec = entry.getValue();
+				if( vec instanceof ValueVectorImpl ) {
+					((ValueVectorImpl) vec).setOwner( null );
+					myChildren.putShared( entry.getKey(), vec );
+					if( ((ValueVectorImpl) vec).tree() != sourceTree ) {
+						TreeEpoch.advance( ((ValueVectorImpl) vec).tree() );
+					}
+				} else {
+					myChildren.put( entry.getKey(), ValueVector.createClone( vec ) );
+				}
+			}
+			children = myChildren;
+			// The nodes of the source are now shared, and writes through it will reach copies of them
+			TreeEpoch.advance( sourceTree );
+			if( source.tree != sourceTree ) {
+				TreeEpoch.advance( source.tree );
+			}
+		}
+		return true;
+	}
+
 	@Override
 	protected void _refCopy( Value value ) {
-		setValueObject( value.valueObject() );
-		this.children.set( value.children() );
+		assignValue( value );
+		this.children = value.children();
+		linked = value.isLinked();
+		TreeEpoch.advance( tree );
 	}
 
 	@Override
@@ -155,11 +433,16 @@ class ValueImpl extends Value implements Cloneable, Serializable {
 
 	@Override
 	public void erase() {
-		valueObject = null;
-		children.set( null );
+		setValueObject( null );
+		if( children != null ) {
+			children = null;
+			TreeEpoch.advance( tree );
+		}
 	}
 
-	protected ValueImpl() {}
+	protected ValueImpl() {
+		shared = false;
+	}
 
 	@Override
 	public boolean isLink() {
@@ -168,13 +451,13 @@ class ValueImpl extends Value implements Cloneable, Serializable {
 
 	@Override
 	public boolean hasChildren() {
-		Map< String, ValueVector > c = children.get();
+		Map< String, ValueVector > c = childrenOrNull();
 		return (c != null && !c.isEmpty());
 	}
 
 	@Override
 	public boolean hasChildren( String childId ) {
-		Map< String, ValueVector > c = children.get();
+		Map< String, ValueVector > c = childrenOrNull();
 		return (c != null && c.containsKey( childId ));
 	}
 
@@ -184,24 +467,36 @@ class ValueImpl extends Value implements Cloneable, Serializable {
 		 * TODO: check if a << b | b << a can generate deadlocks
 		 */
 		assignValue( value );
+		copyChildren( value, copyLinks, false );
+	}
 
+	// If fresh is true, the copies of the children are made with copyFrom
+	private void copyChildren( Value value, boolean copyLinks, boolean fresh ) {
 		if( value.hasChildren() ) {
 			int i;
 			ValueImpl newValue;
 			Map< String, ValueVector > myChildren = children();
-			for( Entry< String, ValueVector > entry : value.children().entrySet() ) {
+			for( Entry< String, ValueVector > entry : entriesToRead( value ) ) {
 				if( copyLinks && entry.getValue().isLink() ) {
 					myChildren.put( entry.getKey(), ValueVector.createClone( entry.getValue() ) );
+					linked = true;
 				} else {
-					List< Value > otherVector = entry.getValue().valuesCopy();
-					ValueVector vec = getChildren( entry.getKey(), myChildren );
+					ValueVector vec = getChildren( entry.getKey(), myChildren, shared );
 					i = 0;
-					for( Value v : otherVector ) {
+					for( Value v : entry.getValue() ) {
 						if( copyLinks && v.isLink() ) {
 							vec.set( i, ((ValueLink) v).clone() );
+							linked = true;
 						} else {
-							newValue = (v.isUsedInCorrelation() ? new CSetValue() : new ValueImpl());
-							newValue._deepCopy( v, copyLinks );
+							newValue = (v.isUsedInCorrelation() ? new CSetValue() : new ValueImpl( null, shared ));
+							if( fresh ) {
+								newValue.copyFrom( v, copyLinks );
+							} else {
+								newValue._deepCopy( v, copyLinks );
+							}
+							if( newValue.linked ) {
+								linked = true;
+							}
 							vec.set( i, newValue );
 						}
 						i++;
@@ -211,8 +506,38 @@ class ValueImpl extends Value implements Cloneable, Serializable {
 		}
 	}
 
-	private static ValueVector getChildren( String childId, Map< String, ValueVector > children ) {
-		return children.computeIfAbsent( childId, k -> ValueVector.create() );
+	/**
+	 * Returns the children of value, for a caller that reads them without modifying them: the vectors
+	 * shared by deep copies are not copied (see {@link CompactChildrenMap#sharedEntries()}).
+	 */
+	static Iterable< Entry< String, ValueVector > > entriesToRead( Value value ) {
+		final Map< String, ValueVector > c =
+			value instanceof ValueImpl ? ((ValueImpl) value).childrenOrNull() : value.children();
+		if( c == null ) {
+			return Collections.emptySet();
+		}
+		return c instanceof CompactChildrenMap ? ((CompactChildrenMap) c).sharedEntries() : c.entrySet();
+	}
+
+	/**
+	 * Returns the vector of value named childId, or <code>null</code>, for a caller that reads it
+	 * without modifying it: a vector shared by deep copies is not copied.
+	 */
+	static ValueVector vectorToRead( Value value, String childId ) {
+		final Map< String, ValueVector > c =
+			value instanceof ValueImpl ? ((ValueImpl) value).childrenOrNull() : value.children();
+		if( c == null ) {
+			return null;
+		}
+		return c instanceof CompactChildrenMap ? ((CompactChildrenMap) c).sharedGet( childId ) : c.get( childId );
+	}
+
+	static ValueVector getChildren( String childId, Map< String, ValueVector > children, boolean shared ) {
+		final ValueVector vec = children.get( childId );
+		if( vec != null ) {
+			return vec;
+		}
+		return children.computeIfAbsent( childId, k -> shared ? new SharedValueVectorImpl() : new ValueVectorImpl() );
 	}
 
 	private final static int INITIAL_CAPACITY = 8;
@@ -220,22 +545,44 @@ class ValueImpl extends Value implements Cloneable, Serializable {
 
 	@Override
 	public Map< String, ValueVector > children() {
+		Map< String, ValueVector > c;
 		// Create the map if not present
-		children.getAndUpdate( v -> v == null ? new ConcurrentHashMap<>( INITIAL_CAPACITY, LOAD_FACTOR ) : v );
-		return children.get();
+		while( (c = children) == null ) {
+			CHILDREN.compareAndSet( this, null,
+				shared ? new ConcurrentHashMap<>( INITIAL_CAPACITY, LOAD_FACTOR ) : new CompactChildrenMap() );
+		}
+		return c;
 	}
 
 	@Override
 	public Object valueObject() {
-		return valueObject;
+		final Object o = valueObject;
+		if( o instanceof UnboxedKind ) {
+			final long b = bits;
+			return valueObject == o ? ((UnboxedKind) o).box( b ) : valueObject();
+		}
+		return o;
 	}
 
 	protected ValueImpl( Object object ) {
 		valueObject = object;
+		shared = false;
+	}
+
+	ValueImpl( Object object, boolean shared ) {
+		valueObject = object;
+		this.shared = shared;
+	}
+
+	ValueImpl( UnboxedKind kind, long bits ) {
+		this.bits = bits;
+		valueObject = kind;
+		shared = false;
 	}
 
 	public ValueImpl( Value val ) {
-		valueObject = val.valueObject();
+		shared = false;
+		assignValue( val );
 	}
 }
 
@@ -245,13 +592,52 @@ class RootValueImpl extends Value implements Cloneable {
 	private final static int INITIAL_CAPACITY = 8;
 	private final static float LOAD_FACTOR = 0.75f;
 
-	private final Map< String, ValueVector > children =
-		new ConcurrentHashMap<>( INITIAL_CAPACITY, LOAD_FACTOR );
+	private final Map< String, ValueVector > children;
+	private final boolean shared;
+	// The epoch of this tree, null if paths are not remembered for it (see VariablePath)
+	private final TreeEpoch tree;
+	private volatile PathCache pathCache = null;
+
+	private static final AtomicReferenceFieldUpdater< RootValueImpl, PathCache > PATH_CACHE =
+		AtomicReferenceFieldUpdater.newUpdater( RootValueImpl.class, PathCache.class, "pathCache" );
+
+	RootValueImpl( boolean shared ) {
+		this( new ConcurrentHashMap<>( INITIAL_CAPACITY, LOAD_FACTOR ), shared, shared ? null : new TreeEpoch() );
+	}
+
+	private RootValueImpl( Map< String, ValueVector > children, boolean shared, TreeEpoch tree ) {
+		this.children = children;
+		this.shared = shared;
+		this.tree = tree;
+	}
+
+	// The branches share the nodes of this tree that are not local to them, and so its epoch
+	RootValueImpl branch( String[] keys, int[] indexes ) {
+		return new RootValueImpl( BranchChildrenMap.overlay( this, keys, indexes, 0 ), shared, tree );
+	}
+
+	/*
+	 * Returns the epoch of this tree, or null if the paths evaluated against this root must not be
+	 * remembered. Shared trees are reached by many sessions at the same time, and their maps of
+	 * children cannot be adopted anyway.
+	 */
+	TreeEpoch tree() {
+		return tree;
+	}
+
+	PathCache pathCache() {
+		final PathCache c = pathCache;
+		if( c != null ) {
+			return c;
+		}
+		PATH_CACHE.compareAndSet( this, null, new PathCache() );
+		return pathCache;
+	}
 
 	@Override
 	public RootValueImpl clone() {
-		RootValueImpl ret = new RootValueImpl();
-		ret._deepCopy( this, true );
+		RootValueImpl ret = new RootValueImpl( shared );
+		ret.copyChildren( this, true, true );
 		return ret;
 	}
 
@@ -263,7 +649,7 @@ class RootValueImpl extends Value implements Cloneable {
 
 	@Override
 	public ValueVector getChildren( String childId ) {
-		return children.computeIfAbsent( childId, k -> ValueVector.create() );
+		return ValueImpl.getChildren( childId, children, shared );
 	}
 
 	@Override
@@ -298,22 +684,30 @@ class RootValueImpl extends Value implements Cloneable {
 
 	@Override
 	protected void _deepCopy( Value value, boolean copyLinks ) {
+		copyChildren( value, copyLinks, false );
+	}
+
+	// If fresh is true, the copies of the children are made with ValueImpl#copyFrom
+	private void copyChildren( Value value, boolean copyLinks, boolean fresh ) {
 		if( value.hasChildren() ) {
 			int i;
 			ValueImpl newValue;
-			for( Entry< String, ValueVector > entry : value.children().entrySet() ) {
+			for( Entry< String, ValueVector > entry : ValueImpl.entriesToRead( value ) ) {
 				if( copyLinks && entry.getValue().isLink() ) {
 					children.put( entry.getKey(), ValueVector.createClone( entry.getValue() ) );
 				} else {
-					List< Value > otherVector = entry.getValue().valuesCopy();
-					ValueVector vec = getChildren( entry.getKey(), children );
+					ValueVector vec = ValueImpl.getChildren( entry.getKey(), children, shared );
 					i = 0;
-					for( Value v : otherVector ) {
+					for( Value v : entry.getValue() ) {
 						if( copyLinks && v.isLink() ) {
 							vec.set( i, ((ValueLink) v).clone() );
 						} else {
-							newValue = (v.isUsedInCorrelation() ? new CSetValue() : new ValueImpl());
-							newValue._deepCopy( v, copyLinks );
+							newValue = (v.isUsedInCorrelation() ? new CSetValue() : new ValueImpl( null, shared ));
+							if( fresh ) {
+								newValue.copyFrom( v, copyLinks );
+							} else {
+								newValue._deepCopy( v, copyLinks );
+							}
 							vec.set( i, newValue );
 						}
 						i++;
@@ -323,13 +717,117 @@ class RootValueImpl extends Value implements Cloneable {
 		}
 	}
 
-	private static ValueVector getChildren( String childId, Map< String, ValueVector > children ) {
-		return children.computeIfAbsent( childId, k -> ValueVector.create() );
+	@Override
+	public Object valueObject() {
+		return null;
+	}
+}
+
+
+/**
+ * A node on the path to a variable that is local to a branch (see BranchChildrenMap#overlay). The
+ * content of the node and its other children are those of the node it overlays.
+ */
+final class BranchValue extends Value {
+	private final Value node;
+	private final BranchChildrenMap children;
+
+	BranchValue( Value node, BranchChildrenMap children ) {
+		this.node = node;
+		this.children = children;
+	}
+
+	@Override
+	public boolean isLink() {
+		return false;
+	}
+
+	@Override
+	public ValueVector getChildren( String childId ) {
+		return children.isLocal( childId ) ? ValueImpl.getChildren( childId, children, true )
+			: node.getChildren( childId );
+	}
+
+	@Override
+	public Map< String, ValueVector > children() {
+		return children;
+	}
+
+	@Override
+	public boolean hasChildren() {
+		return children.isEmpty() == false;
+	}
+
+	@Override
+	public boolean hasChildren( String childId ) {
+		return children.containsKey( childId );
 	}
 
 	@Override
 	public Object valueObject() {
-		return null;
+		return node.valueObject();
+	}
+
+	@Override
+	public void setValueObject( Object object ) {
+		node.setValueObject( object );
+	}
+
+	@Override
+	void setUnboxed( UnboxedKind kind, long bits ) {
+		node.setUnboxed( kind, bits );
+	}
+
+	@Override
+	Object rawValueObject() {
+		return node.rawValueObject();
+	}
+
+	@Override
+	long rawBits() {
+		return node.rawBits();
+	}
+
+	// The local variable is usually a link, or holds one
+	@Override
+	boolean isLinked() {
+		return true;
+	}
+
+	@Override
+	protected void _refCopy( Value value ) {
+		node._refCopy( value );
+	}
+
+	@Override
+	public void erase() {
+		node.setValueObject( null );
+		children.clear();
+	}
+
+	@Override
+	protected void _deepCopy( Value value, boolean copyLinks ) {
+		assignValue( value );
+		if( value.hasChildren() ) {
+			for( Entry< String, ValueVector > entry : value.children().entrySet() ) {
+				if( copyLinks ) {
+					getChildren( entry.getKey() ).deepCopyWithLinks( entry.getValue() );
+				} else {
+					getChildren( entry.getKey() ).deepCopy( entry.getValue() );
+				}
+			}
+		}
+	}
+
+	// Like a link, a clone is another view of the same nodes
+	@Override
+	public BranchValue clone() {
+		return new BranchValue( node, children );
+	}
+
+	@Override
+	public final Value evaluate() {
+		return this;
 	}
 }
 
@@ -350,7 +848,7 @@ class CSetValue extends ValueImpl {
 	@Override
 	public CSetValue clone() {
 		CSetValue ret = new CSetValue();
-		ret._deepCopy( this, true );
+		ret.copyFrom( this, true );
 		return ret;
 	}
 
@@ -361,6 +859,73 @@ class CSetValue extends ValueImpl {
 }
 
 
+/**
+ * A value whose children are decoded on first access (see Value#createLazy). The children that have
+ * children of their own are usually lazy values too, so a tree is decoded one level at a time.
+ */
+final class LazyValueImpl extends ValueImpl {
+	private static final long serialVersionUID = Constants.serialVersionUID();
+
+	// The children still to be decoded, null once decoded
+	private transient volatile EncodedChildren encoded;
+
+	LazyValueImpl( EncodedChildren encoded ) {
+		this.encoded = encoded;
+	}
+
+	private void decode() {
+		if( encoded != null ) {
+			synchronized( this ) {
+				final EncodedChildren e = encoded;
+				if( e != null ) {
+					e.decodeInto( super.children() );
+					encoded = null;
+				}
+			}
+		}
+	}
+
+	@Override
+	public Map< String, ValueVector > children() {
+		decode();
+		return super.children();
+	}
+
+	@Override
+	Map< String, ValueVector > childrenOrNull() {
+		decode();
+		return super.childrenOrNull();
+	}
+
+	@Override
+	public EncodedChildren encodedChildren() {
+		return encoded;
+	}
+
+	@Override
+	protected void _refCopy( Value value ) {
+		synchronized( this ) {
+			encoded = null;
+		}
+		super._refCopy( value );
+	}
+
+	@Override
+	public void erase() {
+		synchronized( this ) {
+			encoded = null;
+		}
+		super.erase();
+	}
+
+	private void writeObject( ObjectOutputStream out )
+		throws IOException {
+		decode();
+		out.defaultWriteObject();
+	}
+}
+
+
 /**
  * Handles JOLIE internal data representation.
  * 
@@ -377,7 +942,32 @@ public abstract class Value implements Expression, Cloneable {
 	}
 
 	public static Value createRootValue() {
-		return new RootValueImpl();
+		return new RootValueImpl( false );
+	}
+
+	/**
+	 * Creates a root value for a branch of the given root. The variable at the given path belongs to
+	 * the branch only, and starts undefined; everything else is shared with root, including the content
+	 * and the other children of the nodes on the path.
+	 *
+	 * @param root the root value to branch from, as returned by {@link jolie.State#root()}
+	 * @param keys the names of the segments of the path of the local variable
+	 * @param indexes the indexes of the segments of the path of the local variable
+	 * @return the root value of the branch
+	 */
+	public static Value createBranchRoot( Value root, String[] keys, int[] indexes ) {
+		return ((RootValueImpl) root).branch( keys, indexes );
+	}
+
+	/**
+	 * Creates a root value whose tree is meant to be accessed by many sessions at the same time, like
+	 * the one holding global variables. The nodes of such a tree use concurrent maps for their children
+	 * instead of compact ones.
+	 *
+	 * @return a new root value for a shared tree
+	 */
+	public static Value createSharedRootValue() {
+		return new RootValueImpl( true );
 	}
 
 	public static Value createLink( VariablePath path ) {
@@ -392,6 +982,20 @@ public abstract class Value implements Expression, Cloneable {
 		return new CSetValue();
 	}
 
+	/**
+	 * Creates a value whose children are decoded from the given encoding the first time they are
+	 * accessed. Decoders use it to avoid decoding the parts of a message that are never read.
+	 *
+	 * @param valueObject the content of the value
+	 * @param children the encoded children of the value
+	 * @return a new value with the given content and children
+	 */
+	public static Value createLazy( Object valueObject, EncodedChildren children ) {
+		final Value ret = new LazyValueImpl( children );
+		ret.setValue( valueObject );
+		return ret;
+	}
+
 	public static Value create( Boolean bool ) {
 		return new ValueImpl( bool );
 	}
@@ -412,6 +1016,18 @@ public abstract class Value implements Expression, Cloneable {
 		return new ValueImpl( d );
 	}
 
+	public static Value create( int i ) {
+		return new ValueImpl( UnboxedKind.INT, i );
+	}
+
+	public static Value create( long l ) {
+		return new ValueImpl( UnboxedKind.LONG, l );
+	}
+
+	public static Value create( double d ) {
+		return new ValueImpl( UnboxedKind.DOUBLE, Double.doubleToRawLongBits( d ) );
+	}
+
 	public static Value create( ByteArray b ) {
 		return new ValueImpl( b );
 	}
@@ -424,9 +1040,16 @@ public abstract class Value implements Expression, Cloneable {
 		return value.clone();
 	}
 
+	/**
+	 * Returns a deep copy of the parameter. The copy shares the subtrees of the parameter until either
+	 * of them is modified, so making it costs as much as copying the direct children of the parameter.
+	 *
+	 * @param value The value to be copied.
+	 * @return a new value, identical (by value) to the parameter
+	 */
 	public static Value createDeepCopy( Value value ) {
-		Value ret = Value.create();
-		ret.deepCopy( value );
+		ValueImpl ret = new ValueImpl();
+		ret.copyFrom( value, false );
 		return ret;
 	}
 
@@ -458,10 +1081,55 @@ public abstract class Value implements Expression, Cloneable {
 
 	public abstract Map< String, ValueVector > children();
 
+	/**
+	 * Returns the children of this value if they have not been decoded yet, so that an encoder in their
+	 * format can write them as they are. Calling {@link #children()} decodes them.
+	 *
+	 * @return the encoded children of this value, or <code>null</code> if they are not encoded
+	 */
+	public EncodedChildren encodedChildren() {
+		return null;
+	}
+
 	public abstract Object valueObject();
 
 	protected abstract void setValueObject( Object object );
 
+	/*
+	 * Numbers computed by the interpreter are stored unboxed by the implementations that support it:
+	 * rawValueObject() then returns their UnboxedKind, and rawBits() their bits. The defaults box them.
+	 */
+	void setUnboxed( UnboxedKind kind, long bits ) {
+		setValueObject( kind.box( bits ) );
+	}
+
+	Object rawValueObject() {
+		return valueObject();
+	}
+
+	long rawBits() {
+		return 0L;
+	}
+
+	/*
+	 * Values whose subtree may contain links are marked, so that deep copies that must follow links do
+	 * not share their children (see ValueImpl#copyFrom). The defaults do not track links.
+	 */
+	void setLinked() {}
+
+	boolean isLinked() {
+		return false;
+	}
+
+	/*
+	 * Makes the structural changes of this value and of its children advance the epoch of the given
+	 * tree, so that a path through this value can be remembered (see VariablePath). Returns false if
+	 * they cannot be tracked, or if this value has been adopted by another tree.
+	 */
+	boolean adopt( TreeEpoch tree ) {
+		return false;
+	}
+
 	public abstract boolean hasChildren();
 
 	public abstract boolean hasChildren( String childId );
@@ -532,7 +1200,25 @@ public abstract class Value implements Expression, Cloneable {
 		setValueObject( object );
 	}
 
-	public final synchronized boolean equals( Value val ) {
+	public final void setValue( int i ) {
+		setUnboxed( UnboxedKind.INT, i );
+	}
+
+	public final void setValue( long l ) {
+		setUnboxed( UnboxedKind.LONG, l );
+	}
+
+	public final void setValue( double d ) {
+		setUnboxed( UnboxedKind.DOUBLE, Double.doubleToRawLongBits( d ) );
+	}
+
+	/**
+	 * Returns <code>true</code> if the content of this value equals the one of the given value, after
+	 * converting it to the type of this value, as the == operator of Jolie does. Children are not
+	 * compared. This equality is not consistent with any hash code: see {@link #contentEquals(Value)}
+	 * for that.
+	 */
+	public final boolean equals( Value val ) {
 		boolean r = false;
 		if( val.isDefined() ) {
 			if( isByteArray() ) {
@@ -557,36 +1243,158 @@ public abstract class Value implements Expression, Cloneable {
 		return r;
 	}
 
+	/**
+	 * Returns <code>true</code> if this value and the given one have contents of the same type that are
+	 * equal, without any conversion: e.g., 1, 1L and "1" are all different. Doubles are compared like
+	 * {@link Double#equals(Object)} does. Children are not compared. Consistent with
+	 * {@link #contentHashCode()}.
+	 *
+	 * @param val the value to compare with
+	 * @return <code>true</code> if the contents of the two values are equal
+	 */
+	public final boolean contentEquals( Value val ) {
+		final Object o = rawValueObject();
+		if( o instanceof UnboxedKind && val.rawValueObject() == o ) {
+			final long b = rawBits();
+			final long valBits = val.rawBits();
+			// Read again if either value changed kind while we read its bits
+			if( rawValueObject() == o && val.rawValueObject() == o ) {
+				return ((UnboxedKind) o).bitsEqual( b, valBits );
+			}
+			return contentEquals( val );
+		}
+		final Object mine = valueObject();
+		return mine == null ? val.valueObject() == null : mine.equals( val.valueObject() );
+	}
+
+	/**
+	 * Returns a hash code of the content of this value, consistent with {@link #contentEquals(Value)}.
+	 * Children are not considered.
+	 *
+	 * @return a hash code of the content of this value
+	 */
+	public final int contentHashCode() {
+		final Object o = rawValueObject();
+		if( o instanceof UnboxedKind ) {
+			final long b = rawBits();
+			// Read again if the value changed kind while we read its bits
+			return rawValueObject() == o ? ((UnboxedKind) o).hash( b ) : contentHashCode();
+		}
+		return o == null ? 0 : o.hashCode();
+	}
+
+	/**
+	 * Returns <code>true</code> if the trees rooted in this value and in the given one are equal: their
+	 * contents are equal according to {@link #contentEquals(Value)}, and so are their children, vector
+	 * by vector and element by element. Vectors with no elements are the same as missing ones. Links
+	 * are followed. The vectors that deep copies share are read as they are, without copying them.
+	 * Consistent with {@link #treeHashCode()}.
+	 *
+	 * @param val the root of the tree to compare with
+	 * @return <code>true</code> if the two trees are equal
+	 */
+	public final boolean treeEquals( Value val ) {
+		if( this == val ) {
+			return true;
+		}
+		if( !contentEquals( val ) ) {
+			return false;
+		}
+		if( !hasChildren() || !val.hasChildren() ) {
+			return countVectors( this ) == 0 && countVectors( val ) == 0;
+		}
+		int count = 0;
+		for( Entry< String, ValueVector > entry : ValueImpl.entriesToRead( this ) ) {
+			final ValueVector vector = entry.getValue();
+			if( !vector.isEmpty() ) {
+				final ValueVector other = ValueImpl.vectorToRead( val, entry.getKey() );
+				if( other == null || other.size() != vector.size() ) {
+					return false;
+				}
+				final Iterator< Value > it = other.iterator();
+				for( Value element : vector ) {
+					if( !it.hasNext() || !element.treeEquals( it.next() ) ) {
+						return false;
+					}
+				}
+				count++;
+			}
+		}
+		return count == countVectors( val );
+	}
+
+	// Returns the number of non-empty vectors among the children of value
+	private static int countVectors( Value value ) {
+		if( !value.hasChildren() ) {
+			return 0;
+		}
+		int count = 0;
+		for( Entry< String, ValueVector > entry : ValueImpl.entriesToRead( value ) ) {
+			if( !entry.getValue().isEmpty() ) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a hash code of the tree rooted in this value, consistent with {@link #treeEquals(Value)}.
+	 * Computing it visits the whole tree: see {@link ValueKey} for a hash code computed only once.
+	 *
+	 * @return a hash code of the tree rooted in this value
+	 */
+	public final int treeHashCode() {
+		// Summed, since maps of children do not all iterate in the same order
+		int childrenHash = 0;
+		if( hasChildren() ) {
+			for( Entry< String, ValueVector > entry : ValueImpl.entriesToRead( this ) ) {
+				int vectorHash = 1;
+				int size = 0;
+				for( Value element : entry.getValue() ) {
+					vectorHash = 31 * vectorHash + element.treeHashCode();
+					size++;
+				}
+				if( size > 0 ) {
+					childrenHash += entry.getKey().hashCode() ^ vectorHash;
+				}
+			}
+		}
+		return 31 * contentHashCode() + childrenHash;
+	}
+
 	public final boolean isInt() {
-		return (valueObject() instanceof Integer);
+		final Object o = rawValueObject();
+		return o == UnboxedKind.INT || o instanceof Integer;
 	}
 
 	public final boolean isLong() {
-		return (valueObject() instanceof Long);
+		final Object o = rawValueObject();
+		return o == UnboxedKind.LONG || o instanceof Long;
 	}
 
 	public final boolean isBool() {
-		return (valueObject() instanceof Boolean);
+		return (rawValueObject() instanceof Boolean);
 	}
 
 	public final boolean isByteArray() {
-		return (valueObject() instanceof ByteArray);
+		return (rawValueObject() instanceof ByteArray);
 	}
 
 	public final boolean isDouble() {
-		return (valueObject() instanceof Double);
+		final Object o = rawValueObject();
+		return o == UnboxedKind.DOUBLE || o instanceof Double;
 	}
 
 	public final boolean isString() {
-		return (valueObject() instanceof String);
+		return (rawValueObject() instanceof String);
 	}
 
 	public final boolean isChannel() {
-		return (valueObject() instanceof CommChannel);
+		return (rawValueObject() instanceof CommChannel);
 	}
 
 	public final boolean isDefined() {
-		return (valueObject() != null);
+		return (rawValueObject() != null);
 	}
 
 	public void setValue( CommChannel value ) {
@@ -611,8 +1419,12 @@ public abstract class Value implements Expression, Cloneable {
 
 	public final String strValueStrict()
 		throws TypeCastingException {
-		Object o = valueObject();
-		if( o == null ) {
+		Object o = rawValueObject();
+		if( o instanceof UnboxedKind ) {
+			final long b = rawBits();
+			// Read again if the value changed kind while we read its bits
+			return rawValueObject() == o ? ((UnboxedKind) o).strValue( b ) : strValueStrict();
+		} else if( o == null ) {
 			throw new TypeCastingException();
 		} else if( o instanceof String ) {
 			return (String) o;
@@ -689,8 +1501,12 @@ public abstract class Value implements Expression, Cloneable {
 	public final int intValueStrict()
 		throws TypeCastingException {
 		int r = 0;
-		Object o = valueObject();
-		if( o == null ) {
+		Object o = rawValueObject();
+		if( o instanceof UnboxedKind ) {
+			final long b = rawBits();
+			// Read again if the value changed kind while we read its bits
+			return rawValueObject() == o ? ((UnboxedKind) o).intValue( b ) : intValueStrict();
+		} else if( o == null ) {
 			throw new TypeCastingException();
 		} else if( o instanceof Integer ) {
 			r = ((Integer) o).intValue();
@@ -708,7 +1524,7 @@ public abstract class Value implements Expression, Cloneable {
 			}
 		} else if( o instanceof ByteArray ) {
 			try {
-				return new DataInputStream( new ByteArrayInputStream( ((ByteArray) o).getBytes() ) ).readInt();
+				return new DataInputStream( ((ByteArray) o).inputStream() ).readInt();
 			} catch( IOException e ) {
 				throw new TypeCastingException();
 			}
@@ -727,8 +1543,12 @@ public abstract class Value implements Expression, Cloneable {
 	public boolean boolValueStrict()
 		throws TypeCastingException {
 		boolean r = false;
-		Object o = valueObject();
-		if( o == null ) {
+		Object o = rawValueObject();
+		if( o instanceof UnboxedKind ) {
+			final long b = rawBits();
+			// Read again if the value changed kind while we read its bits
+			return rawValueObject() == o ? ((UnboxedKind) o).boolValue( b ) : boolValueStrict();
+		} else if( o == null ) {
 			throw new TypeCastingException();
 		} else if( o instanceof Boolean ) {
 			r = ((Boolean) o).booleanValue();
@@ -740,7 +1560,7 @@ public abstract class Value implements Expression, Cloneable {
 			r = Boolean.parseBoolean( ((String) o).trim() );
 		} else if( o instanceof ByteArray ) {
 			try {
-				return new DataInputStream( new ByteArrayInputStream( ((ByteArray) o).getBytes() ) ).readBoolean();
+				return new DataInputStream( ((ByteArray) o).inputStream() ).readBoolean();
 			} catch( IOException e ) {
 				throw new TypeCastingException();
 			}
@@ -760,8 +1580,12 @@ public abstract class Value implements Expression, Cloneable {
 	public final long longValueStrict()
 		throws TypeCastingException {
 		long r = 0L;
-		Object o = valueObject();
-		if( o == null ) {
+		Object o = rawValueObject();
+		if( o instanceof UnboxedKind ) {
+			final long b = rawBits();
+			// Read again if the value changed kind while we read its bits
+			return rawValueObject() == o ? ((UnboxedKind) o).longValue( b ) : longValueStrict();
+		} else if( o == null ) {
 			throw new TypeCastingException();
 		} else if( o instanceof Long ) {
 			r = ((Long) o).longValue();
@@ -779,7 +1603,7 @@ public abstract class Value implements Expression, Cloneable {
 			}
 		} else if( o instanceof ByteArray ) {
 			try {
-				return new DataInputStream( new ByteArrayInputStream( ((ByteArray) o).getBytes() ) ).readLong();
+				return new DataInputStream( ((ByteArray) o).inputStream() ).readLong();
 			} catch( IOException e ) {
 				throw new TypeCastingException();
 			}
@@ -798,8 +1622,12 @@ public abstract class Value implements Expression, Cloneable {
 	public final double doubleValueStrict()
 		throws TypeCastingException {
 		double r = 0.0;
-		Object o = valueObject();
-		if( o == null ) {
+		Object o = rawValueObject();
+		if( o instanceof UnboxedKind ) {
+			final long b = rawBits();
+			// Read again if the value changed kind while we read its bits
+			return rawValueObject() == o ? ((UnboxedKind) o).doubleValue( b ) : doubleValueStrict();
+		} else if( o == null ) {
 			throw new TypeCastingException();
 		} else if( o instanceof Integer ) {
 			r = ((Integer) o).doubleValue();
@@ -817,7 +1645,7 @@ public abstract class Value implements Expression, Cloneable {
 			}
 		} else if( o instanceof ByteArray ) {
 			try {
-				return new DataInputStream( new ByteArrayInputStream( ((ByteArray) o).getBytes() ) ).readDouble();
+				return new DataInputStream( ((ByteArray) o).inputStream() ).readDouble();
 			} catch( IOException e ) {
 				throw new TypeCastingException();
 			}
@@ -908,7 +1736,17 @@ public abstract class Value implements Expression, Cloneable {
 	}
 
 	public final void assignValue( Value val ) {
-		setValueObject( val.valueObject() );
+		final Object o = val.rawValueObject();
+		if( o instanceof UnboxedKind ) {
+			final long b = val.rawBits();
+			if( val.rawValueObject() == o ) {
+				setUnboxed( (UnboxedKind) o, b );
+			} else {
+				assignValue( val );
+			}
+		} else {
+			setValueObject( o );
+		}
 	}
 
 	@Override
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+/**
+ * A snapshot of a value tree that can be used as the key of hash-based collections, e.g., to cache
+ * or deduplicate messages. Two keys are equal if their trees are equal according to
+ * {@link Value#treeEquals(Value)}.
+ *
+ * The snapshot is a deep copy that shares its subtrees with the original value until either is
+ * modified, so making a key is cheap and later changes to the original value do not affect it.
+ * Since the snapshot never changes, its hash code is computed only the first time it is needed.
+ */
+public final class ValueKey {
+	private final Value value;
+	// Zero until computed. Racing threads compute the same hash, so no lock is needed.
+	private int hash = 0;
+
+	private ValueKey( Value value ) {
+		this.value = value;
+	}
+
+	/**
+	 * Returns a key for the tree rooted in the given value, as it is at the time of the call.
+	 *
+	 * @param value the root of the tree
+	 * @return a key for the tree
+	 */
+	public static ValueKey of( Value value ) {
+		return new ValueKey( Value.createDeepCopy( value ) );
+	}
+
+	/**
+	 * Returns a copy of the tree of this key, which can be modified without affecting the key.
+	 *
+	 * @return a copy of the tree of this key
+	 */
+	public Value value() {
+		return Value.createDeepCopy( value );
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if( h == 0 ) {
+			h = value.treeHashCode();
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	public boolean equals( Object other ) {
+		if( this == other ) {
+			return true;
+		}
+		if( !(other instanceof ValueKey) ) {
+			return false;
+		}
+		final ValueKey key = (ValueKey) other;
+		return hashCode() == key.hashCode() && value.treeEquals( key.value );
+	}
+}
@@ -23,8 +23,12 @@ package jolie.runtime;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -48,6 +52,26 @@ class ValueVectorLink extends ValueVector implements Cloneable {
 		getLinkedValueVector().set( i, value );
 	}
 
+	@Override
+	public void add( Value value ) {
+		getLinkedValueVector().add( value );
+	}
+
+	@Override
+	public Value remove( int i ) {
+		return getLinkedValueVector().remove( i );
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return getLinkedValueVector().isEmpty();
+	}
+
+	@Override
+	public Iterator< Value > iterator() {
+		return getLinkedValueVector().iterator();
+	}
+
 	public ValueVectorLink( VariablePath path ) {
 		linkPath = path;
 	}
@@ -61,11 +85,6 @@ class ValueVectorLink extends ValueVector implements Cloneable {
 		return linkPath.getValueVector( this );
 	}
 
-	@Override
-	protected List< Value > values() {
-		return getLinkedValueVector().values();
-	}
-
 	@Override
 	public List< Value > valuesCopy() {
 		return getLinkedValueVector().valuesCopy();
@@ -81,43 +100,242 @@ class ValueVectorLink extends ValueVector implements Cloneable {
 
 class ValueVectorImpl extends ValueVector implements Serializable {
 	private static final long serialVersionUID = Constants.serialVersionUID();
-	private final ArrayList< Value > values;
+	private static final int INITIAL_CAPACITY = 4;
+	/*
+	 * Replacing or removing an element advances the TreeEpoch of the tree that adopted the vector, if
+	 * any. Reads take no lock. Most vectors never hold more than one element, so elements is either
+	 * null, that element or, once a second element is needed, an array whose first size slots hold the
+	 * elements. Writers hold the monitor of the vector and, apart from replacing an element, never
+	 * change a slot that readers may look at: they fill the free slots of the array before publishing
+	 * the new size, and make a new array when it is full or when removing an element. Readers read
+	 * elements before size, so they never see a size larger than the one of the array they read, unless
+	 * an element has been removed in between.
+	 */
+	private volatile Object elements = null;
+	private volatile int size = 0;
+	/*
+	 * The map that may modify this vector in place. Vectors shared by deep copies have no owner, and
+	 * each map copies them before letting them be modified (see CompactChildrenMap).
+	 */
+	private transient volatile CompactChildrenMap owner = null;
+	private transient volatile TreeEpoch tree = null;
+
+	private static final AtomicReferenceFieldUpdater< ValueVectorImpl, TreeEpoch > TREE =
+		AtomicReferenceFieldUpdater.newUpdater( ValueVectorImpl.class, TreeEpoch.class, "tree" );
+
+	TreeEpoch tree() {
+		return tree;
+	}
 
 	@Override
-	protected List< Value > values() {
-		return values;
+	boolean adopt( TreeEpoch t ) {
+		final TreeEpoch current = tree;
+		return current == t || (current == null && (TREE.compareAndSet( this, null, t ) || tree == t));
+	}
+
+	CompactChildrenMap owner() {
+		return owner;
+	}
+
+	void setOwner( CompactChildrenMap owner ) {
+		this.owner = owner;
+	}
+
+	/**
+	 * Returns a copy of this vector owned by the given map. The elements of the copy share their
+	 * children with ours until either is modified.
+	 */
+	synchronized ValueVectorImpl copyFor( CompactChildrenMap map ) {
+		final ValueVectorImpl ret = new ValueVectorImpl();
+		ret.owner = map;
+		final Object e = elements;
+		if( e instanceof Value ) {
+			ret.elements = ValueImpl.copyOnWrite( (Value) e );
+		} else if( e != null ) {
+			final Value[] a = (Value[]) e;
+			final Value[] copies = new Value[ Math.max( size, INITIAL_CAPACITY ) ];
+			for( int i = 0; i < size; i++ ) {
+				copies[ i ] = ValueImpl.copyOnWrite( a[ i ] );
+			}
+			ret.elements = copies;
+		}
+		ret.size = size;
+		return ret;
+	}
+
+	Value newValue() {
+		return Value.create();
 	}
 
 	@Override
-	public synchronized int size() {
-		return values().size();
+	public int size() {
+		return size;
 	}
 
 	@Override
 	public Value get( int i ) {
-		if( i >= values.size() ) {
-			synchronized( this ) {
-				if( i >= values.size() ) {
-					values.ensureCapacity( i + 1 );
-					for( int k = values.size(); k <= i; k++ ) {
-						values.add( Value.create() );
-					}
+		final Object e = elements;
+		if( e instanceof Value ) {
+			if( i == 0 ) {
+				return (Value) e;
+			}
+		} else if( e != null ) {
+			final Value[] a = (Value[]) e;
+			if( i < size && i < a.length ) {
+				final Value v = a[ i ];
+				if( v != null ) {
+					return v;
 				}
 			}
 		}
-		return values.get( i );
+		return getOrCreate( i );
+	}
+
+	private synchronized Value getOrCreate( int i ) {
+		final Object e = elements;
+		if( i == 0 && !(e instanceof Value[]) ) {
+			if( e == null ) {
+				final Value v = newValue();
+				elements = v;
+				size = 1;
+				return v;
+			}
+			return (Value) e;
+		}
+		final Value[] a = array( i + 1 );
+		if( i >= size ) {
+			for( int k = size; k <= i; k++ ) {
+				a[ k ] = newValue();
+			}
+			size = i + 1;
+		}
+		return a[ i ];
+	}
+
+	/*
+	 * Returns the array of the elements, with room for at least capacity elements. Must be called while
+	 * holding the monitor of this vector. The returned array has been published, but the slots that are
+	 * added to it must be published by updating size.
+	 */
+	private Value[] array( int capacity ) {
+		final Object e = elements;
+		if( e instanceof Value[] && ((Value[]) e).length >= capacity ) {
+			return (Value[]) e;
+		}
+		final Value[] a;
+		if( e instanceof Value[] ) {
+			a = Arrays.copyOf( (Value[]) e, Math.max( capacity, size + (size >> 1) ) );
+		} else {
+			a = new Value[ Math.max( capacity, INITIAL_CAPACITY ) ];
+			if( e != null ) {
+				a[ 0 ] = (Value) e;
+			}
+		}
+		elements = a;
+		return a;
 	}
 
 	@Override
 	public synchronized void set( int i, Value value ) {
-		if( i >= values.size() ) {
-			values.ensureCapacity( i + 1 );
-			for( int k = values.size(); k < i; k++ ) {
-				values.add( Value.create() );
+		final Object e = elements;
+		if( i == 0 && !(e instanceof Value[]) ) {
+			elements = value;
+			size = 1;
+			if( e != null ) {
+				TreeEpoch.advance( tree );
 			}
-			values.add( value );
+			return;
+		}
+		final int n = size;
+		final Value[] a = array( i + 1 );
+		for( int k = n; k < i; k++ ) {
+			a[ k ] = newValue();
+		}
+		a[ i ] = value;
+		// Publishes the slot even when the size does not change
+		size = Math.max( n, i + 1 );
+		if( i < n ) {
+			TreeEpoch.advance( tree );
+		}
+	}
+
+	@Override
+	public synchronized void add( Value value ) {
+		if( elements == null ) {
+			elements = value;
+			size = 1;
 		} else {
-			values.set( i, value );
+			final int n = size;
+			array( n + 1 )[ n ] = value;
+			size = n + 1;
+		}
+	}
+
+	@Override
+	public synchronized Value remove( int i ) {
+		final Object e = elements;
+		if( e instanceof Value && i == 0 ) {
+			elements = null;
+			size = 0;
+			TreeEpoch.advance( tree );
+			return (Value) e;
+		}
+		final int n = size;
+		if( !(e instanceof Value[]) || i < 0 || i >= n ) {
+			throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + n );
+		}
+		final Value[] a = (Value[]) e;
+		// Readers may be looking at the old array, so it is left as it is
+		final Value[] b = new Value[ a.length ];
+		System.arraycopy( a, 0, b, 0, i );
+		System.arraycopy( a, i + 1, b, i, n - i - 1 );
+		elements = b;
+		size = n - 1;
+		TreeEpoch.advance( tree );
+		return a[ i ];
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns an iterator over the elements of this vector at the time of the call. The iterator does
+	 * not copy them: it sees the replacements of the elements it has not returned yet, but neither
+	 * additions nor removals.
+	 */
+	@Override
+	public Iterator< Value > iterator() {
+		final Object e = elements;
+		final int n = size;
+		if( e instanceof Value ) {
+			return Collections.singletonList( (Value) e ).iterator();
+		}
+		return e == null ? Collections.emptyIterator() : new ElementIterator( (Value[]) e, n );
+	}
+
+	private static class ElementIterator implements Iterator< Value > {
+		private final Value[] a;
+		private final int size;
+		private int next = 0;
+
+		private ElementIterator( Value[] a, int size ) {
+			this.a = a;
+			this.size = Math.min( size, a.length );
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < size && a[ next ] != null;
+		}
+
+		@Override
+		public Value next() {
+			if( !hasNext() ) {
+				throw new NoSuchElementException();
+			}
+			return a[ next++ ];
 		}
 	}
 
@@ -127,12 +345,27 @@ class ValueVectorImpl extends ValueVector implements Serializable {
 	}
 
 	@Override
-	public synchronized List< Value > valuesCopy() {
-		return new ArrayList<>( values );
+	public List< Value > valuesCopy() {
+		final ArrayList< Value > ret = new ArrayList<>( Math.max( size, 1 ) );
+		for( Value v : this ) {
+			ret.add( v );
+		}
+		return ret;
 	}
 
-	public ValueVectorImpl() {
-		values = new ArrayList<>( 1 );
+	public ValueVectorImpl() {}
+}
+
+
+/**
+ * A vector of a shared tree, whose elements are shared values (see Value#createSharedRootValue).
+ */
+class SharedValueVectorImpl extends ValueVectorImpl {
+	private static final long serialVersionUID = Constants.serialVersionUID();
+
+	@Override
+	Value newValue() {
+		return new ValueImpl( null, true );
 	}
 }
 
@@ -142,9 +375,7 @@ public abstract class ValueVector implements Iterable< Value > {
 		return new ValueVectorImpl();
 	}
 
-	public synchronized Value remove( int i ) {
-		return values().remove( i );
-	}
+	public abstract Value remove( int i );
 
 	public static ValueVector createLink( VariablePath path ) {
 		return new ValueVectorLink( path );
@@ -165,18 +396,11 @@ public abstract class ValueVector implements Iterable< Value > {
 		return retVec;
 	}
 
-	public synchronized Value first() {
+	public Value first() {
 		return get( 0 );
 	}
 
-	public synchronized boolean isEmpty() {
-		return values().isEmpty();
-	}
-
-	@Override
-	public synchronized Iterator< Value > iterator() {
-		return values().iterator();
-	}
+	public abstract boolean isEmpty();
 
 	public abstract Value get( int i );
 
@@ -186,10 +410,7 @@ public abstract class ValueVector implements Iterable< Value > {
 
 	public abstract List< Value > valuesCopy();
 
-
-	public synchronized void add( Value value ) {
-		values().add( value );
-	}
+	public abstract void add( Value value );
 
 	// TODO: improve performance
 	public synchronized void deepCopy( ValueVector vec ) {
@@ -204,11 +425,16 @@ public abstract class ValueVector implements Iterable< Value > {
 		}
 	}
 
-
-	protected abstract List< Value > values();
-
 	public abstract boolean isLink();
 
+	/*
+	 * Makes the structural changes of this vector advance the epoch of the given tree (see TreeEpoch).
+	 * Returns false if they cannot be tracked, or if this vector has been adopted by another tree.
+	 */
+	boolean adopt( TreeEpoch tree ) {
+		return false;
+	}
+
 	public final Stream< Value > stream() {
 		return StreamSupport.stream( spliterator(), false );
 	}
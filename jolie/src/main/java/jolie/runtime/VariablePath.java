@@ -29,10 +29,18 @@ import jolie.util.Pair;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a variable path, e.g. a.b[3], offering mechanisms for referring to the object pointed
  * by it.
+ *
+ * Names and indexes given as constants (see {@link #VariablePath(Pair[], boolean)}) are evaluated
+ * once, when the path is created. Paths that start with at least two constant segments, like
+ * response.data.items[i].name, also remember the vector they last reached at the end of their
+ * constant part (items), and start from it as long as the {@link TreeEpoch} of the tree and the
+ * first vector of the path have not changed. The vectors are remembered by the root value they were
+ * reached from, and only for the roots of sessions (see {@link RootValueImpl#tree()}).
  * 
  * @author Fabrizio Montesi
  */
@@ -45,6 +53,13 @@ public class VariablePath implements Expression {
 	}
 
 	private final Pair< Expression, Expression >[] path; // Right Expression may be null
+	private final boolean constantValues;
+	private final String[] keys; // The constant names in path, null where the name is not constant
+	private final int[] indexes; // The constant indexes in path, -1 where the index is not constant
+	private final int cachedSegment; // The segment whose vector is remembered, -1 if none
+	private final int cacheHash = CACHE_HASHES.getAndAdd( 0x61c88647 ); // Spreads the paths in a PathCache
+
+	private static final AtomicInteger CACHE_HASHES = new AtomicInteger();
 
 	public final Pair< Expression, Expression >[] path() {
 		return path;
@@ -66,6 +81,7 @@ public class VariablePath implements Expression {
 		return clonedPath;
 	}
 
+	// The copy evaluates all its values, since its path may be modified (see ForEachArrayItemProcess)
 	public VariablePath copy() {
 		return new VariablePath( Arrays.copyOf( path, path.length ) );
 	}
@@ -73,7 +89,7 @@ public class VariablePath implements Expression {
 	@Override
 	public Expression cloneExpression( TransformationReason reason ) {
 		Pair< Expression, Expression >[] clonedPath = cloneExpressionHelper( path, reason );
-		return new VariablePath( clonedPath );
+		return new VariablePath( clonedPath, constantValues );
 	}
 
 	public final VariablePath containedSubPath( VariablePath otherVarPath ) {
@@ -121,7 +137,148 @@ public class VariablePath implements Expression {
 	}
 
 	public VariablePath( Pair< Expression, Expression >[] path ) {
+		this( path, false );
+	}
+
+	/**
+	 * Creates a path whose names and indexes given as values may be evaluated only once.
+	 *
+	 * @param path the names and indexes of the path
+	 * @param constantValues whether the values in path are constants, which are never modified
+	 */
+	public VariablePath( Pair< Expression, Expression >[] path, boolean constantValues ) {
 		this.path = path;
+		this.constantValues = constantValues;
+		keys = new String[ path.length ];
+		indexes = new int[ path.length ];
+		int constantSegments = -1;
+		for( int i = 0; i < path.length; i++ ) {
+			final Expression key = path[ i ].key();
+			final Expression index = path[ i ].value();
+			if( constantValues && key instanceof ValueImpl ) {
+				keys[ i ] = KeyInterner.getInstance().intern( ((Value) key).strValue() );
+			}
+			if( !constantValues ) {
+				indexes[ i ] = -1;
+			} else if( index == null ) {
+				indexes[ i ] = 0;
+			} else {
+				indexes[ i ] = index instanceof ValueImpl ? ((Value) index).intValue() : -1;
+			}
+			if( constantSegments < 0 && (keys[ i ] == null || indexes[ i ] < 0) ) {
+				constantSegments = i;
+			}
+		}
+		if( constantSegments < 0 ) {
+			constantSegments = path.length;
+		}
+		// The last constant name, if all the segments before it are constant
+		final int segment =
+			constantSegments < path.length && keys[ constantSegments ] != null ? constantSegments
+				: constantSegments - 1;
+		cachedSegment = segment > 0 ? segment : -1;
+	}
+
+	protected final boolean hasConstantValues() {
+		return constantValues;
+	}
+
+	private String key( int i ) {
+		final String key = keys[ i ];
+		return key == null ? path[ i ].key().evaluate().strValue() : key;
+	}
+
+	private int index( int i ) {
+		final int index = indexes[ i ];
+		if( index >= 0 ) {
+			return index;
+		}
+		final Expression expression = path[ i ].value();
+		return expression == null ? 0 : expression.evaluate().intValue();
+	}
+
+	/**
+	 * Creates a root value for a branch of the given root, in which the variable at this path is local
+	 * to the branch (see {@link Value#createBranchRoot(Value, String[], int[])}). The names and indexes
+	 * of the path are evaluated in the current thread.
+	 *
+	 * @param root the root value to branch from
+	 * @return the root value of the branch
+	 */
+	public final Value createBranchRoot( Value root ) {
+		final String[] k = new String[ path.length ];
+		final int[] idx = new int[ path.length ];
+		for( int i = 0; i < path.length; i++ ) {
+			k[ i ] = key( i );
+			idx[ i ] = index( i );
+		}
+		return Value.createBranchRoot( root, k, idx );
+	}
+
+	// Unlike size, isEmpty detects the loops of vector links, so it is used when no index is given
+	private boolean hasElement( ValueVector vector, int i, int index ) {
+		return path[ i ].value() == null ? !vector.isEmpty() : index < vector.size();
+	}
+
+	final int cacheHash() {
+		return cacheHash;
+	}
+
+	/*
+	 * Returns the vector of cachedSegment starting from root, or null if it does not exist and create
+	 * is false.
+	 */
+	private ValueVector cachedVector( Value root, boolean create ) {
+		final TreeEpoch tree = root instanceof RootValueImpl ? ((RootValueImpl) root).tree() : null;
+		if( tree == null ) {
+			return resolveCachedSegment( root, create, null );
+		}
+		final PathCache cache = ((RootValueImpl) root).pathCache();
+		final PathCache.Entry c = cache.get( this );
+		if( c != null && c.epoch == tree.current() && root.children().get( keys[ 0 ] ) == c.first ) {
+			return c.vector;
+		}
+		final long epoch = tree.current();
+		final ValueVector[] first = new ValueVector[ 1 ];
+		final ValueVector ret = resolveCachedSegment( root, create, first );
+		if( ret != null && first[ 0 ] != null ) {
+			cache.put( new PathCache.Entry( this, first[ 0 ], epoch, ret ) );
+		}
+		return ret;
+	}
+
+	/*
+	 * Looks up the vector of cachedSegment. If first is given, what is traversed is adopted by the tree
+	 * of root, and first[ 0 ] is set to the first vector of the path if all of it could be adopted.
+	 */
+	private ValueVector resolveCachedSegment( Value root, boolean create, ValueVector[] first ) {
+		final TreeEpoch tree = first == null ? null : ((RootValueImpl) root).tree();
+		boolean cacheable = tree != null;
+		Value currValue = root;
+		ValueVector firstVector = null;
+		ValueVector currVector = null;
+		for( int i = 0; i <= cachedSegment; i++ ) {
+			// Adopting before reading makes the changes we might not see advance the epoch we have read
+			cacheable = cacheable && (i == 0 || currValue.adopt( tree ));
+			currVector = create ? currValue.getChildren( keys[ i ] ) : currValue.children().get( keys[ i ] );
+			if( currVector == null ) {
+				return null;
+			}
+			if( i == 0 ) {
+				firstVector = currVector;
+			}
+			cacheable = cacheable && !currVector.isLink() && currVector.adopt( tree );
+			if( i < cachedSegment ) {
+				if( !create && !hasElement( currVector, i, indexes[ i ] ) ) {
+					return null;
+				}
+				currValue = currVector.get( indexes[ i ] );
+			}
+		}
+		if( cacheable ) {
+			first[ 0 ] = firstVector;
+		}
+		return currVector;
 	}
 
 	protected Value getRootValue() {
@@ -137,7 +294,7 @@ public class VariablePath implements Expression {
 
 		for( int i = 0; i < path.length; i++ ) {
 			pair = path[ i ];
-			keyStr = pair.key().evaluate().strValue();
+			keyStr = key( i );
 			currVector = currValue.children().get( keyStr );
 			if( currVector == null ) {
 				return;
@@ -152,7 +309,7 @@ public class VariablePath implements Expression {
 					currValue.children().remove( keyStr );
 				}
 			} else {
-				index = pair.value().evaluate().intValue();
+				index = index( i );
 				if( (i + 1) < path.length ) {
 					if( currVector.size() <= index ) {
 						return;
@@ -186,12 +343,13 @@ public class VariablePath implements Expression {
 	}
 
 	public final Value getValue( Value currValue ) {
-		for( Pair< Expression, Expression > pair : path ) {
-			final String keyStr = pair.key().evaluate().strValue();
-			currValue =
-				pair.value() == null
-					? currValue.getFirstChild( keyStr )
-					: currValue.getChildren( keyStr ).get( pair.value().evaluate().intValue() );
+		int i = 0;
+		if( cachedSegment > 0 ) {
+			currValue = cachedVector( currValue, true ).get( index( cachedSegment ) );
+			i = cachedSegment + 1;
+		}
+		for( ; i < path.length; i++ ) {
+			currValue = currValue.getChildren( key( i ) ).get( index( i ) );
 		}
 
 		return currValue;
@@ -209,7 +367,7 @@ public class VariablePath implements Expression {
 		} else {
 			for( int i = 0; i < path.length; i++ ) {
 				pair = path[ i ];
-				keyStr = pair.key().evaluate().strValue();
+				keyStr = key( i );
 				currVector = currValue.getChildren( keyStr );
 				if( pair.value() == null ) {
 					if( (i + 1) < path.length ) {
@@ -222,7 +380,7 @@ public class VariablePath implements Expression {
 						}
 					}
 				} else {
-					index = pair.value().evaluate().intValue();
+					index = index( i );
 					if( (i + 1) < path.length ) {
 						currValue = currVector.get( index );
 					} else {
@@ -247,34 +405,21 @@ public class VariablePath implements Expression {
 
 	public final Value getValueOrNull( Value currValue ) {
 		for( int i = 0; i < path.length; i++ ) {
-			final Pair< Expression, Expression > pair = path[ i ];
-			final ValueVector currVector = currValue.children().get( pair.key().evaluate().strValue() );
+			final ValueVector currVector;
+			if( i == 0 && cachedSegment > 0 ) {
+				currVector = cachedVector( currValue, false );
+				i = cachedSegment;
+			} else {
+				currVector = currValue.children().get( key( i ) );
+			}
 			if( currVector == null ) {
 				return null;
 			}
-			if( pair.value() == null ) {
-				if( (i + 1) < path.length ) {
-					if( currVector.isEmpty() ) {
-						return null;
-					}
-					currValue = currVector.get( 0 );
-				} else { // We're finished
-					if( currVector.isEmpty() ) {
-						return null;
-					} else {
-						return currVector.get( 0 );
-					}
-				}
-			} else {
-				final int index = pair.value().evaluate().intValue();
-				if( currVector.size() <= index ) {
-					return null;
-				}
-				currValue = currVector.get( index );
-				if( (i + 1) >= path.length ) {
-					return currValue;
-				}
+			final int index = index( i );
+			if( !hasElement( currVector, i, index ) ) {
+				return null;
 			}
+			currValue = currVector.get( index );
 		}
 
 		return currValue;
@@ -297,14 +442,8 @@ public class VariablePath implements Expression {
 
 	private FaultException buildAliasAccessException() {
 		String alias = "";
-		boolean isRoot = true;
-		for( Pair< Expression, Expression > p : path ) {
-			if( isRoot ) {
-				alias += p.key().evaluate().strValue();
-				isRoot = false;
-			} else {
-				alias += "." + p.key().evaluate().strValue();
-			}
+		for( int i = 0; i < path.length; i++ ) {
+			alias += i == 0 ? key( i ) : "." + key( i );
 		}
 		return new FaultException( "AliasAccessException",
 			"Found a loop when accessing an alias pointing to path: " + alias );
@@ -314,14 +453,14 @@ public class VariablePath implements Expression {
 	public final ValueVector getValueVector( Value currValue ) {
 		ValueVector currVector = null;
 		for( int i = 0; i < path.length; i++ ) {
-			final Pair< Expression, Expression > pair = path[ i ];
-			currVector = currValue.getChildren( pair.key().evaluate().strValue() );
+			if( i == 0 && cachedSegment > 0 ) {
+				currVector = cachedVector( currValue, true );
+				i = cachedSegment;
+			} else {
+				currVector = currValue.getChildren( key( i ) );
+			}
 			if( (i + 1) < path.length ) {
-				if( pair.value() == null ) {
-					currValue = currVector.get( 0 );
-				} else {
-					currValue = currVector.get( pair.value().evaluate().intValue() );
-				}
+				currValue = currVector.get( index( i ) );
 			}
 		}
 		return currVector;
@@ -330,24 +469,21 @@ public class VariablePath implements Expression {
 	public final ValueVector getValueVectorOrNull( Value currValue ) {
 		ValueVector currVector = null;
 		for( int i = 0; i < path.length; i++ ) {
-			final Pair< Expression, Expression > pair = path[ i ];
-			currVector = currValue.children().get( pair.key().evaluate().strValue() );
+			if( i == 0 && cachedSegment > 0 ) {
+				currVector = cachedVector( currValue, false );
+				i = cachedSegment;
+			} else {
+				currVector = currValue.children().get( key( i ) );
+			}
 			if( currVector == null ) {
 				return null;
 			}
 			if( (i + 1) < path.length ) {
-				if( pair.value() == null ) {
-					if( currVector.isEmpty() ) {
-						return null;
-					}
-					currValue = currVector.get( 0 );
-				} else {
-					final int index = pair.value().evaluate().intValue();
-					if( currVector.size() <= index ) {
-						return null;
-					}
-					currValue = currVector.get( index );
+				final int index = index( i );
+				if( !hasElement( currVector, i, index ) ) {
+					return null;
 				}
+				currValue = currVector.get( index );
 			}
 		}
 		return currVector;
@@ -373,7 +509,8 @@ public class VariablePath implements Expression {
 
 		for( int i = 0; i < path.length; i++ ) {
 			pair = path[ i ];
-			keyStr = pair.key().evaluate().strValue();
+			keyStr = key( i );
+			currValue.setLinked();
 			currVector = currValue.getChildren( keyStr );
 			if( pair.value() == null ) {
 				if( (i + 1) < path.length ) {
@@ -382,7 +519,7 @@ public class VariablePath implements Expression {
 					currValue.children().put( keyStr, ValueVector.createLink( rightPath ) );
 				}
 			} else {
-				index = pair.value().evaluate().intValue();
+				index = index( i );
 				if( (i + 1) < path.length ) {
 					currValue = currVector.get( index );
 				} else {
@@ -400,7 +537,7 @@ public class VariablePath implements Expression {
 
 		for( int i = 0; i < path.length; i++ ) {
 			pair = path[ i ];
-			currVector = currValue.getChildren( pair.key().evaluate().strValue() );
+			currVector = currValue.getChildren( key( i ) );
 			if( pair.value() == null ) {
 				if( (i + 1) < path.length ) {
 					currValue = currVector.get( 0 );
@@ -408,7 +545,7 @@ public class VariablePath implements Expression {
 					return currVector;
 				}
 			} else {
-				index = pair.value().evaluate().intValue();
+				index = index( i );
 				if( (i + 1) < path.length ) {
 					currValue = currVector.get( index );
 				} else {
@@ -420,6 +557,57 @@ public class VariablePath implements Expression {
 		return currValue;
 	}
 
+	/**
+	 * Deep copies the given value to the value pointed by this path, keeping the links in its subtree.
+	 *
+	 * @param value the value to be copied
+	 */
+	public final void deepCopyWithLinks( Value value ) {
+		deepCopyWithLinks( getRootValue(), value );
+	}
+
+	/**
+	 * Deep copies the given value to the value pointed by this path in the tree of root, keeping the
+	 * links in its subtree.
+	 *
+	 * @param root the root of the path
+	 * @param value the value to be copied
+	 */
+	public final void deepCopyWithLinks( Value root, Value value ) {
+		final Value dest = getValue( root );
+		dest.deepCopyWithLinks( value );
+		if( dest.isLinked() ) {
+			markLinked( root );
+		}
+	}
+
+	/**
+	 * Deep copies the given vector to the vector pointed by this path in the tree of root, keeping the
+	 * links in the subtrees of its values.
+	 *
+	 * @param root the root of the path
+	 * @param vec the vector to be copied
+	 */
+	public final void deepCopyWithLinks( Value root, ValueVector vec ) {
+		final ValueVector dest = getValueVector( root );
+		dest.deepCopyWithLinks( vec );
+		for( Value v : dest ) {
+			if( v.isLink() || v.isLinked() ) {
+				markLinked( root );
+				return;
+			}
+		}
+	}
+
+	// Marks the values holding the last node of this path as values that may contain links
+	private void markLinked( Value currValue ) {
+		for( int i = 0; i < path.length - 1; i++ ) {
+			currValue.setLinked();
+			currValue = currValue.getChildren( key( i ) ).get( index( i ) );
+		}
+		currValue.setLinked();
+	}
+
 	public final void deepCopy( VariablePath rightPath ) {
 		Object myObj = getValueOrValueVector();
 		if( myObj instanceof Value ) {
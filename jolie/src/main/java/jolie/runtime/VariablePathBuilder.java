@@ -47,14 +47,14 @@ public final class VariablePathBuilder {
 	@SuppressWarnings( "unchecked" )
 	public VariablePath toVariablePath() {
 		if( global ) {
-			return new GlobalVariablePath( list.toArray( new Pair[] {} ) );
+			return new GlobalVariablePath( list.toArray( new Pair[] {} ), true );
 		} else {
-			return new VariablePath( list.toArray( new Pair[] {} ) );
+			return new VariablePath( list.toArray( new Pair[] {} ), true );
 		}
 	}
 
 	@SuppressWarnings( "unchecked" )
 	public VariablePath toClosedVariablePath( Value rootValue ) {
-		return new ClosedVariablePath( list.toArray( new Pair[ 0 ] ), rootValue );
+		return new ClosedVariablePath( list.toArray( new Pair[ 0 ] ), rootValue, true );
 	}
 }
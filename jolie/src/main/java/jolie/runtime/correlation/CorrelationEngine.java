@@ -21,6 +21,9 @@
 
 package jolie.runtime.correlation;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 import jolie.Interpreter;
 import jolie.SessionListener;
 import jolie.SessionThread;
@@ -73,11 +76,21 @@ public abstract class CorrelationEngine implements SessionListener {
 	protected abstract boolean routeMessage( CommMessage message, CommChannel channel );
 
 	private final Interpreter interpreter;
+	private final Lock lock = new ReentrantLock();
 
 	public CorrelationEngine( Interpreter interpreter ) {
 		this.interpreter = interpreter;
 	}
 
+	/**
+	 * Returns the lock serialising message routing and session creation in this engine.
+	 * 
+	 * @return the lock of this correlation engine
+	 */
+	public Lock lock() {
+		return lock;
+	}
+
 	protected Interpreter interpreter() {
 		return interpreter;
 	}
@@ -99,16 +112,21 @@ public abstract class CorrelationEngine implements SessionListener {
 		}
 	}
 
-	public synchronized void onMessageReceive( final CommMessage message, final CommChannel channel )
+	public void onMessageReceive( final CommMessage message, final CommChannel channel )
 		throws CorrelationError {
-		if( !(
-		// We try to find a correlating process.
-		routeMessage( message, channel )
-			||
-			// If there is none, we must be able to start a new process with this message.
-			interpreter.startServiceSession( message, channel )) ) {
-			// Otherwise, exception.
-			throw new CorrelationError();
+		lock.lock();
+		try {
+			if( !(
+			// We try to find a correlating process.
+			routeMessage( message, channel )
+				||
+				// If there is none, we must be able to start a new process with this message.
+				interpreter.startServiceSession( message, channel )) ) {
+				// Otherwise, exception.
+				throw new CorrelationError();
+			}
+		} finally {
+			lock.unlock();
 		}
 	}
 }
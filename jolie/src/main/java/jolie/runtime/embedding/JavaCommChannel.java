@@ -30,15 +30,12 @@ import java.util.concurrent.Future;
 import jolie.ExecutionThread;
 import jolie.Interpreter;
 import jolie.net.CommChannel;
-import jolie.net.CommChannelHandler;
 import jolie.net.CommMessage;
 import jolie.net.PollableCommChannel;
 import jolie.runtime.InvalidIdException;
 import jolie.runtime.JavaService;
 
 
-// TODO: this should not be polled
-
 /**
  * @author Fabrizio Montesi
  */
@@ -55,6 +52,11 @@ public class JavaCommChannel extends CommChannel implements PollableCommChannel
 		return messages.isEmpty() == false;
 	}
 
+	@Override
+	public boolean signalsReadiness() {
+		return true;
+	}
+
 	@Override
 	protected void disposeForInputImpl()
 		throws IOException {
@@ -77,10 +79,11 @@ public class JavaCommChannel extends CommChannel implements PollableCommChannel
 		throws IOException {
 		final CompletableFuture< CommMessage > f = new CompletableFuture<>();
 		messages.put( message.id(), f );
+		signalReady();
 
 		final ExecutionThread ethread = ExecutionThread.currentThread();
 		Interpreter.getInstance().commCore().executor().submit( () -> {
-			CommChannelHandler.currentThread().setExecutionThread( ethread );
+			ExecutionThread.setCurrentThread( ethread );
 			Thread.currentThread().setContextClassLoader( ethread.interpreter().getClassLoader() );
 			try {
 				final CommMessage response = javaService.callOperation( message );
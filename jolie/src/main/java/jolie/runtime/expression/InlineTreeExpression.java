@@ -59,14 +59,14 @@ public class InlineTreeExpression implements Expression {
 			if( expression instanceof VariablePath ) {
 				Object myObj = ((VariablePath) expression).getValueOrValueVector();
 				if( myObj instanceof Value ) {
-					path.getValue( inlineValue ).deepCopyWithLinks( (Value) myObj );
+					path.deepCopyWithLinks( inlineValue, (Value) myObj );
 				} else if( myObj instanceof ValueVector ) {
-					path.getValueVector( inlineValue ).deepCopyWithLinks( (ValueVector) myObj );
+					path.deepCopyWithLinks( inlineValue, (ValueVector) myObj );
 				} else {
 					throw new RuntimeException( "incomplete case analysis" );
 				}
 			} else {
-				path.getValue( inlineValue ).deepCopyWithLinks( expression.evaluate() );
+				path.deepCopyWithLinks( inlineValue, expression.evaluate() );
 			}
 		}
 	}
@@ -40,7 +40,7 @@ public class BasicType< T extends Object > {
 	private static final Predicate< Value > DOUBLE_PREDICATE = v -> v.isDouble() || v.isInt();
 	private static final Predicate< Value > STRING_PREDICATE = Value::isString;
 	private static final Predicate< Value > BOOL_PREDICATE = Value::isBool;
-	private static final Predicate< Value > VOID_PREDICATE = v -> v.valueObject() == null;
+	private static final Predicate< Value > VOID_PREDICATE = v -> !v.isDefined();
 	private static final Predicate< Value > RAW_PREDICATE = Value::isByteArray;
 
 	static {
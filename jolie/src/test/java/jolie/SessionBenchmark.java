@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie;
+
+import jolie.benchmark.Benchmark;
+import jolie.benchmark.Programs;
+
+/**
+ * Measures tiny request-response sessions: a program calls an embedded service that echoes an int,
+ * so that the cost of each call is mostly the one of starting and ending the session that serves
+ * it. The bytes are those allocated by all the threads of the interpreters, client side included.
+ */
+public class SessionBenchmark {
+	private static final int CALLS = 50_000;
+	private static final int WARMUP = Integer.getInteger( "benchmark.warmup", 5 );
+	private static final int ROUNDS = Integer.getInteger( "benchmark.rounds", 10 );
+
+	private static final String CODE = "interface EchoInterface { RequestResponse: echo(int)(int) }\n"
+		+ "service Echo {\n"
+		+ "  execution { concurrent }\n"
+		+ "  inputPort Input { Location: \"local\" Interfaces: EchoInterface }\n"
+		+ "  main { echo( x )( x ) }\n"
+		+ "}\n"
+		+ "service main {\n"
+		+ "  embed Echo as Echo\n"
+		+ "  main { for( i = 0, i < " + CALLS + ", i++ ) { echo@Echo( i )( r ) } }\n"
+		+ "}";
+
+	public static void main( String[] args )
+		throws Exception {
+		final long[] nanos = new long[ ROUNDS ];
+		final long[] bytes = new long[ ROUNDS ];
+		for( int i = -WARMUP; i < ROUNDS; i++ ) {
+			final long[] end = new long[ 2 ];
+			final long allocated = Benchmark.allocatedBytesOfLiveThreads();
+			final long start = System.nanoTime();
+			Programs.run( "sessions", CODE, "main", () -> {
+				end[ 0 ] = System.nanoTime();
+				end[ 1 ] = Benchmark.allocatedBytesOfLiveThreads();
+			} );
+			if( i >= 0 ) {
+				nanos[ i ] = end[ 0 ] - start;
+				bytes[ i ] = end[ 1 ] - allocated;
+			}
+		}
+		Benchmark.report( "echo call", (double) Benchmark.median( nanos ) / CALLS, "ns/op" );
+		Benchmark.report( "echo call", (double) Benchmark.median( bytes ) / CALLS, "B/op, all threads" );
+		// Like the launcher, since embedded interpreters do not stop with the one that embeds them
+		System.exit( 0 );
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie;
+
+import static org.junit.Assert.assertEquals;
+
+import jolie.benchmark.Programs;
+import jolie.runtime.Value;
+
+import org.junit.Test;
+
+/**
+ * Runs a program with and without --virtualThreads. Virtual threads are used on the Java runtimes
+ * that provide them, and the interpreter falls back to its thread pools on the others.
+ */
+public class VirtualThreadsTest {
+	private static final int CALLS = 50;
+
+	// Sessions, channel handlers, spawn, parallel branches, links and synchronized blocks
+	private static final String CODE = "interface EchoInterface { RequestResponse: twice(int)(int) }\n"
+		+ "service Echo {\n"
+		+ "  execution { concurrent }\n"
+		+ "  inputPort Input { Location: \"local\" Interfaces: EchoInterface }\n"
+		+ "  main { twice( x )( y ) { y = x * 2 } }\n"
+		+ "}\n"
+		+ "service main {\n"
+		+ "  embed Echo as Echo\n"
+		+ "  main {\n"
+		+ "    global.total = 0;\n"
+		+ "    spawn( i over " + CALLS + " ) in results {\n"
+		+ "      twice@Echo( i )( results );\n"
+		+ "      synchronized( total ) { global.total = global.total + results }\n"
+		+ "    };\n"
+		+ "    { linkIn( done ); global.linked = true | global.results = #results; linkOut( done ) }\n"
+		+ "  }\n"
+		+ "}";
+
+	private static boolean javaProvidesVirtualThreads() {
+		final String version = System.getProperty( "java.specification.version" );
+		return !version.startsWith( "1." ) && Integer.parseInt( version ) >= 21;
+	}
+
+	private static void run( boolean virtualThreads )
+		throws Exception {
+		final boolean[] used = new boolean[ 1 ];
+		final Value global = Value.create();
+		Programs.run( "virtual_threads", CODE, "main", virtualThreads, interpreter -> {
+			used[ 0 ] = interpreter.usesVirtualThreads();
+			global.deepCopy( interpreter.globalValue() );
+		} );
+		assertEquals( virtualThreads && javaProvidesVirtualThreads(), used[ 0 ] );
+		assertEquals( CALLS, global.getFirstChild( "results" ).intValue() );
+		assertEquals( CALLS * (CALLS - 1), global.getFirstChild( "total" ).intValue() );
+		assertEquals( true, global.getFirstChild( "linked" ).boolValue() );
+	}
+
+	@Test
+	public void virtualThreads()
+		throws Exception {
+		assertEquals( javaProvidesVirtualThreads(), VirtualThreads.isSupported() );
+		run( true );
+	}
+
+	@Test
+	public void platformThreads()
+		throws Exception {
+		run( false );
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * A minimal harness for the micro-benchmarks of the runtime, which are plain classes with a main
+ * method under src/test. They are not run by the test suite. After
+ * <code>mvn -pl jolie -am test-compile</code>, run one with:
+ *
+ * <pre>
+ * java -cp jolie/target/classes:jolie/target/test-classes:libjolie/target/classes &lt;class&gt;
+ * </pre>
+ *
+ * The benchmarks only use the public API of the runtime, so copying them to an older tree gives the
+ * numbers to compare with. Each measurement runs its body for a number of warm-up rounds, then for
+ * the measured rounds, and prints the median time and the bytes allocated by the running thread per
+ * operation. The rounds can be set with the system properties <code>benchmark.warmup</code> and
+ * <code>benchmark.rounds</code>.
+ */
+public final class Benchmark {
+	private static final int WARMUP = Integer.getInteger( "benchmark.warmup", 5 );
+	private static final int ROUNDS = Integer.getInteger( "benchmark.rounds", 10 );
+
+	private Benchmark() {}
+
+	/**
+	 * Something to measure, which performs a number of operations on each call.
+	 */
+	@FunctionalInterface
+	public interface Body {
+		void run()
+			throws Exception;
+	}
+
+	/**
+	 * Measures the given body, which performs the given number of operations on each call, and prints
+	 * the results.
+	 *
+	 * @param name the name to print
+	 * @param operations the number of operations performed by each call of body
+	 * @param body the code to measure
+	 * @throws Exception if body throws
+	 */
+	public static void run( String name, long operations, Body body )
+		throws Exception {
+		for( int i = 0; i < WARMUP; i++ ) {
+			body.run();
+		}
+		final long[] nanos = new long[ ROUNDS ];
+		final long[] bytes = new long[ ROUNDS ];
+		for( int i = 0; i < ROUNDS; i++ ) {
+			final long allocated = allocatedBytes();
+			final long start = System.nanoTime();
+			body.run();
+			nanos[ i ] = System.nanoTime() - start;
+			bytes[ i ] = allocatedBytes() - allocated;
+		}
+		System.out.printf( "%-40s %12.1f ns/op %12.1f B/op%n", name,
+			(double) median( nanos ) / operations, (double) median( bytes ) / operations );
+	}
+
+	/**
+	 * Prints a result computed by the benchmark itself, e.g., a footprint.
+	 *
+	 * @param name the name to print
+	 * @param value the value to print
+	 * @param unit the unit of value
+	 */
+	public static void report( String name, double value, String unit ) {
+		System.out.printf( "%-40s %12.1f %s%n", name, value, unit );
+	}
+
+	/**
+	 * Returns the bytes of heap in use after a full collection, as far as the JVM lets us force one.
+	 *
+	 * @return the bytes of heap in use
+	 */
+	public static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for( int i = 0; i < 5; i++ ) {
+			System.gc();
+			used = Math.min( used, runtime.totalMemory() - runtime.freeMemory() );
+		}
+		return used;
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the threads that are alive, or -1 if the JVM does not count
+	 * them. This is meant for benchmarks that run code on other threads, e.g., in an interpreter: the
+	 * difference between two calls counts the threads started in between, but not those that ended.
+	 *
+	 * @return the bytes allocated by the live threads
+	 */
+	public static long allocatedBytesOfLiveThreads() {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if( !(bean instanceof com.sun.management.ThreadMXBean) ) {
+			return -1L;
+		}
+		final long[] allocated =
+			((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes( bean.getAllThreadIds() );
+		long sum = 0;
+		for( long bytes : allocated ) {
+			if( bytes > 0 ) {
+				sum += bytes;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the median of the given values.
+	 *
+	 * @param values the values, which are not modified
+	 * @return the median of values
+	 */
+	public static long median( long[] values ) {
+		final long[] sorted = values.clone();
+		Arrays.sort( sorted );
+		return sorted[ sorted.length / 2 ];
+	}
+
+	// Returns -1 on JVMs that do not count the bytes allocated by threads
+	private static long allocatedBytes() {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if( bean instanceof com.sun.management.ThreadMXBean ) {
+			return ((com.sun.management.ThreadMXBean) bean)
+				.getThreadAllocatedBytes( Thread.currentThread().getId() );
+		}
+		return -1L;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import jolie.Interpreter;
+import jolie.JolieClassLoader;
+import jolie.net.ChannelCache;
+import jolie.runtime.KeyInterner;
+import jolie.runtime.correlation.CorrelationEngine;
+
+/**
+ * Runs Jolie programs in the benchmarking JVM, with the defaults of the command line, so that
+ * benchmarks can measure statements of the language and tests can check how they run.
+ */
+public final class Programs {
+	private Programs() {}
+
+	/**
+	 * Runs the given program until its main procedure terminates, then stops its interpreter.
+	 *
+	 * @param name the name of the program, used for its file name and threads
+	 * @param code the code of the program
+	 * @throws Exception if the program cannot be parsed or run
+	 */
+	public static void run( String name, String code )
+		throws Exception {
+		run( name, code, null, () -> {
+		} );
+	}
+
+	/**
+	 * Runs the given service of a program until its main procedure terminates, then calls beforeExit
+	 * and stops its interpreter. The threads of the interpreter are still alive when beforeExit is
+	 * called.
+	 *
+	 * @param name the name of the program, used for its file name and threads
+	 * @param code the code of the program
+	 * @param service the service to run, as given with --service, or <code>null</code>
+	 * @param beforeExit called once the program has terminated, before stopping its interpreter
+	 * @throws Exception if the program cannot be parsed or run
+	 */
+	public static void run( String name, String code, String service, Runnable beforeExit )
+		throws Exception {
+		run( name, code, service, false, interpreter -> beforeExit.run() );
+	}
+
+	/**
+	 * Runs the given service of a program until its main procedure terminates, then calls beforeExit
+	 * with its interpreter and stops the interpreter. The threads and the global variables of the
+	 * interpreter are still there when beforeExit is called.
+	 *
+	 * @param name the name of the program, used for its file name and threads
+	 * @param code the code of the program
+	 * @param service the service to run, as given with --service, or <code>null</code>
+	 * @param virtualThreads whether to run the program on virtual threads, as with --virtualThreads
+	 * @param beforeExit called once the program has terminated, before stopping its interpreter
+	 * @throws Exception if the program cannot be parsed or run
+	 */
+	public static void run( String name, String code, String service, boolean virtualThreads,
+		Consumer< Interpreter > beforeExit )
+		throws Exception {
+		final URL[] libs = new URL[ 0 ];
+		final Interpreter.Configuration configuration = Interpreter.Configuration.create(
+			-1, 0, CorrelationEngine.Type.SIMPLE, new String[ 0 ], new String[ 0 ], libs,
+			new ByteArrayInputStream( code.getBytes( StandardCharsets.UTF_8 ) ), "UTF-8", new File( name + ".ol" ),
+			new String[ 0 ], new HashMap<>(), new JolieClassLoader( libs, Programs.class.getClassLoader() ),
+			false, false, false, "all", "console", false, true, 36000 * 1000, Level.WARNING, new File( "." ),
+			new String[ 0 ], service, Optional.empty(), virtualThreads, -1, 0L, 0, 0L, ChannelCache.DEFAULT_MAX_IDLE,
+			ChannelCache.DEFAULT_MAX_IDLE_PER_LOCATION, 0, KeyInterner.DEFAULT_CAPACITY );
+		final Interpreter interpreter = new Interpreter( configuration, null, Optional.empty() );
+		try {
+			interpreter.run();
+			beforeExit.accept( interpreter );
+		} finally {
+			interpreter.exit();
+		}
+	}
+}
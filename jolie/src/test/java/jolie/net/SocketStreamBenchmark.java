@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import jolie.benchmark.Benchmark;
+
+/**
+ * Measures the streams of socket channels, sending messages over loopback connections, each with a
+ * writing and a reading thread. The pooled streams of {@link SocketCommChannel} are compared with
+ * the streams made by {@link Channels}, which it used before. Besides the time, the benchmark
+ * prints the direct memory in use when all the messages have been sent, while the threads are still
+ * alive, as the handler threads of an interpreter would be.
+ */
+public class SocketStreamBenchmark {
+	private static final int CONNECTIONS = 4;
+
+	private static InputStream input( SocketChannel channel, boolean pooled ) {
+		return pooled ? new SocketChannelInputStream( channel ) : Channels.newInputStream( channel );
+	}
+
+	private static OutputStream output( SocketChannel channel, boolean pooled ) {
+		return pooled ? new SocketChannelOutputStream( channel )
+			: new BufferedOutputStream( Channels.newOutputStream( channel ) );
+	}
+
+	private static long directMemory() {
+		for( BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans( BufferPoolMXBean.class ) ) {
+			if( "direct".equals( pool.getName() ) ) {
+				return pool.getMemoryUsed();
+			}
+		}
+		return -1L;
+	}
+
+	private static Thread start( Benchmark.Body body, CountDownLatch done, CountDownLatch release ) {
+		final Thread thread = new Thread( () -> {
+			try {
+				body.run();
+			} catch( Exception e ) {
+				throw new IllegalStateException( e );
+			} finally {
+				done.countDown();
+			}
+			try {
+				release.await();
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		} );
+		thread.start();
+		return thread;
+	}
+
+	// Sends the messages over each connection, and returns the direct memory in use at the end
+	private static long send( ServerSocketChannel server, boolean pooled, int size, int messages )
+		throws Exception {
+		final CountDownLatch done = new CountDownLatch( CONNECTIONS * 2 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final Thread[] threads = new Thread[ CONNECTIONS * 2 ];
+		final SocketChannel[] channels = new SocketChannel[ CONNECTIONS * 2 ];
+		for( int c = 0; c < CONNECTIONS; c++ ) {
+			final SocketChannel client = SocketChannel.open( server.getLocalAddress() );
+			final SocketChannel accepted = server.accept();
+			channels[ 2 * c ] = client;
+			channels[ 2 * c + 1 ] = accepted;
+			threads[ 2 * c ] = start( () -> {
+				final OutputStream out = output( client, pooled );
+				final byte[] message = new byte[ size ];
+				for( int m = 0; m < messages; m++ ) {
+					out.write( message );
+					out.flush();
+				}
+			}, done, release );
+			threads[ 2 * c + 1 ] = start( () -> {
+				final InputStream in = input( accepted, pooled );
+				final byte[] b = new byte[ size ];
+				long left = (long) size * messages;
+				while( left > 0 ) {
+					final int read = in.read( b, 0, (int) Math.min( b.length, left ) );
+					if( read < 0 ) {
+						throw new IOException( "Unexpected end of stream" );
+					}
+					left -= read;
+				}
+			}, done, release );
+		}
+		done.await();
+		final long direct = directMemory();
+		release.countDown();
+		for( int i = 0; i < threads.length; i++ ) {
+			threads[ i ].join();
+			channels[ i ].close();
+		}
+		return direct;
+	}
+
+	private static void measure( ServerSocketChannel server, boolean pooled, int size, int messages )
+		throws Exception {
+		final String name = (pooled ? "pooled" : "Channels") + ", " + size / 1024 + " KB messages";
+		final long[] direct = new long[ 1 ];
+		Benchmark.run( name, (long) CONNECTIONS * messages,
+			() -> direct[ 0 ] = Math.max( direct[ 0 ], send( server, pooled, size, messages ) ) );
+		Benchmark.report( name + ", direct", direct[ 0 ] / 1024.0, "KB at most" );
+	}
+
+	public static void main( String[] args )
+		throws Exception {
+		try( ServerSocketChannel server = ServerSocketChannel.open() ) {
+			server.bind( new InetSocketAddress( "localhost", 0 ) );
+			for( boolean pooled : new boolean[] { false, true } ) {
+				measure( server, pooled, 1024, 5000 );
+				measure( server, pooled, 4 * 1024 * 1024, 25 );
+			}
+		}
+	}
+}
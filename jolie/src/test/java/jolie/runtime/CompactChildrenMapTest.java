@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+/**
+ * Checks that the vectors shared by deep copies are never modified through an iteration.
+ */
+public class CompactChildrenMapTest {
+	private static Value tree() {
+		final Value v = Value.create();
+		v.getFirstChild( "a" ).setValue( 1 );
+		v.getFirstChild( "b" ).getFirstChild( "c" ).setValue( 2 );
+		return v;
+	}
+
+	@Test
+	public void entrySetOfCopy() {
+		final Value original = tree();
+		final Value copy = Value.createDeepCopy( original );
+		for( Entry< String, ValueVector > entry : copy.children().entrySet() ) {
+			if( entry.getKey().equals( "a" ) ) {
+				entry.getValue().get( 0 ).setValue( 10 );
+				entry.getValue().add( Value.create( 11 ) );
+			} else {
+				entry.getValue().first().getFirstChild( "c" ).setValue( 20 );
+			}
+		}
+		assertEquals( 1, original.getFirstChild( "a" ).intValue() );
+		assertEquals( 1, original.getChildren( "a" ).size() );
+		assertEquals( 2, original.getFirstChild( "b" ).getFirstChild( "c" ).intValue() );
+		assertEquals( 10, copy.getFirstChild( "a" ).intValue() );
+		assertEquals( 2, copy.getChildren( "a" ).size() );
+		assertEquals( 20, copy.getFirstChild( "b" ).getFirstChild( "c" ).intValue() );
+	}
+
+	@Test
+	public void entrySetOfOriginal() {
+		final Value original = tree();
+		final Value copy = Value.createDeepCopy( original );
+		for( Entry< String, ValueVector > entry : original.children().entrySet() ) {
+			if( entry.getKey().equals( "a" ) ) {
+				entry.getValue().get( 0 ).setValue( 10 );
+			}
+		}
+		assertEquals( 10, original.getFirstChild( "a" ).intValue() );
+		assertEquals( 1, copy.getFirstChild( "a" ).intValue() );
+	}
+
+	@Test
+	public void valuesAndForEach() {
+		final Value original = tree();
+		final Value copy = Value.createDeepCopy( original );
+		for( ValueVector vector : copy.children().values() ) {
+			vector.add( Value.create( 30 ) );
+		}
+		copy.children().forEach( ( key, vector ) -> vector.get( 0 ).setValue( 40 ) );
+		assertEquals( 1, original.getChildren( "a" ).size() );
+		assertEquals( 1, original.getChildren( "b" ).size() );
+		assertEquals( 1, original.getFirstChild( "a" ).intValue() );
+		assertEquals( 2, copy.getChildren( "a" ).size() );
+		assertEquals( 40, copy.getFirstChild( "a" ).intValue() );
+		assertEquals( 40, copy.getFirstChild( "b" ).intValue() );
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import jolie.benchmark.Benchmark;
+import jolie.benchmark.Programs;
+
+/**
+ * Measures parallel compositions of short branches, which are the most common in programs. Each
+ * program runs the composition in a loop, and the same loop with a sequence instead of a parallel
+ * composition gives the cost of everything else, parsing included.
+ */
+public class ParallelExecutionBenchmark {
+	private static final int N = 20_000;
+
+	private static void measure( String name, String body )
+		throws Exception {
+		final String code = "main { for( i = 0, i < " + N + ", i++ ) { " + body + " } }";
+		Benchmark.run( name, N, () -> Programs.run( "parallel", code ) );
+	}
+
+	public static void main( String[] args )
+		throws Exception {
+		measure( "x = 1; y = 2", "x = 1; y = 2" );
+		measure( "x = 1 | y = 2", "x = 1 | y = 2" );
+		measure( "nested, sequential",
+			"{ { a = 1; b = 2 }; { c = 3; d = 4 } }; { e = a; { f = 5; g = 6; h = 7 } }" );
+		measure( "nested, parallel",
+			"{ { a = 1 | b = 2 } | { c = 3 | d = 4 } } | { e = a | { f = 5 | g = 6 | h = 7 } }" );
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import jolie.benchmark.Benchmark;
+
+/**
+ * Measures the value operations performed by the interpreter for a numeric loop like
+ * <code>for( i = 0, i &lt; n, i++ ) { s = s + i * 2; d = d + 0.5 }</code>: each sum and product
+ * evaluates to a new value, which is then assigned to the variable.
+ */
+public class ValueArithmeticBenchmark {
+	private static final int N = 1_000_000;
+
+	public static void main( String[] args )
+		throws Exception {
+		Benchmark.run( "int and double loop", N, () -> {
+			final Value i = Value.create( 0 );
+			final Value s = Value.create( 0 );
+			final Value d = Value.create( 0.0 );
+			final Value two = Value.create( 2 );
+			final Value half = Value.create( 0.5 );
+			while( i.intValue() < N ) {
+				final Value product = Value.create( i );
+				product.multiply( two );
+				final Value sum = Value.create( s );
+				sum.add( product );
+				s.assignValue( sum );
+				final Value dSum = Value.create( d );
+				dSum.add( half );
+				d.assignValue( dSum );
+				i.setValue( i.intValue() + 1 );
+			}
+			if( s.longValue() == 42 ) {
+				System.out.println( d.doubleValue() );
+			}
+		} );
+
+		final Value counter = Value.create( 0 );
+		Benchmark.run( "increment", N, () -> {
+			for( int k = 0; k < N; k++ ) {
+				counter.setValue( counter.intValue() + 1 );
+			}
+		} );
+
+		final Value a = Value.create( 3 );
+		final Value b = Value.create( 4L );
+		Benchmark.run( "read and compare", N, () -> {
+			int smaller = 0;
+			for( int k = 0; k < N; k++ ) {
+				if( a.longValue() < b.longValue() && a.isInt() ) {
+					smaller++;
+				}
+			}
+			if( smaller == 42 ) {
+				System.out.println( smaller );
+			}
+		} );
+	}
+}
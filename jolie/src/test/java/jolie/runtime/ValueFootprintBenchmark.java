@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import jolie.benchmark.Benchmark;
+
+/**
+ * Measures the heap taken by message trees, and the cost of building, copying and reading them.
+ * Messages look like orders: a few scalars, a nested address and three items, 21 nodes in total.
+ */
+public class ValueFootprintBenchmark {
+	private static final int MESSAGES = 100_000;
+
+	static Value order( int i ) {
+		final Value order = Value.create();
+		order.getFirstChild( "id" ).setValue( i );
+		order.getFirstChild( "customer" ).setValue( "customer" + (i % 100) );
+		order.getFirstChild( "total" ).setValue( i * 1.5 );
+		order.getFirstChild( "paid" ).setValue( i % 2 == 0 );
+		final Value address = order.getFirstChild( "address" );
+		address.getFirstChild( "street" ).setValue( "Main Street" );
+		address.getFirstChild( "city" ).setValue( "Odense" );
+		address.getFirstChild( "zip" ).setValue( 5230 );
+		for( int k = 0; k < 3; k++ ) {
+			final Value item = order.getNewChild( "item" );
+			item.getFirstChild( "sku" ).setValue( "sku" + k );
+			item.getFirstChild( "quantity" ).setValue( k + 1 );
+			item.getFirstChild( "price" ).setValue( 9.99 );
+		}
+		return order;
+	}
+
+	private static long walk( Value v ) {
+		long n = 1;
+		for( ValueVector vector : v.children().values() ) {
+			for( Value child : vector ) {
+				n += walk( child );
+			}
+		}
+		return n;
+	}
+
+	public static void main( String[] args )
+		throws Exception {
+		final long before = Benchmark.usedHeap();
+		final Value[] orders = new Value[ MESSAGES ];
+		for( int i = 0; i < MESSAGES; i++ ) {
+			orders[ i ] = order( i );
+		}
+		final long after = Benchmark.usedHeap();
+		Benchmark.report( "footprint", (double) (after - before) / MESSAGES, "bytes/message" );
+
+		Benchmark.run( "build", MESSAGES, () -> {
+			for( int i = 0; i < MESSAGES; i++ ) {
+				orders[ i ] = order( i );
+			}
+		} );
+
+		final Value[] copies = new Value[ MESSAGES ];
+		Benchmark.run( "deep copy", MESSAGES, () -> {
+			for( int i = 0; i < MESSAGES; i++ ) {
+				copies[ i ] = Value.create();
+				copies[ i ].deepCopy( orders[ i ] );
+			}
+		} );
+
+		Benchmark.run( "deep copy and walk", MESSAGES, () -> {
+			long nodes = 0;
+			for( int i = 0; i < MESSAGES; i++ ) {
+				final Value copy = Value.create();
+				copy.deepCopy( orders[ i ] );
+				nodes += walk( copy );
+			}
+			if( nodes != 21L * MESSAGES ) {
+				throw new IllegalStateException( "Unexpected number of nodes: " + nodes );
+			}
+		} );
+	}
+}
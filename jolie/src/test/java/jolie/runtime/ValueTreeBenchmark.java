@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+import jolie.benchmark.Benchmark;
+
+/**
+ * Measures the deduplication of messages, half of which are repeated. Without a structural hash,
+ * the way to key a tree was to print it and use the string: this is the baseline for
+ * {@link ValueKey}. The hashing and comparison of whole trees, and the comparison of scalars, are
+ * measured on their own as well.
+ */
+public class ValueTreeBenchmark {
+	private static final int MESSAGES = 10_000;
+
+	private static String printed( Value value )
+		throws Exception {
+		final StringWriter writer = new StringWriter();
+		new ValuePrettyPrinter( value, writer, "" ).run();
+		return writer.toString();
+	}
+
+	public static void main( String[] args )
+		throws Exception {
+		final Value[] messages = new Value[ MESSAGES ];
+		final Value[] copies = new Value[ MESSAGES ];
+		for( int i = 0; i < MESSAGES; i++ ) {
+			messages[ i ] = ValueFootprintBenchmark.order( i % (MESSAGES / 2) );
+			copies[ i ] = ValueFootprintBenchmark.order( i % (MESSAGES / 2) );
+		}
+
+		Benchmark.run( "treeHashCode", MESSAGES, () -> {
+			int h = 0;
+			for( Value message : messages ) {
+				h += message.treeHashCode();
+			}
+			if( h == 42 ) {
+				System.out.println( h );
+			}
+		} );
+
+		Benchmark.run( "treeEquals, equal trees", MESSAGES, () -> {
+			for( int i = 0; i < MESSAGES; i++ ) {
+				if( !messages[ i ].treeEquals( copies[ i ] ) ) {
+					throw new IllegalStateException( "Trees " + i + " differ" );
+				}
+			}
+		} );
+
+		Benchmark.run( "dedupe, printed trees", MESSAGES, () -> {
+			final Set< String > seen = new HashSet<>();
+			for( Value message : messages ) {
+				seen.add( printed( message ) );
+			}
+			check( seen.size() );
+		} );
+
+		Benchmark.run( "dedupe, ValueKey", MESSAGES, () -> {
+			final Set< ValueKey > seen = new HashSet<>();
+			for( Value message : messages ) {
+				seen.add( ValueKey.of( message ) );
+			}
+			check( seen.size() );
+		} );
+
+		final Value a = Value.create( 3 );
+		final Value b = Value.create( 3 );
+		Benchmark.run( "equals, scalars", MESSAGES * 100, () -> {
+			int equal = 0;
+			for( int k = 0; k < MESSAGES * 100; k++ ) {
+				if( a.equals( b ) ) {
+					equal++;
+				}
+			}
+			if( equal == 42 ) {
+				System.out.println( equal );
+			}
+		} );
+	}
+
+	private static void check( int distinct ) {
+		if( distinct != MESSAGES / 2 ) {
+			throw new IllegalStateException( "Unexpected number of distinct messages: " + distinct );
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 Fabrizio Montesi <famontesi@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import jolie.benchmark.Benchmark;
+
+/**
+ * Measures readers of a shared tree, like sessions looking up the rows of a global table: each
+ * reader looks up rows by index and, every 1000 lookups, iterates over the whole table. The numbers
+ * of readers to measure are given as arguments, and default to 1 and 8.
+ */
+public class ValueVectorBenchmark {
+	private static final int ROWS = 1000;
+	private static final int LOOKUPS = 1_000_000;
+
+	private static long read( Value table, int seed ) {
+		long sum = 0;
+		int row = seed;
+		for( int k = 1; k <= LOOKUPS; k++ ) {
+			row = (row * 31 + 7) % ROWS;
+			sum += table.getChildren( "row" ).get( row ).getFirstChild( "id" ).intValue();
+			if( k % 1000 == 0 ) {
+				for( Value v : table.getChildren( "row" ) ) {
+					sum += v.getChildren( "id" ).size();
+				}
+			}
+		}
+		return sum;
+	}
+
+	private static void readers( Value table, int threads )
+		throws InterruptedException {
+		final Thread[] workers = new Thread[ threads ];
+		final long[] sums = new long[ threads ];
+		for( int t = 0; t < threads; t++ ) {
+			final int index = t;
+			workers[ t ] = new Thread( () -> sums[ index ] = read( table, index ) );
+			workers[ t ].start();
+		}
+		for( Thread worker : workers ) {
+			worker.join();
+		}
+	}
+
+	public static void main( String[] args )
+		throws Exception {
+		final Value table = Value.create();
+		final ValueVector rows = table.getChildren( "row" );
+		for( int i = 0; i < ROWS; i++ ) {
+			final Value row = Value.create();
+			row.getFirstChild( "id" ).setValue( i );
+			row.getFirstChild( "name" ).setValue( "row" + i );
+			rows.add( row );
+		}
+
+		final String[] counts = args.length > 0 ? args : new String[] { "1", "8" };
+		for( String count : counts ) {
+			final int threads = Integer.parseInt( count );
+			Benchmark.run( "lookups, " + threads + " readers", (long) LOOKUPS * threads,
+				() -> readers( table, threads ) );
+		}
+	}
+}
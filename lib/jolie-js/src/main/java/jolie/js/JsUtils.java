@@ -28,6 +28,7 @@ import java.io.StringReader;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import jolie.runtime.KeyInterner;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
 import jolie.runtime.typing.Type;
@@ -168,7 +169,7 @@ public class JsUtils {
 				objectToBasicValue( entry.getValue(), value );
 			} else {
 				vec = jsonObjectToValueVector( entry.getValue(), strictEncoding );
-				value.children().put( entry.getKey(), vec );
+				value.children().put( KeyInterner.getInstance().intern( entry.getKey() ), vec );
 			}
 		}
 	}
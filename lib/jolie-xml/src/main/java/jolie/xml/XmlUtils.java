@@ -51,6 +51,7 @@ import org.xml.sax.SAXException;
 
 import jolie.Interpreter;
 import jolie.lang.Constants;
+import jolie.runtime.KeyInterner;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
 
@@ -461,8 +462,9 @@ public class XmlUtils {
 			Node attr;
 			for( int i = 0; i < map.getLength(); i++ ) {
 				attr = map.item( i );
-				getAttribute( value, (attr.getLocalName() == null) ? attr.getNodeName() : attr.getLocalName() )
-					.setValue( attr.getNodeValue() );
+				getAttribute( value, KeyInterner.getInstance().intern(
+					(attr.getLocalName() == null) ? attr.getNodeName() : attr.getLocalName() ) )
+						.setValue( attr.getNodeValue() );
 			}
 		}
 	}
@@ -507,7 +509,8 @@ public class XmlUtils {
 				break;
 			case Node.ELEMENT_NODE:
 				childValue =
-					value.getNewChild( (node.getLocalName() == null) ? node.getNodeName() : node.getLocalName() );
+					value.getNewChild( KeyInterner.getInstance().intern(
+						(node.getLocalName() == null) ? node.getNodeName() : node.getLocalName() ) );
 				String subElType = insertAttributesForStoring( childValue, node );
 				elementsToSubValuesForStoring( childValue, node.getChildNodes(), subElType );
 				break;
@@ -553,7 +556,8 @@ public class XmlUtils {
 				break;
 			case Node.ELEMENT_NODE:
 				childValue =
-					value.getNewChild( (node.getLocalName() == null) ? node.getNodeName() : node.getLocalName() );
+					value.getNewChild( KeyInterner.getInstance().intern(
+						(node.getLocalName() == null) ? node.getNodeName() : node.getLocalName() ) );
 				if( includeAttributes ) {
 					if( node.getPrefix() != null ) {
 						childValue.getFirstChild( PREFIX ).setValue( node.getPrefix() );
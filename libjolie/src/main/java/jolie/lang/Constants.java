@@ -116,6 +116,9 @@ public final class Constants {
 	public static final String TYPE_MISMATCH_FAULT_NAME = "TypeMismatch";
 	public static final String IO_EXCEPTION_FAULT_NAME = "IOException";
 	public static final String TIMEOUT_EXCEPTION_FAULT_NAME = "Timeout";
+	public static final String SERVICE_UNAVAILABLE_FAULT_NAME = "ServiceUnavailable";
+	public static final String MEMORY_LIMIT_EXCEEDED_FAULT_NAME = "MemoryLimitExceeded";
+	public static final String LOCK_TIMEOUT_FAULT_NAME = "LockTimeout";
 
 	public static final String MONITOR_OUTPUTPORT_NAME = "#Monitor";
 	public static final String INPUT_PORTS_NODE_NAME = "inputPorts";
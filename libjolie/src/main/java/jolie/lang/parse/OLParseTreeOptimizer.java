@@ -367,7 +367,8 @@ public class OLParseTreeOptimizer {
 				n.context(),
 				optimizePath( n.keyPath() ),
 				optimizePath( n.targetPath() ),
-				optimizeNode( n.body() ) );
+				optimizeNode( n.body() ),
+				n.parallel() );
 		}
 
 		@Override
@@ -376,7 +377,8 @@ public class OLParseTreeOptimizer {
 				n.context(),
 				optimizePath( n.keyPath() ),
 				optimizePath( n.targetPath() ),
-				optimizeNode( n.body() ) );
+				optimizeNode( n.body() ),
+				n.parallel() );
 		}
 
 		@Override
@@ -2198,6 +2198,24 @@ public class OLParser extends AbstractParser {
 		return ret;
 	}
 
+	/**
+	 * Parses the optional parallel modifier of a foreach statement, as in for( x in a ) parallel { ...
+	 * }. The modifier must be followed by a block, so that parallel may still be a process in the body.
+	 */
+	private boolean parseParallelModifier()
+		throws IOException {
+		if( token.isKeyword( "parallel" ) ) {
+			startBackup();
+			nextToken();
+			if( token.is( Scanner.TokenType.LCURLY ) ) {
+				discardBackup();
+				return true;
+			}
+			recoverBackup();
+		}
+		return false;
+	}
+
 	private OLSyntaxNode parseBasicStatement()
 		throws IOException, ParserException {
 		return parseBasicStatement( true );
@@ -2315,7 +2333,7 @@ public class OLParser extends AbstractParser {
 			}
 
 			if( leftPath != null && token.isKeyword( "in" ) ) {
-				// for( elem in path ) { ... }
+				// for( elem in path ) [parallel] { ... }
 				discardBackup();
 
 				nextToken();
@@ -2326,9 +2344,10 @@ public class OLParser extends AbstractParser {
 							+ targetPath.toPrettyString() );
 				}
 				eat( Scanner.TokenType.RPAREN, "expected )" );
+				final boolean parallel = parseParallelModifier();
 				final OLSyntaxNode forEachBody = parseBasicStatement();
 
-				retVal = new ForEachArrayItemStatement( getContext(), leftPath, targetPath, forEachBody );
+				retVal = new ForEachArrayItemStatement( getContext(), leftPath, targetPath, forEachBody, parallel );
 			} else {
 				// for( init, condition, post ) { ... }
 				recoverBackup();
@@ -2345,7 +2364,7 @@ public class OLParser extends AbstractParser {
 			}
 			break;
 		case FOREACH:
-			// foreach( k : path ) { ... }
+			// foreach( k : path ) [parallel] { ... }
 			nextToken();
 			eat( Scanner.TokenType.LPAREN, "expected (" );
 
@@ -2355,8 +2374,9 @@ public class OLParser extends AbstractParser {
 
 			final VariablePathNode targetPath = parseVariablePath();
 			eat( Scanner.TokenType.RPAREN, "expected )" );
+			final boolean parallel = parseParallelModifier();
 			final OLSyntaxNode forEachBody = parseBasicStatement();
-			retVal = new ForEachSubNodeStatement( getContext(), keyPath, targetPath, forEachBody );
+			retVal = new ForEachSubNodeStatement( getContext(), keyPath, targetPath, forEachBody, parallel );
 			break;
 		case LINKIN:
 			retVal = parseLinkInStatement();
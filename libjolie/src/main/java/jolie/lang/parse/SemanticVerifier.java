@@ -1186,6 +1186,9 @@ public class SemanticVerifier implements UnitOLVisitor {
 
 	@Override
 	public void visit( ForEachSubNodeStatement n ) {
+		if( n.parallel() ) {
+			checkParallelKeyPath( n.keyPath() );
+		}
 		n.keyPath().accept( this );
 		n.targetPath().accept( this );
 		n.body().accept( this );
@@ -1193,11 +1196,22 @@ public class SemanticVerifier implements UnitOLVisitor {
 
 	@Override
 	public void visit( ForEachArrayItemStatement n ) {
+		if( n.parallel() ) {
+			checkParallelKeyPath( n.keyPath() );
+		}
 		n.keyPath().accept( this );
 		n.targetPath().accept( this );
 		n.body().accept( this );
 	}
 
+	// Each branch of a parallel foreach gets its own copy of the key path, which a global variable
+	// cannot have
+	private void checkParallelKeyPath( VariablePathNode keyPath ) {
+		if( keyPath.isGlobal() ) {
+			error( keyPath, "the variable of a parallel foreach cannot be global, since each branch needs its own" );
+		}
+	}
+
 	@Override
 	public void visit( IsTypeExpressionNode n ) {
 		n.variablePath().accept( this );
@@ -27,12 +27,22 @@ import jolie.util.Pair;
 public class ForEachArrayItemStatement extends OLSyntaxNode {
 	private final VariablePathNode keyPath, targetPath;
 	private final OLSyntaxNode body;
+	private final boolean parallel;
 
 	public ForEachArrayItemStatement(
 		ParsingContext context,
 		VariablePathNode keyPath,
 		VariablePathNode targetPath,
 		OLSyntaxNode body ) {
+		this( context, keyPath, targetPath, body, false );
+	}
+
+	public ForEachArrayItemStatement(
+		ParsingContext context,
+		VariablePathNode keyPath,
+		VariablePathNode targetPath,
+		OLSyntaxNode body,
+		boolean parallel ) {
 
 		super( context );
 
@@ -48,6 +58,7 @@ public class ForEachArrayItemStatement extends OLSyntaxNode {
 		this.keyPath = keyPath;
 		this.targetPath = targetPath;
 		this.body = body;
+		this.parallel = parallel;
 	}
 
 	public OLSyntaxNode body() {
@@ -62,6 +73,13 @@ public class ForEachArrayItemStatement extends OLSyntaxNode {
 		return targetPath;
 	}
 
+	/**
+	 * Returns true if the iterations are to be run in parallel, as in foreach( ... ) parallel { ... }
+	 */
+	public boolean parallel() {
+		return parallel;
+	}
+
 	@Override
 	public < C, R > R accept( OLVisitor< C, R > visitor, C ctx ) {
 		return visitor.visit( this, ctx );
@@ -28,16 +28,27 @@ import jolie.lang.parse.context.ParsingContext;
 public class ForEachSubNodeStatement extends OLSyntaxNode {
 	private final VariablePathNode keyPath, targetPath;
 	private final OLSyntaxNode body;
+	private final boolean parallel;
 
 	public ForEachSubNodeStatement(
 		ParsingContext context,
 		VariablePathNode keyPath,
 		VariablePathNode targetPath,
 		OLSyntaxNode body ) {
+		this( context, keyPath, targetPath, body, false );
+	}
+
+	public ForEachSubNodeStatement(
+		ParsingContext context,
+		VariablePathNode keyPath,
+		VariablePathNode targetPath,
+		OLSyntaxNode body,
+		boolean parallel ) {
 		super( context );
 		this.keyPath = keyPath;
 		this.targetPath = targetPath;
 		this.body = body;
+		this.parallel = parallel;
 	}
 
 	public OLSyntaxNode body() {
@@ -52,6 +63,13 @@ public class ForEachSubNodeStatement extends OLSyntaxNode {
 		return targetPath;
 	}
 
+	/**
+	 * Returns true if the iterations are to be run in parallel, as in foreach( ... ) parallel { ... }
+	 */
+	public boolean parallel() {
+		return parallel;
+	}
+
 	@Override
 	public < C, R > R accept( OLVisitor< C, R > visitor, C ctx ) {
 		return visitor.visit( this, ctx );